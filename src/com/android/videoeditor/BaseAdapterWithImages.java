@@ -16,15 +16,17 @@
 
 package com.android.videoeditor;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.res.Configuration;
 import android.graphics.Bitmap;
-import android.graphics.drawable.BitmapDrawable;
 import android.os.AsyncTask;
+import android.util.LruCache;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AbsListView;
@@ -32,14 +34,30 @@ import android.widget.BaseAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import com.android.videoeditor.util.MemoryBudget;
+
 /**
- * Base class for BaseAdapters which load images.
+ * Base class for BaseAdapters which load images. The images are loaded
+ * concurrently and kept in a memory cache which is shared by all the
+ * adapters. The load of an image is cancelled when its view is recycled.
  */
 public abstract class BaseAdapterWithImages<K> extends BaseAdapter {
+    // The number of threads which load the images
+    private static final int LOADER_THREADS = 2;
+
+    // The images of all the adapters are loaded concurrently, at most
+    // LOADER_THREADS at a time
+    private static final Executor sImageExecutor = Executors.newFixedThreadPool(LOADER_THREADS);
+
+    // The loaded images of all the adapters. The bitmaps are shared and
+    // must not be modified or recycled.
+    private static LruCache<ImageKey, Bitmap> sImageCache;
+    // The locale of the cached images
+    private static Configuration sImageCacheConfiguration;
+
     protected final Context mContext;
-    private final List<ImageViewHolder<K>> mViewHolders;
-    // For recording keys of images that are being loaded
-    private final Set<K> mLoadingImages;
+    // The view holders which display the images, by image key
+    private final Map<K, ImageViewHolder<K>> mViewHolders;
     private final AbsListView mListView;
 
     /**
@@ -48,6 +66,7 @@ public abstract class BaseAdapterWithImages<K> extends BaseAdapter {
     protected static class ImageViewHolder<K> {
         private final ImageView mImageView;
         private K mKey;
+        private BaseAdapterWithImages<K>.ImageLoaderAsyncTask mTask;
 
         public ImageViewHolder(View rowView) {
             mImageView = (ImageView) rowView.findViewById(R.id.item_preview);
@@ -70,6 +89,35 @@ public abstract class BaseAdapterWithImages<K> extends BaseAdapter {
         }
     }
 
+    /**
+     * The key of a cached image. The image keys of different adapters may
+     * be equal so the key includes the adapter class.
+     */
+    private static class ImageKey {
+        private final Class<?> mAdapterClass;
+        private final Object mKey;
+
+        public ImageKey(Class<?> adapterClass, Object key) {
+            mAdapterClass = adapterClass;
+            mKey = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ImageKey)) {
+                return false;
+            }
+
+            final ImageKey key = (ImageKey)o;
+            return mAdapterClass == key.mAdapterClass && mKey.equals(key.mKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mAdapterClass.hashCode() + mKey.hashCode();
+        }
+    }
+
     /**
      * Image loader class
      */
@@ -90,24 +138,31 @@ public abstract class BaseAdapterWithImages<K> extends BaseAdapter {
 
         @Override
         protected Bitmap doInBackground(Void... zzz) {
-            return loadImage(mData);
+            // The view was recycled before the load started
+            if (isCancelled()) {
+                return null;
+            }
+
+            // The image is cached even if the view is recycled meanwhile
+            final Bitmap bitmap = loadImage(mData);
+            if (bitmap != null) {
+                sImageCache.put(getImageKey(mKey), bitmap);
+            }
+
+            return bitmap;
         }
 
         @Override
         protected void onPostExecute(Bitmap bitmap) {
-            mLoadingImages.remove(mKey);
-            if (bitmap == null) {
+            final ImageViewHolder<K> viewHolder = mViewHolders.get(mKey);
+            if (viewHolder == null || viewHolder.mTask != this) {
                 return;
             }
 
-            for (ImageViewHolder<K> viewHolder : mViewHolders) {
-                if (mKey.equals(viewHolder.mKey)) {
-                    viewHolder.mImageView.setImageBitmap(bitmap);
-                    return;
-                }
+            viewHolder.mTask = null;
+            if (bitmap != null) {
+                viewHolder.mImageView.setImageBitmap(bitmap);
             }
-
-            bitmap.recycle();
         }
     }
 
@@ -120,52 +175,70 @@ public abstract class BaseAdapterWithImages<K> extends BaseAdapter {
     public BaseAdapterWithImages(Context context, AbsListView listView) {
         mContext = context;
         mListView = listView;
-        mLoadingImages = new HashSet<K>();
-        mViewHolders = new ArrayList<ImageViewHolder<K>>();
+        mViewHolders = new HashMap<K, ImageViewHolder<K>>();
+
+        if (sImageCache == null) {
+            sImageCache = new LruCache<ImageKey, Bitmap>(MemoryBudget.getCacheSize(context,
+                    MemoryBudget.CACHE_PICKER_IMAGES)) {
+                @Override
+                protected int sizeOf(ImageKey key, Bitmap value) {
+                    return value.getByteCount();
+                }
+            };
+            MemoryBudget.register(MemoryBudget.CACHE_PICKER_IMAGES, sImageCache);
+        }
+
+        // The images contain localized text
+        final Configuration configuration = context.getResources().getConfiguration();
+        if (sImageCacheConfiguration == null ||
+                (sImageCacheConfiguration.diff(configuration) & ActivityInfo.CONFIG_LOCALE) != 0) {
+            sImageCache.evictAll();
+            sImageCacheConfiguration = new Configuration(configuration);
+        }
 
         mListView.setRecyclerListener(new AbsListView.RecyclerListener() {
             @Override
             @SuppressWarnings("unchecked")
             public void onMovedToScrapHeap(View view) {
-                final ImageViewHolder<K> viewHolder = (ImageViewHolder<K>)view.getTag();
-
-                mViewHolders.remove(viewHolder);
-                viewHolder.setKey(null);
-
-                final BitmapDrawable drawable
-                        = (BitmapDrawable)viewHolder.mImageView.getDrawable();
-                if (drawable != null && drawable.getBitmap() != null) {
-                    viewHolder.mImageView.setImageDrawable(null);
-                    drawable.getBitmap().recycle();
-                }
+                unbind((ImageViewHolder<K>)view.getTag());
             }
         });
     }
 
+    /**
+     * Upon pause, cancel the loads. The loaded images remain cached.
+     */
     public void onPause() {
+        for (ImageViewHolder<K> viewHolder : mViewHolders.values()) {
+            if (viewHolder.mTask != null) {
+                viewHolder.mTask.cancel(false);
+                viewHolder.mTask = null;
+            }
+        }
+
         mViewHolders.clear();
     }
 
     /**
-     * Upon destroy, recycle all images and then remove all child views in the list view.
+     * Upon destroy, cancel the loads and then remove all child views in the list view.
+     * The bitmaps are owned by the shared cache so they are not recycled.
      */
+    @SuppressWarnings("unchecked")
     public void onDestroy() {
         final int count = mListView.getChildCount();
         for (int i = 0; i < count; i++) {
             final View rowView = mListView.getChildAt(i);
-            final ImageView imageView = (ImageView)rowView.findViewById(R.id.item_preview);
-            final BitmapDrawable drawable = (BitmapDrawable)imageView.getDrawable();
-            if (drawable != null && drawable.getBitmap() != null) {
-                drawable.getBitmap().recycle();
-            }
+            final ImageViewHolder<K> viewHolder = (ImageViewHolder<K>)rowView.getTag();
+            unbind(viewHolder);
+            viewHolder.mImageView.setImageDrawable(null);
         }
 
         mListView.removeViews(0, count);
-        System.gc();
+        mViewHolders.clear();
     }
 
     /**
-     * Starts the AsyncTask which loads the bitmap.
+     * Displays the cached bitmap or starts the AsyncTask which loads the bitmap.
      *
      * @param key The bitmap key
      * @param data The data
@@ -173,15 +246,55 @@ public abstract class BaseAdapterWithImages<K> extends BaseAdapter {
      */
     protected void initiateLoad(K key, Object data, ImageViewHolder<K> viewHolder) {
         // The adapter may recycle a view and then reuse it.
-        if (!mViewHolders.contains(viewHolder)) {
-            mViewHolders.add(viewHolder);
+        if (viewHolder.mKey != null && !viewHolder.mKey.equals(key)) {
+            unbind(viewHolder);
         }
+
         viewHolder.setKey(key);
+        mViewHolders.put(key, viewHolder);
+
+        final Bitmap bitmap = sImageCache.get(getImageKey(key));
+        if (bitmap != null) {
+            if (viewHolder.mTask != null) {
+                viewHolder.mTask.cancel(false);
+                viewHolder.mTask = null;
+            }
+
+            viewHolder.mImageView.setImageBitmap(bitmap);
+        } else if (viewHolder.mTask == null) {
+            viewHolder.mImageView.setImageDrawable(null);
+            viewHolder.mTask = new ImageLoaderAsyncTask(key, data);
+            viewHolder.mTask.executeOnExecutor(sImageExecutor);
+        }
+    }
 
-        if (!mLoadingImages.contains(key)) {
-            mLoadingImages.add(key);
-            new ImageLoaderAsyncTask(key, data).execute();
+    /**
+     * Detach a view holder from its image and cancel the load of the image
+     *
+     * @param viewHolder The view holder
+     */
+    private void unbind(ImageViewHolder<K> viewHolder) {
+        if (viewHolder.mTask != null) {
+            viewHolder.mTask.cancel(false);
+            viewHolder.mTask = null;
         }
+
+        if (viewHolder.mKey != null) {
+            if (mViewHolders.get(viewHolder.mKey) == viewHolder) {
+                mViewHolders.remove(viewHolder.mKey);
+            }
+
+            viewHolder.setKey(null);
+        }
+    }
+
+    /**
+     * @param key The bitmap key
+     *
+     * @return The key of the bitmap in the shared cache
+     */
+    private ImageKey getImageKey(K key) {
+        return new ImageKey(getClass(), key);
     }
 
     @Override
@@ -24,8 +24,17 @@ import android.media.videoeditor.MediaProperties;
 import android.util.Pair;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.CheckBox;
+import android.widget.CompoundButton;
 import android.widget.Spinner;
+import android.widget.TextView;
+
+import com.android.videoeditor.service.ApiService;
+import com.android.videoeditor.service.ExportBenchmark;
+import com.android.videoeditor.util.StringUtils;
 
 /**
  * The export options dialog
@@ -34,12 +43,18 @@ public class ExportOptionsDialog {
     // Listener
     public interface ExportOptionsListener {
         /**
-         * User initiated the export operation
+         * User initiated the export operation. One movie is exported for
+         * each selected movie size.
          *
-         * @param movieHeight The movie height (from MediaProperties)
+         * @param movieHeights The selected movie heights (from MediaProperties)
          * @param movieBitrate The movie bitrate (from MediaProperties)
          */
-        public void onExportOptions(int movieHeight, int movieBitrate);
+        public void onExportOptions(int[] movieHeights, int movieBitrate);
+
+        /**
+         * User asked to measure the export time of this device
+         */
+        public void onMeasureExportTime();
     }
 
     /**
@@ -50,12 +65,16 @@ public class ExportOptionsDialog {
      * @param negativeListener The negative listener
      * @param cancelListener The cancel listener
      * @param aspectRatio The aspect ratio
+     * @param movieDurationMs The duration of the movie
+     * @param canMeasure true if the export time can be measured, that is if
+     *      the storyboard is not empty
      *
      * @return The dialog
      */
     public static Dialog create(Context context, final ExportOptionsListener positiveListener,
             DialogInterface.OnClickListener negativeListener,
-            DialogInterface.OnCancelListener cancelListener, final int aspectRatio) {
+            DialogInterface.OnCancelListener cancelListener, final int aspectRatio,
+            long movieDurationMs, boolean canMeasure) {
         AlertDialog.Builder builder = new AlertDialog.Builder(context);
 
         // Set the title
@@ -69,22 +88,20 @@ public class ExportOptionsDialog {
         builder.setView(myView);
 
         // Prepare the dialog content
-        prepareContent(myView, aspectRatio);
+        prepareContent(myView, positiveListener, aspectRatio, movieDurationMs, canMeasure);
 
         // Setup the positive listener
         builder.setPositiveButton(context.getString(R.string.export_dialog_export),
                 new DialogInterface.OnClickListener() {
                     @Override
                     public void onClick(DialogInterface dialog, int which) {
-                        final Spinner sizeSpinner = (Spinner)myView.findViewById(
-                                R.id.export_option_size);
-                        final int movieHeight = indexToMovieHeight(
-                                sizeSpinner.getSelectedItemPosition(), aspectRatio);
+                        final int[] movieHeights = getSelectedMovieHeights(myView,
+                                aspectRatio);
                         final Spinner qualitySpinner = (Spinner)myView.findViewById(
                                 R.id.export_option_quality);
                         final int movieBitrate = indexToMovieBitrate(
                                 qualitySpinner.getSelectedItemPosition());
-                        positiveListener.onExportOptions(movieHeight, movieBitrate);
+                        positiveListener.onExportOptions(movieHeights, movieBitrate);
                     }
                 });
 
@@ -103,22 +120,40 @@ public class ExportOptionsDialog {
      * Prepare the dialog content
      *
      * @param view The dialog content view
+     * @param listener The export options listener
      * @param aspectRatio The project aspect ratio
+     * @param movieDurationMs The duration of the movie
+     * @param canMeasure true if the export time can be measured
      */
-    private static void prepareContent(View view, int aspectRatio) {
+    private static void prepareContent(final View view, final ExportOptionsListener listener,
+            final int aspectRatio, final long movieDurationMs, final boolean canMeasure) {
         final Context context = view.getContext();
-        // Setup the movie size spinner
-        final ArrayAdapter<CharSequence> sizeAdapter = new ArrayAdapter<CharSequence>(
-                context, android.R.layout.simple_spinner_item);
-        sizeAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        // Setup one movie size check box per supported size. Several sizes
+        // can be selected.
+        final CompoundButton.OnCheckedChangeListener sizeListener =
+                new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                if (!isChecked && getSelectedMovieHeights(view, aspectRatio).length == 0) {
+                    // At least one movie size is exported
+                    buttonView.setChecked(true);
+                    return;
+                }
+
+                updateEstimate(view, aspectRatio, movieDurationMs, canMeasure);
+            }
+        };
         final Pair<Integer, Integer>[] supportedSizes =
             MediaProperties.getSupportedResolutions(aspectRatio);
+        final ViewGroup sizesView = (ViewGroup)view.findViewById(R.id.export_option_sizes);
         for (int i = 0; i < supportedSizes.length; i++) {
-            sizeAdapter.add(supportedSizes[i].first + "x" + supportedSizes[i].second);
+            final CheckBox sizeCheckBox = new CheckBox(context);
+            sizeCheckBox.setText(supportedSizes[i].first + "x" + supportedSizes[i].second);
+            // Select the first size by default
+            sizeCheckBox.setChecked(i == 0);
+            sizeCheckBox.setOnCheckedChangeListener(sizeListener);
+            sizesView.addView(sizeCheckBox);
         }
-        final Spinner sizeSpinner = (Spinner)view.findViewById(R.id.export_option_size);
-        sizeSpinner.setAdapter(sizeAdapter);
-        sizeSpinner.setPromptId(R.string.export_dialog_movie_size);
 
         // Setup the movie quality spinner
         final ArrayAdapter<CharSequence> qualityAdapter = new ArrayAdapter<CharSequence>(context,
@@ -132,12 +167,111 @@ public class ExportOptionsDialog {
         // Set the default quality to "Medium"
         qualitySpinner.setSelection(1);
         qualitySpinner.setPromptId(R.string.export_dialog_movie_quality);
+
+        // Show the estimated export time of the selected options
+        final AdapterView.OnItemSelectedListener estimateListener =
+                new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View v, int position, long id) {
+                updateEstimate(view, aspectRatio, movieDurationMs, canMeasure);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        };
+        qualitySpinner.setOnItemSelectedListener(estimateListener);
+
+        // The export time is measured only when the user asks for it
+        view.findViewById(R.id.export_option_measure).setOnClickListener(
+                new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                listener.onMeasureExportTime();
+                updateEstimate(view, aspectRatio, movieDurationMs, canMeasure);
+            }
+        });
+        updateEstimate(view, aspectRatio, movieDurationMs, canMeasure);
+    }
+
+    /**
+     * Show the estimated export time of the selected options, which is the
+     * sum of the export time of each selected size. If the export throughput
+     * of one of these options was never measured the user is offered to
+     * measure it, or told that it is being measured.
+     *
+     * @param view The dialog content view
+     * @param aspectRatio The project aspect ratio
+     * @param movieDurationMs The duration of the movie
+     * @param canMeasure true if the export time can be measured
+     */
+    private static void updateEstimate(View view, int aspectRatio, long movieDurationMs,
+            boolean canMeasure) {
+        final Spinner qualitySpinner = (Spinner)view.findViewById(R.id.export_option_quality);
+        final TextView estimateView = (TextView)view.findViewById(R.id.export_option_estimate);
+        final View measureView = view.findViewById(R.id.export_option_measure);
+
+        final Context context = view.getContext();
+        final int movieBitrate = indexToMovieBitrate(qualitySpinner.getSelectedItemPosition());
+        long estimateMs = 0;
+        for (int movieHeight : getSelectedMovieHeights(view, aspectRatio)) {
+            final long sizeEstimateMs = ExportBenchmark.estimateDuration(context, movieHeight,
+                    movieBitrate, movieDurationMs);
+            if (sizeEstimateMs < 0) {
+                estimateMs = -1;
+                break;
+            }
+            estimateMs += sizeEstimateMs;
+        }
+        measureView.setVisibility(View.GONE);
+        if (estimateMs >= 0) {
+            estimateView.setText(context.getString(R.string.export_dialog_estimate,
+                    StringUtils.getDurationAsString(context, estimateMs)));
+            estimateView.setVisibility(View.VISIBLE);
+        } else if (ApiService.isExportBenchmarkPending()) {
+            estimateView.setText(R.string.export_dialog_measuring);
+            estimateView.setVisibility(View.VISIBLE);
+        } else {
+            estimateView.setVisibility(View.GONE);
+            if (canMeasure && !ExportBenchmark.isCalibrated(context)) {
+                measureView.setVisibility(View.VISIBLE);
+            }
+        }
+    }
+
+    /**
+     * Get the movie heights of the selected size check boxes
+     *
+     * @param view The dialog content view
+     * @param aspectRatio The aspect ratio
+     *
+     * @return The selected movie heights
+     */
+    private static int[] getSelectedMovieHeights(View view, int aspectRatio) {
+        final ViewGroup sizesView = (ViewGroup)view.findViewById(R.id.export_option_sizes);
+        final int sizeCount = sizesView.getChildCount();
+        int selectedCount = 0;
+        for (int i = 0; i < sizeCount; i++) {
+            if (((CheckBox)sizesView.getChildAt(i)).isChecked()) {
+                selectedCount++;
+            }
+        }
+
+        final int[] movieHeights = new int[selectedCount];
+        int j = 0;
+        for (int i = 0; i < sizeCount; i++) {
+            if (((CheckBox)sizesView.getChildAt(i)).isChecked()) {
+                movieHeights[j++] = indexToMovieHeight(i, aspectRatio);
+            }
+        }
+
+        return movieHeights;
     }
 
     /**
-     * Convert the spinner selection to a movie height
+     * Convert the check box index to a movie height
      *
-     * @param sizeIndex The index of the selected spinner item
+     * @param sizeIndex The index of the selected size check box
      * @param aspectRatio The aspect ratio
      *
      * @return The movie height
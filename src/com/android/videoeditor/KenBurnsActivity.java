@@ -19,7 +19,7 @@ package com.android.videoeditor;
 import android.app.Activity;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.os.AsyncTask;
@@ -34,8 +34,12 @@ import android.widget.FrameLayout;
 import android.widget.RadioGroup;
 import android.widget.Toast;
 
+import com.android.videoeditor.util.BitmapDecoder;
+import com.android.videoeditor.util.NativeResources;
 import com.android.videoeditor.widgets.ImageViewTouchBase;
 
+import java.io.IOException;
+
 /**
  * Activity for setting the begin and end Ken Burns viewing rectangles
  */
@@ -143,6 +147,7 @@ public class KenBurnsActivity extends Activity {
     private class ImageLoaderAsyncTask extends AsyncTask<Void, Void, Bitmap> {
         // Instance variables
         private final String mFilename;
+        private BitmapRegionDecoder mDecoder;
 
         /**
          * Constructor
@@ -160,25 +165,30 @@ public class KenBurnsActivity extends Activity {
                 return null;
             }
 
-            // Wait for the layout to complete
-            while (mImageView.getWidth() <= 0) {
-                try {
-                    Thread.sleep(30);
-                } catch (InterruptedException ex) {
-                }
+            // The zoomed image is displayed from tiles decoded at the
+            // resolution of the zoom
+            try {
+                mDecoder = BitmapRegionDecoder.newInstance(mFilename, false);
+            } catch (IOException ex) {
+                Log.w(TAG, "Cannot decode the image tiles: " + mFilename, ex);
             }
 
+            // The image is decoded while the layout completes
             if (mBitmap != null) {
                 return mBitmap;
             } else {
-                final BitmapFactory.Options options = new BitmapFactory.Options();
-                options.inSampleSize = mImageSubsample;
-                return BitmapFactory.decodeFile(mFilename, options);
+                return BitmapDecoder.decodeFile(mFilename, mImageSubsample, null);
             }
         }
 
         @Override
         protected void onPostExecute(Bitmap bitmap) {
+            if (bitmap == null || mPaused) {
+                if (mDecoder != null) {
+                    mDecoder.recycle();
+                }
+            }
+
             if (bitmap == null) {
                 if (!mPaused) {
                     finish();
@@ -187,16 +197,30 @@ public class KenBurnsActivity extends Activity {
             }
 
             if (!mPaused) {
-                showProgress(false);
-                mRadioGroup.setEnabled(true);
-                mImageView.setImageBitmapResetBase(bitmap, true);
+                mImageView.setImageTiles(mDecoder);
                 mBitmap = bitmap;
+                NativeResources.register(bitmap, TAG);
                 if (Log.isLoggable(TAG, Log.DEBUG)) {
                     Log.d(TAG, "Bitmap size: " + bitmap.getWidth() + "x" + bitmap.getHeight()
                             + ", bytes: " + (bitmap.getRowBytes() * bitmap.getHeight()));
                 }
 
-                showBitmapRectangle();
+                if (mImageView.getWidth() > 0) {
+                    showBitmap(bitmap);
+                } else {
+                    // The rectangle is shown once the image view is laid out
+                    mImageView.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+                        @Override
+                        public void onLayoutChange(View v, int left, int top, int right,
+                                int bottom, int oldLeft, int oldTop, int oldRight,
+                                int oldBottom) {
+                            mImageView.removeOnLayoutChangeListener(this);
+                            if (!mPaused) {
+                                showBitmap(mBitmap);
+                            }
+                        }
+                    });
+                }
             }
         }
     }
@@ -223,19 +247,22 @@ public class KenBurnsActivity extends Activity {
             lp.width = Math.min(mMediaItemWidth, MAX_WIDTH) / MAX_PAN;
             // Compute the height by preserving the aspect ratio
             lp.height = (lp.width * mMediaItemHeight) / mMediaItemWidth;
-            mImageSubsample = mMediaItemWidth / (lp.width * MAX_PAN);
         } else {
             lp.height = Math.min(mMediaItemHeight, MAX_HEIGHT) / MAX_PAN;
             // Compute the width by preserving the aspect ratio
             lp.width = (lp.height * mMediaItemWidth) / mMediaItemHeight;
-            mImageSubsample = mMediaItemHeight / (lp.height * MAX_PAN);
         }
 
+        // Decode the image at the smallest power of two sub-sample which can
+        // be panned at MAX_PAN without upscaling
+        mImageSubsample = BitmapDecoder.computeSampleSize(mMediaItemWidth, mMediaItemHeight,
+                lp.width * MAX_PAN, lp.height * MAX_PAN);
+
         // Ensure that the size of the bitmap will not exceed the size supported
         // by HW vendors
         while ((mMediaItemWidth / mImageSubsample > MAX_HW_BITMAP_WIDTH) ||
                 (mMediaItemHeight / mImageSubsample > MAX_HW_BITMAP_HEIGHT)) {
-            mImageSubsample++;
+            mImageSubsample *= 2;
         }
 
         if (Log.isLoggable(TAG, Log.DEBUG)) {
@@ -347,6 +374,8 @@ public class KenBurnsActivity extends Activity {
         super.onPause();
 
         mPaused = true;
+        // Release the tiles until the activity is resumed
+        mImageView.setImageTiles(null);
     }
 
     @Override
@@ -354,11 +383,11 @@ public class KenBurnsActivity extends Activity {
         super.onDestroy();
         if (!isChangingConfigurations()) {
             if (mBitmap != null) {
-                mBitmap.recycle();
+                NativeResources.recycle(mBitmap);
                 mBitmap = null;
             }
 
-            System.gc();
+            NativeResources.checkReleased(TAG);
         }
     }
 
@@ -409,6 +438,18 @@ public class KenBurnsActivity extends Activity {
         }
     }
 
+    /**
+     * Show the loaded bitmap. The image view must be laid out.
+     *
+     * @param bitmap The bitmap
+     */
+    private void showBitmap(Bitmap bitmap) {
+        showProgress(false);
+        mRadioGroup.setEnabled(true);
+        mImageView.setImageBitmapResetBase(bitmap, true);
+        showBitmapRectangle();
+    }
+
     /**
      * Enable the "Done" button if both rectangles are set
      */
@@ -23,9 +23,6 @@ import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Paint.Style;
-import android.graphics.Typeface;
-import android.media.videoeditor.VideoEditor;
 import android.os.AsyncTask;
 import android.text.format.DateUtils;
 import android.text.TextPaint;
@@ -41,13 +38,22 @@ import android.widget.TextView;
 
 import com.android.videoeditor.service.VideoEditorProject;
 import com.android.videoeditor.util.ImageUtils;
+import com.android.videoeditor.util.MemoryBudget;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 
 public class ProjectPickerAdapter extends BaseAdapter {
+    // The number of threads which load the thumbnails
+    private static final int LOADER_THREADS = 2;
+
+    // The thumbnails are loaded concurrently, at most LOADER_THREADS at a time
+    private static final Executor sThumbnailExecutor =
+            Executors.newFixedThreadPool(LOADER_THREADS);
+
     private Context mContext;
     private Resources mResources;
     private LayoutInflater mInflater;
@@ -58,6 +64,16 @@ public class ProjectPickerAdapter extends BaseAdapter {
     private int mOverlayVerticalInset;
     private int mOverlayHorizontalInset;
     private LruCache<String, Bitmap> mPreviewBitmapCache;
+    private Bitmap mNewProjectThumbnail;
+    private Bitmap.Config mThumbnailConfig;
+
+    /**
+     * The views of a project item
+     */
+    static class ViewHolder {
+        ImageView mThumbnailView;
+        LoadPreviewBitmapTask mTask;
+    }
 
     public ProjectPickerAdapter(Context context, LayoutInflater inflater,
             List<VideoEditorProject> projects) {
@@ -73,8 +89,15 @@ public class ProjectPickerAdapter extends BaseAdapter {
                 R.dimen.project_picker_item_overlay_vertical_inset);
         mOverlayHorizontalInset = (int) mResources.getDimension(
                 R.dimen.project_picker_item_overlay_horizontal_inset);
-        // Limit the cache size to 15 thumbnails.
-        mPreviewBitmapCache = new LruCache<String, Bitmap>(15);
+        mThumbnailConfig = ImageUtils.getThumbnailConfig(context);
+        mPreviewBitmapCache = new LruCache<String, Bitmap>(MemoryBudget.getCacheSize(context,
+                MemoryBudget.CACHE_PROJECT_PREVIEWS)) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        MemoryBudget.register(MemoryBudget.CACHE_PROJECT_PREVIEWS, mPreviewBitmapCache);
     }
 
     /**
@@ -129,32 +152,52 @@ public class ProjectPickerAdapter extends BaseAdapter {
 
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
-        // Inflate a new view with project thumbnail and information.
-        // We never reuse convertView because we load thumbnails asynchronously
-        // and hook an async task with the new view. If the new view is reused
-        // as a convertView, the async task might put a wrong thumbnail on it.
-        View v = mInflater.inflate(R.layout.project_picker_item, null);
-        ImageView iv = (ImageView) v.findViewById(R.id.thumbnail);
-        Bitmap thumbnail;
-        String title;
-        String duration;
+        // Inflate a new view with project thumbnail and information or reuse
+        // the recycled view. The thumbnail load of the recycled view is
+        // cancelled and the view is detached from it.
+        final View v;
+        final ViewHolder holder;
+        if (convertView == null) {
+            v = mInflater.inflate(R.layout.project_picker_item, null);
+            holder = new ViewHolder();
+            holder.mThumbnailView = (ImageView) v.findViewById(R.id.thumbnail);
+            v.setTag(holder);
+        } else {
+            v = convertView;
+            holder = (ViewHolder) v.getTag();
+        }
+
+        if (holder.mTask != null) {
+            holder.mTask.cancel(false);
+            holder.mTask = null;
+        }
+
         if (position == mProjects.size()) {
-            title = mContext.getString(R.string.projects_new_project);
-            duration = "";
-            thumbnail = renderNewProjectThumbnail();
+            if (mNewProjectThumbnail == null) {
+                mNewProjectThumbnail = renderNewProjectThumbnail();
+                drawBottomOverlay(mNewProjectThumbnail,
+                        mContext.getString(R.string.projects_new_project), "");
+            }
+            holder.mThumbnailView.setImageBitmap(mNewProjectThumbnail);
         } else {
             VideoEditorProject project = mProjects.get(position);
-            title = project.getName();
+            String title = project.getName();
             if (title == null) {
                 title = "";
             }
-            duration = millisecondsToTimeString(project.getProjectDuration());
-            thumbnail = getThumbnail(project.getPath(), iv, title, duration);
-        }
-
-        if (thumbnail != null) {
-            drawBottomOverlay(thumbnail, title, duration);
-            iv.setImageBitmap(thumbnail);
+            final String duration = millisecondsToTimeString(project.getProjectDuration());
+            final String key = getCacheKey(project.getPath(), title, duration);
+            final Bitmap thumbnail = mPreviewBitmapCache.get(key);
+            if (thumbnail != null) {
+                holder.mThumbnailView.setImageBitmap(thumbnail);
+            } else {
+                // Cache miss: asynchronously load bitmap to avoid scroll stuttering
+                // in the project picker.
+                holder.mThumbnailView.setImageDrawable(null);
+                holder.mTask = new LoadPreviewBitmapTask(this, holder, project.getPath(),
+                        mItemWidth, mItemHeight, title, duration, key, mPreviewBitmapCache);
+                holder.mTask.executeOnExecutor(sThumbnailExecutor);
+            }
         }
 
         return v;
@@ -192,26 +235,25 @@ public class ProjectPickerAdapter extends BaseAdapter {
                 paint);
     }
 
-    private Bitmap getThumbnail(String projectPath, ImageView imageView, String title,
-            String duration) {
-        Bitmap previewBitmap = mPreviewBitmapCache.get(projectPath);
-        if (previewBitmap == null) {
-            // Cache miss: asynchronously load bitmap to avoid scroll stuttering
-            // in the project picker.
-            new LoadPreviewBitmapTask(this, projectPath, imageView, mItemWidth, mItemHeight,
-                    title, duration, mPreviewBitmapCache).execute();
-        } else {
-            return previewBitmap;
-        }
+    /**
+     * The cached thumbnails include the bottom overlay so the key includes
+     * the title and the duration.
+     */
+    private static String getCacheKey(String projectPath, String title, String duration) {
+        return projectPath + '\n' + title + '\n' + duration;
+    }
 
-        return null;
+    /**
+     * @return The bitmap configuration of the project thumbnails
+     */
+    Bitmap.Config getThumbnailConfig() {
+        return mThumbnailConfig;
     }
 
     private Bitmap renderNewProjectThumbnail() {
-        final Bitmap bitmap = Bitmap.createBitmap(mItemWidth, mItemHeight,
-                Bitmap.Config.ARGB_8888);
+        final Bitmap bitmap = Bitmap.createBitmap(mItemWidth, mItemHeight, mThumbnailConfig);
         final Canvas canvas = new Canvas(bitmap);
-        final Paint paint = new Paint();
+        final Paint paint = new Paint(Paint.DITHER_FLAG);
         canvas.drawRect(0, 0, mItemWidth, mItemHeight, paint);
 
         paint.setTextSize(18.0f);
@@ -240,53 +282,44 @@ public class ProjectPickerAdapter extends BaseAdapter {
 class LoadPreviewBitmapTask extends AsyncTask<Void, Void, Bitmap> {
     // Handle to the adapter that initiates this async task.
     private ProjectPickerAdapter mContextAdapter;
+    // The views which display the preview bitmap unless they are recycled.
+    private ProjectPickerAdapter.ViewHolder mViewHolder;
     private String mProjectPath;
-    // Handle to the image view we should update when the preview bitmap is loaded.
-    private ImageView mImageView;
     private int mWidth;
     private int mHeight;
     private String mTitle;
     private String mDuration;
+    private String mCacheKey;
     private LruCache<String, Bitmap> mPreviewBitmapCache;
 
-    public LoadPreviewBitmapTask(ProjectPickerAdapter contextAdapter, String projectPath,
-            ImageView imageView, int width, int height, String title, String duration,
+    public LoadPreviewBitmapTask(ProjectPickerAdapter contextAdapter,
+            ProjectPickerAdapter.ViewHolder viewHolder, String projectPath, int width,
+            int height, String title, String duration, String cacheKey,
             LruCache<String, Bitmap> previewBitmapCache) {
         mContextAdapter = contextAdapter;
+        mViewHolder = viewHolder;
         mProjectPath = projectPath;
-        mImageView = imageView;
         mWidth = width;
         mHeight = height;
         mTitle = title;
         mDuration = duration;
+        mCacheKey = cacheKey;
         mPreviewBitmapCache = previewBitmapCache;
     }
 
     @Override
     protected Bitmap doInBackground(Void... param) {
-        final File thumbnail = new File(mProjectPath, VideoEditor.THUMBNAIL_FILENAME);
-        // Return early if thumbnail does not exist.
-        if (!thumbnail.exists()) {
+        // The view was recycled before the load started
+        if (isCancelled()) {
             return null;
         }
 
         try {
-            final Bitmap previewBitmap = ImageUtils.scaleImage(
-                    thumbnail.getAbsolutePath(),
-                    mWidth,
-                    mHeight,
-                    ImageUtils.MATCH_LARGER_DIMENSION);
-            if (previewBitmap != null) {
-                final Bitmap bitmap = Bitmap.createBitmap(mWidth, mHeight,
-                        Bitmap.Config.ARGB_8888);
-                final Canvas canvas = new Canvas(bitmap);
-                final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
-
-                // Draw bitmap at the center of the canvas.
-                canvas.drawBitmap(previewBitmap,
-                        (mWidth - previewBitmap.getWidth()) / 2,
-                        (mHeight - previewBitmap.getHeight()) / 2,
-                        paint);
+            final Bitmap bitmap = ImageUtils.getPickerThumbnail(mProjectPath, mWidth, mHeight,
+                    mContextAdapter.getThumbnailConfig());
+            if (bitmap != null) {
+                mContextAdapter.drawBottomOverlay(bitmap, mTitle, mDuration);
+                mPreviewBitmapCache.put(mCacheKey, bitmap);
                 return bitmap;
             }
         } catch (IOException e) {
@@ -298,16 +331,19 @@ class LoadPreviewBitmapTask extends AsyncTask<Void, Void, Bitmap> {
 
     @Override
     protected void onPostExecute(Bitmap result) {
+        if (mViewHolder.mTask != this) {
+            return;
+        }
+        mViewHolder.mTask = null;
+
         if (result == null) {
             // If we don't have thumbnail, default to a black canvas.
-            result = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            result = Bitmap.createBitmap(mWidth, mHeight, mContextAdapter.getThumbnailConfig());
             result.eraseColor(Color.BLACK);
-        } else {
-            mPreviewBitmapCache.put(mProjectPath, result);
+            mContextAdapter.drawBottomOverlay(result, mTitle, mDuration);
         }
 
         // Update the image view.
-        mContextAdapter.drawBottomOverlay(result, mTitle, mDuration);
-        mImageView.setImageBitmap(result);
+        mViewHolder.mThumbnailView.setImageBitmap(result);
     }
 }
@@ -21,6 +21,7 @@ import java.util.Date;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.text.SimpleDateFormat;
 
 import android.app.ActionBar;
@@ -35,6 +36,7 @@ import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.graphics.Rect;
 import android.graphics.Bitmap.Config;
+import android.graphics.drawable.BitmapDrawable;
 import android.media.videoeditor.MediaItem;
 import android.media.videoeditor.MediaProperties;
 import android.media.videoeditor.VideoEditor;
@@ -42,12 +44,15 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.PowerManager;
+import android.os.Process;
 import android.provider.MediaStore;
 import android.text.InputType;
 import android.util.DisplayMetrics;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.Display;
 import android.view.GestureDetector;
 import android.view.Menu;
@@ -70,6 +75,7 @@ import com.android.videoeditor.service.MovieMediaItem;
 import com.android.videoeditor.service.VideoEditorProject;
 import com.android.videoeditor.util.FileUtils;
 import com.android.videoeditor.util.MediaItemUtils;
+import com.android.videoeditor.util.NativeResources;
 import com.android.videoeditor.util.StringUtils;
 import com.android.videoeditor.widgets.AudioTrackLinearLayout;
 import com.android.videoeditor.widgets.MediaLinearLayout;
@@ -175,6 +181,10 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
     private int mActivityWidth;
     private String mInsertMediaItemAfterMediaItemId;
     private long mCurrentPlayheadPosMs;
+    // The movie duration cached for the duration of the preview playback
+    private long mPlaybackDurationMs = -1;
+    private final char[] mTimestampChars = new char[StringUtils.TIMESTAMP_LENGTH];
+    private long mTimestampCharsMs = -1;
     private ProgressDialog mExportProgressDialog;
     private ZoomControl mZoomControl;
     private PowerManager.WakeLock mCpuWakeLock;
@@ -835,16 +845,34 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
                 return ExportOptionsDialog.create(this,
                         new ExportOptionsDialog.ExportOptionsListener() {
                     @Override
-                    public void onExportOptions(int movieHeight, int movieBitrate) {
-                        mPendingExportFilename = FileUtils.createMovieName(
-                                MediaProperties.FILE_MP4);
+                    public void onExportOptions(int[] movieHeights, int movieBitrate) {
+                        // Export one movie per selected size
+                        final String[] filenames = new String[movieHeights.length];
+                        final int[] bitrates = new int[movieHeights.length];
+                        mPendingExportFilenames.clear();
+                        for (int i = 0; i < movieHeights.length; i++) {
+                            String filename;
+                            do {
+                                filename = FileUtils.createMovieName(MediaProperties.FILE_MP4);
+                            } while (mPendingExportFilenames.contains(filename));
+                            mPendingExportFilenames.add(filename);
+                            filenames[i] = filename;
+                            bitrates[i] = movieBitrate;
+                        }
+                        mExportRenditionCount = movieHeights.length;
+
                         ApiService.exportVideoEditor(VideoEditorActivity.this, mProjectPath,
-                                mPendingExportFilename, movieHeight, movieBitrate);
+                                filenames, movieHeights, bitrates);
 
                         removeDialog(DIALOG_EXPORT_OPTIONS_ID);
 
                         showExportProgress();
                     }
+
+                    @Override
+                    public void onMeasureExportTime() {
+                        ApiService.benchmarkExport(VideoEditorActivity.this, mProjectPath);
+                    }
                 }, new DialogInterface.OnClickListener() {
                     @Override
                     public void onClick(DialogInterface dialog, int which) {
@@ -855,7 +883,8 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
                     public void onCancel(DialogInterface dialog) {
                         removeDialog(DIALOG_EXPORT_OPTIONS_ID);
                     }
-                }, mProject.getAspectRatio());
+                }, mProject.getAspectRatio(), mProject.computeDuration(),
+                        mProject.getMediaItemCount() > 0);
             }
 
             case DIALOG_REMOVE_MEDIA_ITEM_ID: {
@@ -1259,7 +1288,8 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
         }
 
         // Regenerate the preview frame
-        if (mProject != null && !mPreviewThread.isPlaying() && mPendingExportFilename == null) {
+        if (mProject != null && !mPreviewThread.isPlaying()
+                && mPendingExportFilenames.isEmpty()) {
             // Display the preview frame
             mPreviewThread.previewFrame(mProject, mProject.getPlayheadPos(),
                     mProject.getMediaItemCount() == 0);
@@ -1373,13 +1403,17 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
         // to overscrolling the timeline
         if (timeMs < 0) {
             return false;
-        } else if (timeMs > mProject.computeDuration()) {
+        } else if (timeMs > (mPlaybackDurationMs >= 0 ? mPlaybackDurationMs
+                : mProject.computeDuration())) {
             return false;
         }
 
         mCurrentPlayheadPosMs = timeMs;
 
-        mTimeView.setText(StringUtils.getTimestampAsString(this, timeMs));
+        // Update the time view without allocating a new string
+        StringUtils.getTimestampAsChars(timeMs, mTimestampCharsMs, mTimestampChars);
+        mTimestampCharsMs = timeMs;
+        mTimeView.setText(mTimestampChars, 0, mTimestampChars.length);
         mProject.setPlayheadPos(timeMs);
         return true;
     }
@@ -1583,14 +1617,21 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
 
         enterReadyState();
 
-        if (mPendingExportFilename != null) {
-            if (ApiService.isVideoEditorExportPending(mProjectPath, mPendingExportFilename)) {
+        if (!mPendingExportFilenames.isEmpty()) {
+            // Forget the renditions which completed while the Activity was paused
+            for (int i = mPendingExportFilenames.size() - 1; i >= 0; i--) {
+                if (!ApiService.isVideoEditorExportPending(mProjectPath,
+                        mPendingExportFilenames.get(i))) {
+                    mPendingExportFilenames.remove(i);
+                }
+            }
+
+            if (!mPendingExportFilenames.isEmpty()) {
                 // The export is still pending
                 // Display the export project dialog
                 showExportProgress();
             } else {
-                // The export completed while the Activity was paused
-                mPendingExportFilename = null;
+                mExportRenditionCount = 0;
             }
         }
 
@@ -1662,9 +1703,13 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
     }
 
     private void cancelExport() {
-        ApiService.cancelExportVideoEditor(VideoEditorActivity.this, mProjectPath,
-                mPendingExportFilename);
-        mPendingExportFilename = null;
+        // Cancel all the renditions which did not complete
+        for (String filename : mPendingExportFilenames) {
+            ApiService.cancelExportVideoEditor(VideoEditorActivity.this, mProjectPath,
+                    filename);
+        }
+        mPendingExportFilenames.clear();
+        mExportRenditionCount = 0;
         mExportProgressDialog = null;
     }
 
@@ -1688,12 +1733,29 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
         private final int OVERLAY_DATA_COUNT = 16;
 
         private final Handler mMainHandler;
+        private final Choreographer mChoreographer;
         private final Queue<Runnable> mQueue;
         private final SurfaceHolder mSurfaceHolder;
         private final Queue<VideoEditor.OverlayData> mOverlayDataQueue;
+        private final OverlayRenderer mOverlayRenderer;
         private Handler mThreadHandler;
         private int mPreviewState;
-        private Bitmap mOverlayBitmap;
+        // The most recent playback position. The playhead is moved at most
+        // once per display frame.
+        private volatile long mPendingPlayheadPosMs;
+        private final AtomicBoolean mPlayheadUpdateScheduled = new AtomicBoolean();
+
+        private final Choreographer.FrameCallback mPlayheadFrameCallback =
+                new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                mPlayheadUpdateScheduled.set(false);
+                if (mPreviewState == PREVIEW_STATE_STARTED ||
+                        mPreviewState == PREVIEW_STATE_STOPPING) {
+                    movePlayhead(mPendingPlayheadPosMs);
+                }
+            }
+        };
 
         private final Runnable mProcessQueueRunnable = new Runnable() {
             @Override
@@ -1713,6 +1775,7 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
          */
         public PreviewThread(SurfaceHolder surfaceHolder) {
             mMainHandler = new Handler(Looper.getMainLooper());
+            mChoreographer = Choreographer.getInstance();
             mQueue = new LinkedBlockingQueue<Runnable>();
             mSurfaceHolder = surfaceHolder;
             mPreviewState = PREVIEW_STATE_STOPPED;
@@ -1722,6 +1785,8 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
                 mOverlayDataQueue.add(new VideoEditor.OverlayData());
             }
 
+            mOverlayRenderer = new OverlayRenderer();
+
             start();
         }
 
@@ -1753,15 +1818,7 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
                             Log.w(TAG, "Surface cannot be cleared");
                         }
 
-                        mMainHandler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                if (mOverlayBitmap != null) {
-                                    mOverlayBitmap.eraseColor(Color.TRANSPARENT);
-                                    mOverlayView.invalidate();
-                                }
-                            }
-                        });
+                        mOverlayRenderer.clear();
                     } else {
                         final VideoEditor.OverlayData overlayData;
                         try {
@@ -1780,22 +1837,7 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
                                 mOverlayDataQueue.add(overlayData);
                             } else {
                                 if (overlayData.needsRendering()) {
-                                    mMainHandler.post(new Runnable() {
-                                        /*
-                                         * {@inheritDoc}
-                                         */
-                                        @Override
-                                        public void run() {
-                                            if (mOverlayBitmap != null) {
-                                                overlayData.renderOverlay(mOverlayBitmap);
-                                                mOverlayView.invalidate();
-                                            } else {
-                                                overlayData.release();
-                                            }
-
-                                            mOverlayDataQueue.add(overlayData);
-                                        }
-                                    });
+                                    mOverlayRenderer.render(overlayData, mOverlayDataQueue);
                                 } else {
                                     mOverlayDataQueue.add(overlayData);
                                 }
@@ -1881,24 +1923,17 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
                             @Override
                             public void onProgress(VideoEditor videoEditor, final long timeMs,
                                     final VideoEditor.OverlayData overlayData) {
-                                mMainHandler.post(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        if (overlayData != null && overlayData.needsRendering()) {
-                                            if (mOverlayBitmap != null) {
-                                                overlayData.renderOverlay(mOverlayBitmap);
-                                                mOverlayView.invalidate();
-                                            } else {
-                                                overlayData.release();
-                                            }
-                                        }
+                                // Render the overlay on the overlay thread. The
+                                // UI thread only swaps the overlay buffers.
+                                if (overlayData != null && overlayData.needsRendering()) {
+                                    mOverlayRenderer.render(overlayData, null);
+                                }
 
-                                        if (mPreviewState == PREVIEW_STATE_STARTED ||
-                                                mPreviewState == PREVIEW_STATE_STOPPING) {
-                                            movePlayhead(timeMs);
-                                        }
-                                    }
-                                });
+                                // Collapse the playhead updates to one per frame
+                                mPendingPlayheadPosMs = timeMs;
+                                if (mPlayheadUpdateScheduled.compareAndSet(false, true)) {
+                                    mChoreographer.postFrameCallback(mPlayheadFrameCallback);
+                                }
                             }
 
                             @Override
@@ -1970,12 +2005,17 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
             mPreviewPlayButton.setImageResource(R.drawable.btn_playback_ic_pause);
 
             mTimelineScroller.enableUserScrolling(false);
+            // The timeline scroll lasts as long as the playback
+            mTimelineScroller.setAppScrollInProgress(true);
             mMediaLayout.setPlaybackInProgress(true);
             mOverlayLayout.setPlaybackInProgress(true);
             mAudioTrackLayout.setPlaybackInProgress(true);
 
             mPreviewState = PREVIEW_STATE_STARTING;
 
+            // The duration cannot change during the playback
+            mPlaybackDurationMs = project.computeDuration();
+
             // Keep the screen on during the preview.
             VideoEditorActivity.this.getWindow().addFlags(
                     WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
@@ -2042,22 +2082,7 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
          * @param height The new surface height
          */
         private void onSurfaceChanged(int width, int height) {
-            if (mOverlayBitmap != null) {
-                if (mOverlayBitmap.getWidth() == width && mOverlayBitmap.getHeight() == height) {
-                    // The size has not changed
-                    return;
-                }
-
-                mOverlayView.setImageBitmap(null);
-                mOverlayBitmap.recycle();
-                mOverlayBitmap = null;
-            }
-
-            // Create the overlay bitmap
-            logd("Overlay size: " + width + " x " + height);
-
-            mOverlayBitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
-            mOverlayView.setImageBitmap(mOverlayBitmap);
+            mOverlayRenderer.setSize(width, height);
         }
 
         /**
@@ -2066,6 +2091,9 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
          * @param error true if the preview stopped due to an error
          */
         private void previewStopped(boolean error) {
+            cancelPlayheadUpdate();
+            mPlaybackDurationMs = -1;
+
             if (mProject == null) {
                 Log.w(TAG, "previewStopped: project was deleted.");
                 return;
@@ -2091,6 +2119,7 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
 
             // The playback has stopped
             mTimelineScroller.enableUserScrolling(true);
+            mTimelineScroller.setAppScrollInProgress(false);
             mMediaLayout.setPlaybackInProgress(false);
             mAudioTrackLayout.setPlaybackInProgress(false);
             mOverlayLayout.setPlaybackInProgress(false);
@@ -2100,6 +2129,14 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
                     WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
         }
 
+        /**
+         * Cancel the pending playhead update if any
+         */
+        private void cancelPlayheadUpdate() {
+            mChoreographer.removeFrameCallback(mPlayheadFrameCallback);
+            mPlayheadUpdateScheduled.set(false);
+        }
+
         /**
          * @return true if preview playback is in progress
          */
@@ -2132,12 +2169,9 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
          * Quits the thread
          */
         public void quit() {
-            // Release the overlay bitmap
-            if (mOverlayBitmap != null) {
-                mOverlayView.setImageBitmap(null);
-                mOverlayBitmap.recycle();
-                mOverlayBitmap = null;
-            }
+            // Release the overlay bitmaps
+            mOverlayRenderer.quit();
+            cancelPlayheadUpdate();
 
             if (mThreadHandler != null) {
                 mThreadHandler.getLooper().quit();
@@ -2152,6 +2186,231 @@ public class VideoEditorActivity extends VideoEditorBaseActivity
         }
     }
 
+    /**
+     * Renders the preview overlays on a background thread. The overlays are
+     * rendered into the back buffer and the UI thread only swaps the buffers
+     * and invalidates the overlay view. Overlays which arrive while a buffer
+     * swap is pending replace each other so only the most recent one is rendered.
+     */
+    private class OverlayRenderer {
+        // The owner of the overlay bitmaps
+        private static final String RESOURCE_OWNER = "OverlayRenderer";
+
+        private final Handler mMainHandler;
+        private final Handler mRenderHandler;
+        // Protects the pending overlay state and the front buffer index
+        private final Object mLock = new Object();
+        // Protects the lifetime and the content of the overlay bitmaps
+        private final Object mBufferLock = new Object();
+        private final BitmapDrawable[] mBuffers = new BitmapDrawable[2];
+        private int mFrontBuffer;
+        private VideoEditor.OverlayData mPendingOverlayData;
+        private Queue<VideoEditor.OverlayData> mPendingRecycleQueue;
+        private boolean mPendingClear;
+        // true while a render or a buffer swap is in progress
+        private boolean mBusy;
+
+        private final Runnable mRenderRunnable = new Runnable() {
+            @Override
+            public void run() {
+                final VideoEditor.OverlayData overlayData;
+                final Queue<VideoEditor.OverlayData> recycleQueue;
+                final boolean clear;
+                final int backBuffer;
+                synchronized (mLock) {
+                    overlayData = mPendingOverlayData;
+                    recycleQueue = mPendingRecycleQueue;
+                    clear = mPendingClear;
+                    mPendingOverlayData = null;
+                    mPendingRecycleQueue = null;
+                    mPendingClear = false;
+                    if (overlayData == null && !clear) {
+                        mBusy = false;
+                        return;
+                    }
+                    backBuffer = 1 - mFrontBuffer;
+                }
+
+                boolean rendered = false;
+                synchronized (mBufferLock) {
+                    final BitmapDrawable buffer = mBuffers[backBuffer];
+                    if (buffer != null) {
+                        if (overlayData != null) {
+                            overlayData.renderOverlay(buffer.getBitmap());
+                        } else {
+                            buffer.getBitmap().eraseColor(Color.TRANSPARENT);
+                        }
+                        rendered = true;
+                    } else if (overlayData != null) {
+                        overlayData.release();
+                    }
+                }
+
+                if (recycleQueue != null) {
+                    recycleQueue.add(overlayData);
+                }
+
+                if (rendered) {
+                    mMainHandler.post(mSwapRunnable);
+                } else {
+                    scheduleNext();
+                }
+            }
+        };
+
+        private final Runnable mSwapRunnable = new Runnable() {
+            @Override
+            public void run() {
+                final BitmapDrawable front;
+                synchronized (mLock) {
+                    mFrontBuffer = 1 - mFrontBuffer;
+                    front = mBuffers[mFrontBuffer];
+                }
+
+                // The buffers may have been released while the swap was pending
+                if (front != null) {
+                    mOverlayView.setImageDrawable(front);
+                    mOverlayView.invalidate();
+                }
+
+                scheduleNext();
+            }
+        };
+
+        /**
+         * Constructor
+         */
+        public OverlayRenderer() {
+            final HandlerThread thread = new HandlerThread("OverlayRenderer",
+                    Process.THREAD_PRIORITY_DEFAULT);
+            thread.start();
+            mRenderHandler = new Handler(thread.getLooper());
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+
+        /**
+         * Render the overlay. This method may be invoked from any thread.
+         *
+         * @param overlayData The overlay data
+         * @param recycleQueue The queue to which the overlay data is returned
+         *      after it was consumed (may be null)
+         */
+        public void render(VideoEditor.OverlayData overlayData,
+                Queue<VideoEditor.OverlayData> recycleQueue) {
+            synchronized (mLock) {
+                dropPendingLocked();
+                mPendingOverlayData = overlayData;
+                mPendingRecycleQueue = recycleQueue;
+                scheduleLocked();
+            }
+        }
+
+        /**
+         * Clear the overlay. This method may be invoked from any thread.
+         */
+        public void clear() {
+            synchronized (mLock) {
+                dropPendingLocked();
+                mPendingClear = true;
+                scheduleLocked();
+            }
+        }
+
+        /**
+         * Resize the overlay buffers. This method is invoked from the UI thread.
+         *
+         * @param width The new width
+         * @param height The new height
+         */
+        public void setSize(int width, int height) {
+            synchronized (mBufferLock) {
+                final BitmapDrawable front = mBuffers[0];
+                if (front != null && front.getBitmap().getWidth() == width
+                        && front.getBitmap().getHeight() == height) {
+                    // The size has not changed
+                    return;
+                }
+
+                releaseBuffersLocked();
+
+                // Create the overlay bitmaps
+                logd("Overlay size: " + width + " x " + height);
+                for (int i = 0; i < mBuffers.length; i++) {
+                    final Bitmap bitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
+                    NativeResources.register(bitmap, RESOURCE_OWNER);
+                    mBuffers[i] = new BitmapDrawable(getResources(), bitmap);
+                }
+
+                synchronized (mLock) {
+                    mOverlayView.setImageDrawable(mBuffers[mFrontBuffer]);
+                }
+            }
+        }
+
+        /**
+         * Release the overlay buffers and stop the render thread. This method
+         * is invoked from the UI thread.
+         */
+        public void quit() {
+            synchronized (mLock) {
+                dropPendingLocked();
+            }
+
+            mMainHandler.removeCallbacks(mSwapRunnable);
+            mRenderHandler.getLooper().quit();
+
+            synchronized (mBufferLock) {
+                releaseBuffersLocked();
+            }
+
+            NativeResources.checkReleased(RESOURCE_OWNER);
+        }
+
+        /**
+         * Render the overlay which arrived while a render was in progress
+         */
+        private void scheduleNext() {
+            synchronized (mLock) {
+                mBusy = false;
+                if (mPendingOverlayData != null || mPendingClear) {
+                    scheduleLocked();
+                }
+            }
+        }
+
+        private void scheduleLocked() {
+            if (!mBusy) {
+                mBusy = true;
+                mRenderHandler.post(mRenderRunnable);
+            }
+        }
+
+        /**
+         * Drop the overlay which was not rendered yet
+         */
+        private void dropPendingLocked() {
+            if (mPendingOverlayData != null) {
+                mPendingOverlayData.release();
+                if (mPendingRecycleQueue != null) {
+                    mPendingRecycleQueue.add(mPendingOverlayData);
+                }
+                mPendingOverlayData = null;
+                mPendingRecycleQueue = null;
+            }
+            mPendingClear = false;
+        }
+
+        private void releaseBuffersLocked() {
+            mOverlayView.setImageDrawable(null);
+            for (int i = 0; i < mBuffers.length; i++) {
+                if (mBuffers[i] != null) {
+                    NativeResources.recycle(mBuffers[i].getBitmap());
+                    mBuffers[i] = null;
+                }
+            }
+        }
+    }
+
     private static void logd(String message) {
         if (Log.isLoggable(TAG, Log.DEBUG)) {
             Log.d(TAG, message);
@@ -16,6 +16,7 @@
 
 package com.android.videoeditor;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import android.app.Activity;
@@ -55,7 +56,8 @@ public abstract class VideoEditorBaseActivity extends Activity {
 
     // State keys
     private static final String STATE_PROJECT_PATH = "path";
-    private static final String STATE_EXPORT_FILENAME = "export_filename";
+    private static final String STATE_EXPORT_FILENAMES = "export_filenames";
+    private static final String STATE_EXPORT_RENDITION_COUNT = "export_rendition_count";
 
     // Dialog parameters
     protected static final String PARAM_PROJECT_PATH = "path";
@@ -64,7 +66,10 @@ public abstract class VideoEditorBaseActivity extends Activity {
     private final ServiceListener mServiceListener = new ServiceListener();
     protected String mProjectPath;
     protected VideoEditorProject mProject;
-    protected String mPendingExportFilename;
+    // The renditions of the pending export which did not complete
+    protected final ArrayList<String> mPendingExportFilenames = new ArrayList<String>();
+    // The number of renditions of the pending export
+    protected int mExportRenditionCount;
     private boolean mProjectEditState;
 
     /**
@@ -224,12 +229,13 @@ public abstract class VideoEditorBaseActivity extends Activity {
                 return;
             }
 
-            if (!filename.equals(mPendingExportFilename)) {
+            if (!mPendingExportFilenames.contains(filename)) {
                 return;
             }
 
-            // Update the export progress
-            onExportProgress(progress);
+            // Update the export progress of all the renditions
+            final int completedCount = mExportRenditionCount - mPendingExportFilenames.size();
+            onExportProgress((completedCount * 100 + progress) / mExportRenditionCount);
         }
 
         @Override
@@ -244,13 +250,14 @@ public abstract class VideoEditorBaseActivity extends Activity {
                 return;
             }
 
-            if (!filename.equals(mPendingExportFilename)) {
+            if (!mPendingExportFilenames.remove(filename)) {
                 return;
             }
 
-            onExportComplete();
-
-            mPendingExportFilename = null;
+            if (mPendingExportFilenames.isEmpty()) {
+                onExportComplete();
+                mExportRenditionCount = 0;
+            }
 
             if (exception != null) {
                 Toast.makeText(VideoEditorBaseActivity.this, R.string.editor_export_error,
@@ -800,7 +807,12 @@ public abstract class VideoEditorBaseActivity extends Activity {
 
         if (savedInstanceState != null) {
             mProjectPath = savedInstanceState.getString(STATE_PROJECT_PATH);
-            mPendingExportFilename = savedInstanceState.getString(STATE_EXPORT_FILENAME);
+            final ArrayList<String> exportFilenames =
+                    savedInstanceState.getStringArrayList(STATE_EXPORT_FILENAMES);
+            if (exportFilenames != null) {
+                mPendingExportFilenames.addAll(exportFilenames);
+            }
+            mExportRenditionCount = savedInstanceState.getInt(STATE_EXPORT_RENDITION_COUNT);
         } else {
             final Intent intent = getIntent();
             mProjectPath = intent.getStringExtra(ProjectsActivity.PARAM_OPEN_PROJECT_PATH);
@@ -878,7 +890,8 @@ public abstract class VideoEditorBaseActivity extends Activity {
         super.onSaveInstanceState(outState);
 
         outState.putString(STATE_PROJECT_PATH, mProjectPath);
-        outState.putString(STATE_EXPORT_FILENAME, mPendingExportFilename);
+        outState.putStringArrayList(STATE_EXPORT_FILENAMES, mPendingExportFilenames);
+        outState.putInt(STATE_EXPORT_RENDITION_COUNT, mExportRenditionCount);
     }
 
     /**
@@ -959,11 +972,13 @@ public abstract class VideoEditorBaseActivity extends Activity {
 
     /**
      * The export is progressing
+     *
+     * @param progress The progress of all the renditions of the export
      */
     protected abstract void onExportProgress(int progress);
 
     /**
-     * The export has completed
+     * All the renditions of the export have completed
      */
     protected abstract void onExportComplete();
 
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.videoeditor.service;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.net.Uri;
+import android.os.Bundle;
+
+/**
+ * A request to the API service. The command carries the typed parameters of
+ * an operation and is dispatched in-process to the service worker threads.
+ * Each operation only uses the parameters it needs.
+ */
+class ApiCommand {
+    // The operation and the request id
+    public int op;
+    public long requestId;
+
+    // The storyboard parameters
+    public String projectPath;
+    public String projectName;
+    public String itemId;
+    public String relativeItemId;
+    public String theme;
+    public int aspectRatio;
+    public String[] movies;
+    public String[] photos;
+
+    // File parameters
+    public String filename;
+    public Uri uri;
+    public String mimeType;
+    public Uri movieUri;
+
+    // Time parameters
+    public long startTime;
+    public long endTime;
+    public long duration;
+    public long beginBoundary;
+    public long endBoundary;
+
+    // Media item, effect and overlay parameters
+    public int renderingMode;
+    public Rect startRect;
+    public Rect endRect;
+    public int effectType;
+    public int effectParam;
+    public Bundle attributes;
+
+    // Transition parameters
+    public int transitionBehavior;
+    public int transitionMask;
+    public int transitionBlending;
+    public boolean transitionInvert;
+    public int transitionDirection;
+
+    // Audio parameters
+    public int volume;
+    public boolean loop;
+    public boolean mute;
+    public boolean duck;
+
+    // Thumbnail and export parameters
+    public int width;
+    public int height;
+    public int bitrate;
+    public int count;
+    public int token;
+    public int[] indices;
+    public Bitmap.Config bitmapConfig;
+
+    // Status parameters
+    public ApiCommand originalCommand;
+    public String className;
+    public int action;
+    public int progress;
+    public Exception exception;
+    public boolean complete;
+    public boolean cancelled;
+
+    /**
+     * Clear all the parameters so the command can be reused
+     */
+    public void clear() {
+        op = -1;
+        requestId = 0;
+
+        projectPath = null;
+        projectName = null;
+        itemId = null;
+        relativeItemId = null;
+        theme = null;
+        aspectRatio = 0;
+        movies = null;
+        photos = null;
+
+        filename = null;
+        uri = null;
+        mimeType = null;
+        movieUri = null;
+
+        startTime = 0;
+        endTime = 0;
+        duration = 0;
+        beginBoundary = 0;
+        endBoundary = 0;
+
+        renderingMode = 0;
+        startRect = null;
+        endRect = null;
+        effectType = 0;
+        effectParam = 0;
+        attributes = null;
+
+        transitionBehavior = 0;
+        transitionMask = 0;
+        transitionBlending = 0;
+        transitionInvert = false;
+        transitionDirection = 0;
+
+        volume = 0;
+        loop = false;
+        mute = false;
+        duck = false;
+
+        width = 0;
+        height = 0;
+        bitrate = 0;
+        count = 0;
+        token = 0;
+        indices = null;
+        bitmapConfig = null;
+
+        originalCommand = null;
+        className = null;
+        action = 0;
+        progress = 0;
+        exception = null;
+        complete = false;
+        cancelled = false;
+    }
+}
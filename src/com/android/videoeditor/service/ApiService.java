@@ -24,12 +24,13 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import android.app.Service;
 import android.content.ContentValues;
@@ -65,17 +66,21 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.MediaStore;
 import android.provider.MediaStore.Audio;
 import android.provider.MediaStore.Images;
 import android.provider.MediaStore.Video;
 import android.util.Log;
+import android.util.Pair;
 
 import com.android.videoeditor.R;
 import com.android.videoeditor.util.FileUtils;
 import com.android.videoeditor.util.ImageUtils;
 import com.android.videoeditor.util.MediaItemUtils;
+import com.android.videoeditor.util.MemoryBudget;
 import com.android.videoeditor.util.StringUtils;
+import com.android.videoeditor.util.ThemeAssets;
 
 /**
  * VideoEditor service API
@@ -88,51 +93,6 @@ public class ApiService extends Service {
     public static final int ACTION_UPDATE_FRAME = MediaProcessingProgressListener.ACTION_DECODE + 100;
     public static final int ACTION_NO_FRAME_UPDATE = MediaProcessingProgressListener.ACTION_DECODE + 101;
 
-    // Parameters
-    private static final String PARAM_OP = "op";
-    private static final String PARAM_REQUEST_ID = "rid";
-    private static final String PARAM_PROJECT_PATH = "project";
-    private static final String PARAM_FILENAME = "filename";
-    private static final String PARAM_STORYBOARD_ITEM_ID = "item_id";
-    private static final String PARAM_RELATIVE_STORYBOARD_ITEM_ID = "r_item_id";
-    private static final String PARAM_PROGRESS_VALUE = "prog_value";
-    private static final String PARAM_EXCEPTION = "ex";
-    private static final String PARAM_START_TIME = "s_time";
-    private static final String PARAM_END_TIME = "e_time";
-    private static final String PARAM_DURATION = "duration";
-    private static final String PARAM_WIDTH = "width";
-    private static final String PARAM_HEIGHT = "height";
-    private static final String PARAM_BITRATE = "bitrate";
-    private static final String PARAM_MEDIA_ITEM_RENDERING_MODE = "rm";
-    private static final String PARAM_MEDIA_ITEM_START_RECT = "start_rect";
-    private static final String PARAM_MEDIA_ITEM_END_RECT = "end_rect";
-    private static final String PARAM_EFFECT_TYPE = "e_type";
-    private static final String PARAM_EFFECT_PARAM = "e_param";
-    private static final String PARAM_TRANSITION_BEHAVIOR = "behavior";
-    private static final String PARAM_TRANSITION_MASK = "t_mask";
-    private static final String PARAM_TRANSITION_BLENDING = "t_blending";
-    private static final String PARAM_TRANSITION_INVERT = "t_invert";
-    private static final String PARAM_TRANSITION_DIRECTION = "t_dir";
-    private static final String PARAM_INTENT = "req_intent";
-    private static final String PARAM_PROJECT_NAME = "name";
-    private static final String PARAM_MOVIES_FILENAMES = "movies";
-    private static final String PARAM_PHOTOS_FILENAMES = "images";
-    private static final String PARAM_ASPECT_RATIO = "aspect_ratio";
-    private static final String PARAM_BEGIN_BOUNDARY = "b_boundary";
-    private static final String PARAM_END_BOUNDARY = "e_boundary";
-    private static final String PARAM_ATTRIBUTES = "attributes";
-    private static final String PARAM_VOLUME = "volume";
-    private static final String PARAM_LOOP = "loop";
-    private static final String PARAM_MUTE = "mute";
-    private static final String PARAM_DUCK = "duck";
-    private static final String PARAM_MOVIE_URI = "uri";
-    private static final String PARAM_THEME = "theme";
-    private static final String PARAM_ACTION = "action";
-    private static final String PARAM_COUNT = "count";
-    private static final String PARAM_TOKEN = "token";
-    private static final String PARAM_INDICES = "indices";
-    private static final String PARAM_CANCELLED = "cancelled";
-
     // Operations
     private static final int OP_VIDEO_EDITOR_CREATE = 1;
     private static final int OP_VIDEO_EDITOR_LOAD = 2;
@@ -146,6 +106,8 @@ public class ApiService extends Service {
     private static final int OP_VIDEO_EDITOR_APPLY_THEME = 11;
     private static final int OP_VIDEO_EDITOR_GENERATE_PREVIEW_PROGRESS = 12;
     private static final int OP_VIDEO_EDITOR_LOAD_PROJECTS = 13;
+    private static final int OP_VIDEO_EDITOR_TRIM_CACHE = 14;
+    private static final int OP_VIDEO_EDITOR_BENCHMARK_EXPORT = 15;
 
     private static final int OP_MEDIA_ITEM_ADD_VIDEO_URI = 100;
     private static final int OP_MEDIA_ITEM_ADD_IMAGE_URI = 101;
@@ -195,27 +157,64 @@ public class ApiService extends Service {
     // The default audio track volume
     private static final int DEFAULT_AUDIO_TRACK_VOLUME = 50;
 
+    // The minimum interval between two export progress updates
+    private static final long EXPORT_PROGRESS_INTERVAL_MS = 100;
+
+    // The duration of the movie exported by the export benchmark
+    private static final long BENCHMARK_DURATION_MS = 3000;
+    // The bitrates measured by the export benchmark
+    private static final int[] BENCHMARK_BITRATES = new int[] {
+        MediaProperties.BITRATE_512K, MediaProperties.BITRATE_2M, MediaProperties.BITRATE_8M
+    };
+
+    // The file in which the export queue is persisted
+    private static final String EXPORT_QUEUE_FILENAME = "export_queue";
+
     // Static member variables
-    private static final Map<String, Intent> mPendingIntents = new HashMap<String, Intent>();
-    private static final List<ApiServiceListener> mListeners = new ArrayList<ApiServiceListener>();
-    private static final IntentPool mIntentPool = new IntentPool(8);
+    private static final RequestRegistry mPendingRequests = new RequestRegistry();
+    private static final List<ApiServiceListener> mListeners =
+            new CopyOnWriteArrayList<ApiServiceListener>();
+    private static final CommandPool mCommandPool = new CommandPool(16);
+    // Commands submitted while the service is not running. They are
+    // dispatched as soon as the service is started. Commands may be
+    // submitted from any thread so the queue also guards mServiceInstance.
+    private static final List<ApiCommand> mQueuedCommands = new ArrayList<ApiCommand>();
+    // The running service. Commands are dispatched directly to its threads.
+    // Guarded by mQueuedCommands.
+    private static ApiService mServiceInstance;
+    private static final AtomicLong mLastRequestId = new AtomicLong();
     private static VideoEditorProject mVideoProject;
-    private static VideoEditor mVideoEditor;
-    private static ServiceMediaProcessingProgressListener mGeneratePreviewListener;
-    private static volatile boolean mExportCancelled;
-
-    private IntentProcessor mVideoThread;
-    private IntentProcessor mAudioThread;
-    private IntentProcessor mThumbnailThread;
+    // The loaded video editors
+    private static EditorCache mEditorCache;
+
+    private CommandProcessor mVideoThread;
+    private CommandProcessor mAudioThread;
+    private CommandProcessor mThumbnailThread;
+    private ExportScheduler mExportScheduler;
+    // The private editor of the running export benchmark
+    private final Object mBenchmarkLock = new Object();
+    private VideoEditor mBenchmarkEditor;
     private Handler mHandler;
 
     private final Runnable mStopRunnable = new Runnable() {
         @Override
         public void run() {
-            if (mPendingIntents.size() == 0) {
-                logd("Stop runnable: Stopping service");
-                stopSelf();
+            synchronized (mQueuedCommands) {
+                // A command may have been submitted since the runnable was
+                // posted
+                if (!mPendingRequests.isEmpty()) {
+                    return;
+                }
+
+                // Commands submitted from now on will start the service again
+                if (mServiceInstance == ApiService.this) {
+                    mServiceInstance = null;
+                }
             }
+
+            logd("Stop runnable: Stopping service");
+            mCommandPool.logStats();
+            stopSelf();
         }
     };
 
@@ -238,28 +237,28 @@ public class ApiService extends Service {
 
         @Override
         public void onProgress(Object item, int action, int progress) {
-            final Intent intent = mIntentPool.get();
-            intent.putExtra(PARAM_OP, OP_VIDEO_EDITOR_GENERATE_PREVIEW_PROGRESS);
-            intent.putExtra(PARAM_PROJECT_PATH, mProjectPath);
-            intent.putExtra(PARAM_ACTION, action);
-            intent.putExtra(PARAM_PROGRESS_VALUE, progress);
+            final ApiCommand command = mCommandPool.get();
+            command.op = OP_VIDEO_EDITOR_GENERATE_PREVIEW_PROGRESS;
+            command.projectPath = mProjectPath;
+            command.action = action;
+            command.progress = progress;
 
             if (item == null) { // Last callback uses null
             } else if (item instanceof MediaItem) {
-                intent.putExtra(PARAM_STORYBOARD_ITEM_ID, ((MediaItem)item).getId());
-                intent.putExtra(PARAM_ATTRIBUTES, MediaItem.class.getCanonicalName());
+                command.itemId = ((MediaItem)item).getId();
+                command.className = MediaItem.class.getCanonicalName();
             } else if (item instanceof Transition) {
-                intent.putExtra(PARAM_STORYBOARD_ITEM_ID, ((Transition)item).getId());
-                intent.putExtra(PARAM_ATTRIBUTES, Transition.class.getCanonicalName());
+                command.itemId = ((Transition)item).getId();
+                command.className = Transition.class.getCanonicalName();
             } else if (item instanceof AudioTrack) {
-                intent.putExtra(PARAM_STORYBOARD_ITEM_ID, ((AudioTrack)item).getId());
-                intent.putExtra(PARAM_ATTRIBUTES, AudioTrack.class.getCanonicalName());
+                command.itemId = ((AudioTrack)item).getId();
+                command.className = AudioTrack.class.getCanonicalName();
             } else {
                 Log.w(TAG, "Unsupported storyboard item type: " + item.getClass());
                 return;
             }
 
-            completeRequest(intent, null, null, null, null, true);
+            completeRequest(command, null, null, null, null, true);
         }
     }
 
@@ -294,10 +293,10 @@ public class ApiService extends Service {
      * @param context The context
      */
     public static void loadProjects(Context context) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_VIDEO_EDITOR_LOAD_PROJECTS);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_VIDEO_EDITOR_LOAD_PROJECTS;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -314,15 +313,15 @@ public class ApiService extends Service {
      */
     public static void createVideoEditor(Context context, String projectPath, String projectName,
                 String[] movies, String[] photos, String themeType) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_VIDEO_EDITOR_CREATE);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_PROJECT_NAME, projectName);
-        intent.putExtra(PARAM_MOVIES_FILENAMES, movies);
-        intent.putExtra(PARAM_PHOTOS_FILENAMES, photos);
-        intent.putExtra(PARAM_THEME, themeType);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_VIDEO_EDITOR_CREATE;
+        command.projectPath = projectPath;
+        command.projectName = projectName;
+        command.movies = movies;
+        command.photos = photos;
+        command.theme = themeType;
+
+        startCommand(context, command);
     }
 
     /**
@@ -332,11 +331,11 @@ public class ApiService extends Service {
      * @param projectPath The project path
      */
     public static void loadVideoEditor(Context context, String projectPath) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_VIDEO_EDITOR_LOAD);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_VIDEO_EDITOR_LOAD;
+        command.projectPath = projectPath;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -350,14 +349,41 @@ public class ApiService extends Service {
      */
     public static void exportVideoEditor(Context context, String projectPath, String filename,
             int height, int bitrate) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_VIDEO_EDITOR_EXPORT);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_FILENAME, filename);
-        intent.putExtra(PARAM_HEIGHT, height);
-        intent.putExtra(PARAM_BITRATE, bitrate);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_VIDEO_EDITOR_EXPORT;
+        command.projectPath = projectPath;
+        command.filename = filename;
+        command.height = height;
+        command.bitrate = bitrate;
+
+        startCommand(context, command);
+    }
+
+    /**
+     * Export several renditions of the VideoEditor movie. The renditions are
+     * queued in order and exported one after another on the same loaded
+     * editor. Each rendition is reported, cancelled and restored
+     * after the process died like a single export.
+     *
+     * Note that the movie is decoded again for each rendition: the video
+     * editor owns the whole decode and encode pipeline of an export and
+     * cannot feed one decode to several encoders.
+     *
+     * @param context The context
+     * @param projectPath The project path
+     * @param filenames The export filename of each rendition
+     * @param heights The output movie height of each rendition
+     * @param bitrates The output movie bitrate of each rendition
+     */
+    public static void exportVideoEditor(Context context, String projectPath,
+            String[] filenames, int[] heights, int[] bitrates) {
+        if (filenames.length != heights.length || filenames.length != bitrates.length) {
+            throw new IllegalArgumentException("Invalid renditions");
+        }
+
+        for (int i = 0; i < filenames.length; i++) {
+            exportVideoEditor(context, projectPath, filenames[i], heights[i], bitrates[i]);
+        }
     }
 
     /**
@@ -369,12 +395,12 @@ public class ApiService extends Service {
      * @return true if the export is pending
      */
     public static boolean isVideoEditorExportPending(String projectPath, String filename) {
-        for (Intent intent : mPendingIntents.values()) {
-            final int op = intent.getIntExtra(PARAM_OP, -1);
+        for (ApiCommand command : mPendingRequests.commands()) {
+            final int op = command.op;
             if (op == OP_VIDEO_EDITOR_EXPORT) {
-                String pp = intent.getStringExtra(PARAM_PROJECT_PATH);
+                String pp = command.projectPath;
                 if (pp.equals(projectPath)) {
-                    String fn = intent.getStringExtra(PARAM_FILENAME);
+                    String fn = command.filename;
                     if (fn.equals(filename)) {
                         return true;
                     }
@@ -394,13 +420,50 @@ public class ApiService extends Service {
      */
     public static void cancelExportVideoEditor(Context context, String projectPath,
             String filename) {
-        mExportCancelled = true;
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_VIDEO_EDITOR_CANCEL_EXPORT);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_FILENAME, filename);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_VIDEO_EDITOR_CANCEL_EXPORT;
+        command.projectPath = projectPath;
+        command.filename = filename;
 
-        startCommand(context, intent);
+        startCommand(context, command);
+    }
+
+    /**
+     * Measure the export throughput of this device. A few seconds of the
+     * first video of the project are exported at each supported movie size
+     * and quality after the pending exports complete. The results are used
+     * by {@link ExportBenchmark#estimateDuration}. The benchmark is
+     * interrupted by every export requested by the user and resumes after
+     * that export. The benchmark runs only when the user asks for it.
+     *
+     * @param context The context
+     * @param projectPath The project path
+     */
+    public static void benchmarkExport(Context context, String projectPath) {
+        if (isExportBenchmarkPending()) {
+            return;
+        }
+
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_VIDEO_EDITOR_BENCHMARK_EXPORT;
+        command.projectPath = projectPath;
+
+        startCommand(context, command);
+    }
+
+    /**
+     * Check if the export benchmark is pending
+     *
+     * @return true if the export benchmark is pending
+     */
+    public static boolean isExportBenchmarkPending() {
+        for (ApiCommand command : mPendingRequests.commands()) {
+            if (command.op == OP_VIDEO_EDITOR_BENCHMARK_EXPORT) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
     /**
@@ -411,12 +474,12 @@ public class ApiService extends Service {
      * @param aspectRatio The aspect ratio
      */
     public static void setAspectRatio(Context context, String projectPath, int aspectRatio) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_VIDEO_EDITOR_SET_ASPECT_RATIO);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_ASPECT_RATIO, aspectRatio);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_VIDEO_EDITOR_SET_ASPECT_RATIO;
+        command.projectPath = projectPath;
+        command.aspectRatio = aspectRatio;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -427,12 +490,12 @@ public class ApiService extends Service {
      * @param theme The theme
      */
      public static void applyTheme(Context context, String projectPath, String theme) {
-         final Intent intent = mIntentPool.get(context, ApiService.class);
-         intent.putExtra(PARAM_OP, OP_VIDEO_EDITOR_APPLY_THEME);
-         intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-         intent.putExtra(PARAM_THEME, theme);
+         final ApiCommand command = mCommandPool.get();
+         command.op = OP_VIDEO_EDITOR_APPLY_THEME;
+         command.projectPath = projectPath;
+         command.theme = theme;
 
-         startCommand(context, intent);
+         startCommand(context, command);
      }
 
     /**
@@ -445,33 +508,35 @@ public class ApiService extends Service {
      * @return {@code true} if the video editor is modifying the timeline
      */
     public static boolean isProjectBeingEdited(String projectPath) {
-        for (Intent intent : mPendingIntents.values()) {
-            final int op = intent.getIntExtra(PARAM_OP, -1);
-            switch (op) {
-                // When these operations are pending the video editor is not busy.
-                case OP_VIDEO_EDITOR_LOAD_PROJECTS:
-                case OP_VIDEO_EDITOR_SAVE:
-                case OP_MEDIA_ITEM_SET_VOLUME:
-                case OP_MEDIA_ITEM_SET_MUTE:
-                case OP_MEDIA_ITEM_GET_THUMBNAILS:
-                case OP_MEDIA_ITEM_LOAD:
-                case OP_TRANSITION_GET_THUMBNAIL:
-                case OP_AUDIO_TRACK_SET_VOLUME:
-                case OP_AUDIO_TRACK_SET_MUTE: {
-                    break;
-                }
+        return mPendingRequests.isEditing(projectPath);
+    }
 
-                default: {
-                    final String pp = intent.getStringExtra(PARAM_PROJECT_PATH);
-                    if (pp != null && pp.equals(projectPath)) {
-                        return true;
-                    }
-                    break;
-                }
+    /**
+     * @param op The operation
+     *
+     * @return true if the operation modifies the timeline
+     */
+    private static boolean isEditingOperation(int op) {
+        switch (op) {
+            // When these operations are pending the video editor is not busy.
+            case OP_VIDEO_EDITOR_LOAD_PROJECTS:
+            case OP_VIDEO_EDITOR_TRIM_CACHE:
+            case OP_VIDEO_EDITOR_BENCHMARK_EXPORT:
+            case OP_VIDEO_EDITOR_SAVE:
+            case OP_MEDIA_ITEM_SET_VOLUME:
+            case OP_MEDIA_ITEM_SET_MUTE:
+            case OP_MEDIA_ITEM_GET_THUMBNAILS:
+            case OP_MEDIA_ITEM_LOAD:
+            case OP_TRANSITION_GET_THUMBNAIL:
+            case OP_AUDIO_TRACK_SET_VOLUME:
+            case OP_AUDIO_TRACK_SET_MUTE: {
+                return false;
             }
-        }
 
-        return false;
+            default: {
+                return true;
+            }
+        }
     }
 
     /**
@@ -481,11 +546,11 @@ public class ApiService extends Service {
      * @param projectPath The project path
      */
     public static void saveVideoEditor(Context context, String projectPath) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_VIDEO_EDITOR_SAVE);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_VIDEO_EDITOR_SAVE;
+        command.projectPath = projectPath;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -495,11 +560,11 @@ public class ApiService extends Service {
      * @param projectPath The project path
      */
     public static void releaseVideoEditor(Context context, String projectPath) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_VIDEO_EDITOR_RELEASE);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_VIDEO_EDITOR_RELEASE;
+        command.projectPath = projectPath;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -509,11 +574,11 @@ public class ApiService extends Service {
      * @param projectPath The project path
      */
     public static void deleteProject(Context context, String projectPath) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_VIDEO_EDITOR_DELETE);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_VIDEO_EDITOR_DELETE;
+        command.projectPath = projectPath;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -530,16 +595,16 @@ public class ApiService extends Service {
     public static void addMediaItemVideoUri(Context context, String projectPath,
             String mediaItemId, String afterMediaItemId, Uri uri, int renderingMode,
             String themeId) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_MEDIA_ITEM_ADD_VIDEO_URI);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, afterMediaItemId);
-        intent.putExtra(PARAM_FILENAME, uri);
-        intent.putExtra(PARAM_MEDIA_ITEM_RENDERING_MODE, renderingMode);
-        intent.putExtra(PARAM_THEME, themeId);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_MEDIA_ITEM_ADD_VIDEO_URI;
+        command.projectPath = projectPath;
+        command.itemId = mediaItemId;
+        command.relativeItemId = afterMediaItemId;
+        command.uri = uri;
+        command.renderingMode = renderingMode;
+        command.theme = themeId;
+
+        startCommand(context, command);
     }
 
     /**
@@ -557,17 +622,17 @@ public class ApiService extends Service {
     public static void addMediaItemImageUri(Context context, String projectPath,
             String mediaItemId, String afterMediaItemId, Uri uri, int renderingMode,
             long durationMs, String themeId) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_MEDIA_ITEM_ADD_IMAGE_URI);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, afterMediaItemId);
-        intent.putExtra(PARAM_FILENAME, uri);
-        intent.putExtra(PARAM_MEDIA_ITEM_RENDERING_MODE, renderingMode);
-        intent.putExtra(PARAM_DURATION, durationMs);
-        intent.putExtra(PARAM_THEME, themeId);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_MEDIA_ITEM_ADD_IMAGE_URI;
+        command.projectPath = projectPath;
+        command.itemId = mediaItemId;
+        command.relativeItemId = afterMediaItemId;
+        command.uri = uri;
+        command.renderingMode = renderingMode;
+        command.duration = durationMs;
+        command.theme = themeId;
+
+        startCommand(context, command);
     }
 
     /**
@@ -580,13 +645,13 @@ public class ApiService extends Service {
      */
     public static void loadMediaItem(Context context, String projectPath, Uri uri,
             String mimeType) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_MEDIA_ITEM_LOAD);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_FILENAME, uri);
-        intent.putExtra(PARAM_ATTRIBUTES, mimeType);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_MEDIA_ITEM_LOAD;
+        command.projectPath = projectPath;
+        command.uri = uri;
+        command.mimeType = mimeType;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -600,14 +665,14 @@ public class ApiService extends Service {
      */
     public static void moveMediaItem(Context context, String projectPath,
             String mediaItemId, String afterMediaItemId, String themeId) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_MEDIA_ITEM_MOVE);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, afterMediaItemId);
-        intent.putExtra(PARAM_THEME, themeId);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_MEDIA_ITEM_MOVE;
+        command.projectPath = projectPath;
+        command.itemId = mediaItemId;
+        command.relativeItemId = afterMediaItemId;
+        command.theme = themeId;
+
+        startCommand(context, command);
     }
 
     /**
@@ -620,13 +685,13 @@ public class ApiService extends Service {
      */
     public static void removeMediaItem(Context context, String projectPath, String mediaItemId,
             String themeId) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_MEDIA_ITEM_REMOVE);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_THEME, themeId);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_MEDIA_ITEM_REMOVE;
+        command.projectPath = projectPath;
+        command.itemId = mediaItemId;
+        command.theme = themeId;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -638,13 +703,13 @@ public class ApiService extends Service {
      */
     public static void setMediaItemRenderingMode(Context context, String projectPath,
             String mediaItemId, int renderingMode) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_MEDIA_ITEM_SET_RENDERING_MODE);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_MEDIA_ITEM_RENDERING_MODE, renderingMode);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_MEDIA_ITEM_SET_RENDERING_MODE;
+        command.projectPath = projectPath;
+        command.itemId = mediaItemId;
+        command.renderingMode = renderingMode;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -658,23 +723,28 @@ public class ApiService extends Service {
      * @param startMs The start time in milliseconds
      * @param endMs The end time in milliseconds
      * @param count The number of thumbnails
+     * @param token The token returned with the thumbnails
+     * @param indices The indices of the requested thumbnails
+     * @param config The bitmap configuration of the thumbnails
      */
     public static void getMediaItemThumbnails(Context context,
             String projectPath, String mediaItemId, int width, int height,
-            long startMs, long endMs, int count, int token, int[] indices) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_MEDIA_ITEM_GET_THUMBNAILS);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_WIDTH, width);
-        intent.putExtra(PARAM_HEIGHT, height);
-        intent.putExtra(PARAM_START_TIME, startMs);
-        intent.putExtra(PARAM_END_TIME, endMs);
-        intent.putExtra(PARAM_COUNT, count);
-        intent.putExtra(PARAM_TOKEN, token);
-        intent.putExtra(PARAM_INDICES, indices);
-
-        startCommand(context, intent);
+            long startMs, long endMs, int count, int token, int[] indices,
+            Bitmap.Config config) {
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_MEDIA_ITEM_GET_THUMBNAILS;
+        command.projectPath = projectPath;
+        command.itemId = mediaItemId;
+        command.width = width;
+        command.height = height;
+        command.startTime = startMs;
+        command.endTime = endMs;
+        command.count = count;
+        command.token = token;
+        command.indices = indices;
+        command.bitmapConfig = config;
+
+        startCommand(context, command);
     }
 
     /**
@@ -687,13 +757,13 @@ public class ApiService extends Service {
      */
     public static void setMediaItemDuration(Context context, String projectPath,
             String mediaItemId, long durationMs) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_MEDIA_ITEM_SET_DURATION);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_DURATION, durationMs);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_MEDIA_ITEM_SET_DURATION;
+        command.projectPath = projectPath;
+        command.itemId = mediaItemId;
+        command.duration = durationMs;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -707,14 +777,14 @@ public class ApiService extends Service {
      */
     public static void setMediaItemBoundaries(Context context, String projectPath,
             String mediaItemId, long beginBoundaryMs, long endBoundaryMs) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_MEDIA_ITEM_SET_BOUNDARIES);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_BEGIN_BOUNDARY, beginBoundaryMs);
-        intent.putExtra(PARAM_END_BOUNDARY, endBoundaryMs);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_MEDIA_ITEM_SET_BOUNDARIES;
+        command.projectPath = projectPath;
+        command.itemId = mediaItemId;
+        command.beginBoundary = beginBoundaryMs;
+        command.endBoundary = endBoundaryMs;
+
+        startCommand(context, command);
     }
 
     /**
@@ -727,13 +797,13 @@ public class ApiService extends Service {
      */
     public static void setMediaItemVolume(Context context, String projectPath,
             String mediaItemId, int volumePercentage) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_MEDIA_ITEM_SET_VOLUME);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_VOLUME, volumePercentage);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_MEDIA_ITEM_SET_VOLUME;
+        command.projectPath = projectPath;
+        command.itemId = mediaItemId;
+        command.volume = volumePercentage;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -746,13 +816,13 @@ public class ApiService extends Service {
      */
     public static void setMediaItemMute(Context context, String projectPath, String mediaItemId,
             boolean muted) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_MEDIA_ITEM_SET_MUTE);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_MUTE, muted);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_MEDIA_ITEM_SET_MUTE;
+        command.projectPath = projectPath;
+        command.itemId = mediaItemId;
+        command.mute = muted;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -768,12 +838,12 @@ public class ApiService extends Service {
             return;
         }
 
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_MEDIA_ITEM_EXTRACT_AUDIO_WAVEFORM);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, mediaItemId);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_MEDIA_ITEM_EXTRACT_AUDIO_WAVEFORM;
+        command.projectPath = projectPath;
+        command.itemId = mediaItemId;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -785,12 +855,12 @@ public class ApiService extends Service {
      * @return true if the extract audio waveform is pending
      */
     public static boolean isMediaItemAudioWaveformPending(String projectPath, String mediaItemId) {
-        for (Intent intent : mPendingIntents.values()) {
-            int op = intent.getIntExtra(PARAM_OP, -1);
+        for (ApiCommand command : mPendingRequests.commands()) {
+            int op = command.op;
             if (op == OP_MEDIA_ITEM_EXTRACT_AUDIO_WAVEFORM) {
-                String pp = intent.getStringExtra(PARAM_PROJECT_PATH);
+                String pp = command.projectPath;
                 if (pp.equals(projectPath)) {
-                    String mid = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    String mid = command.itemId;
                     if (mid.equals(mediaItemId)) {
                         return true;
                     }
@@ -817,18 +887,18 @@ public class ApiService extends Service {
     public static void insertAlphaTransition(Context context, String projectPath,
             String afterMediaItemId, String transitionId, long durationMs, int behavior,
             int maskRawResourceId, int blending, boolean invert) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_TRANSITION_INSERT_ALPHA);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, afterMediaItemId);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, transitionId);
-        intent.putExtra(PARAM_DURATION, durationMs);
-        intent.putExtra(PARAM_TRANSITION_BEHAVIOR, behavior);
-        intent.putExtra(PARAM_TRANSITION_MASK, maskRawResourceId);
-        intent.putExtra(PARAM_TRANSITION_BLENDING, blending);
-        intent.putExtra(PARAM_TRANSITION_INVERT, invert);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_TRANSITION_INSERT_ALPHA;
+        command.projectPath = projectPath;
+        command.relativeItemId = afterMediaItemId;
+        command.itemId = transitionId;
+        command.duration = durationMs;
+        command.transitionBehavior = behavior;
+        command.transitionMask = maskRawResourceId;
+        command.transitionBlending = blending;
+        command.transitionInvert = invert;
+
+        startCommand(context, command);
     }
 
     /**
@@ -843,15 +913,15 @@ public class ApiService extends Service {
      */
     public static void insertCrossfadeTransition(Context context, String projectPath,
             String afterMediaItemId, String transitionId, long durationMs, int behavior) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_TRANSITION_INSERT_CROSSFADE);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, afterMediaItemId);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, transitionId);
-        intent.putExtra(PARAM_DURATION, durationMs);
-        intent.putExtra(PARAM_TRANSITION_BEHAVIOR, behavior);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_TRANSITION_INSERT_CROSSFADE;
+        command.projectPath = projectPath;
+        command.relativeItemId = afterMediaItemId;
+        command.itemId = transitionId;
+        command.duration = durationMs;
+        command.transitionBehavior = behavior;
+
+        startCommand(context, command);
     }
 
     /**
@@ -866,15 +936,15 @@ public class ApiService extends Service {
      */
     public static void insertFadeBlackTransition(Context context, String projectPath,
             String afterMediaItemId, String transitionId, long durationMs, int behavior) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_TRANSITION_INSERT_FADE_BLACK);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, afterMediaItemId);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, transitionId);
-        intent.putExtra(PARAM_DURATION, durationMs);
-        intent.putExtra(PARAM_TRANSITION_BEHAVIOR, behavior);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_TRANSITION_INSERT_FADE_BLACK;
+        command.projectPath = projectPath;
+        command.relativeItemId = afterMediaItemId;
+        command.itemId = transitionId;
+        command.duration = durationMs;
+        command.transitionBehavior = behavior;
+
+        startCommand(context, command);
     }
 
     /**
@@ -891,16 +961,16 @@ public class ApiService extends Service {
     public static void insertSlidingTransition(Context context, String projectPath,
             String afterMediaItemId, String transitionId, long durationMs, int behavior,
             int direction) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_TRANSITION_INSERT_SLIDING);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, afterMediaItemId);
-        intent.putExtra(PARAM_DURATION, durationMs);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, transitionId);
-        intent.putExtra(PARAM_TRANSITION_BEHAVIOR, behavior);
-        intent.putExtra(PARAM_TRANSITION_DIRECTION, direction);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_TRANSITION_INSERT_SLIDING;
+        command.projectPath = projectPath;
+        command.relativeItemId = afterMediaItemId;
+        command.duration = durationMs;
+        command.itemId = transitionId;
+        command.transitionBehavior = behavior;
+        command.transitionDirection = direction;
+
+        startCommand(context, command);
     }
 
     /**
@@ -911,12 +981,12 @@ public class ApiService extends Service {
      * @param transitionId The id of the transition to remove
      */
     public static void removeTransition(Context context, String projectPath, String transitionId) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_TRANSITION_REMOVE);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, transitionId);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_TRANSITION_REMOVE;
+        command.projectPath = projectPath;
+        command.itemId = transitionId;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -929,13 +999,13 @@ public class ApiService extends Service {
      */
     public static void setTransitionDuration(Context context, String projectPath,
             String transitionId, long durationMs) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_TRANSITION_SET_DURATION);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, transitionId);
-        intent.putExtra(PARAM_DURATION, durationMs);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_TRANSITION_SET_DURATION;
+        command.projectPath = projectPath;
+        command.itemId = transitionId;
+        command.duration = durationMs;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -945,16 +1015,18 @@ public class ApiService extends Service {
      * @param projectPath The project path
      * @param transitionId The id of the transition
      * @param height The height
+     * @param config The bitmap configuration of the thumbnails
      */
     public static void getTransitionThumbnails(Context context, String projectPath,
-            String transitionId, int height) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_TRANSITION_GET_THUMBNAIL);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, transitionId);
-        intent.putExtra(PARAM_HEIGHT, height);
-
-        startCommand(context, intent);
+            String transitionId, int height, Bitmap.Config config) {
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_TRANSITION_GET_THUMBNAIL;
+        command.projectPath = projectPath;
+        command.itemId = transitionId;
+        command.height = height;
+        command.bitmapConfig = config;
+
+        startCommand(context, command);
     }
 
     /**
@@ -966,12 +1038,12 @@ public class ApiService extends Service {
      * @return true if the transition thumbnailing is in progress
      */
     public static boolean isTransitionThumbnailsPending(String projectPath, String transitionId) {
-        for (Intent intent : mPendingIntents.values()) {
-            int op = intent.getIntExtra(PARAM_OP, -1);
+        for (ApiCommand command : mPendingRequests.commands()) {
+            int op = command.op;
             if (op == OP_TRANSITION_GET_THUMBNAIL) {
-                String pp = intent.getStringExtra(PARAM_PROJECT_PATH);
+                String pp = command.projectPath;
                 if (pp.equals(projectPath)) {
-                    String mid = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    String mid = command.itemId;
                     if (mid.equals(transitionId)) {
                         return true;
                     }
@@ -996,17 +1068,17 @@ public class ApiService extends Service {
      */
     public static void addEffectColor(Context context, String projectPath, String mediaItemId,
             String effectId, long startTimeMs, long durationMs, int type, int param) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_EFFECT_ADD_COLOR);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, effectId);
-        intent.putExtra(PARAM_START_TIME, startTimeMs);
-        intent.putExtra(PARAM_DURATION, durationMs);
-        intent.putExtra(PARAM_EFFECT_TYPE, type);
-        intent.putExtra(PARAM_EFFECT_PARAM, param);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_EFFECT_ADD_COLOR;
+        command.projectPath = projectPath;
+        command.relativeItemId = mediaItemId;
+        command.itemId = effectId;
+        command.startTime = startTimeMs;
+        command.duration = durationMs;
+        command.effectType = type;
+        command.effectParam = param;
+
+        startCommand(context, command);
     }
 
     /**
@@ -1024,17 +1096,17 @@ public class ApiService extends Service {
     public static void addEffectKenBurns(Context context, String projectPath,
             String mediaItemId, String effectId, long startTimeMs, long durationMs,
             Rect startRect, Rect endRect) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_EFFECT_ADD_IMAGE_KEN_BURNS);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, effectId);
-        intent.putExtra(PARAM_START_TIME, startTimeMs);
-        intent.putExtra(PARAM_DURATION, durationMs);
-        intent.putExtra(PARAM_MEDIA_ITEM_START_RECT, startRect);
-        intent.putExtra(PARAM_MEDIA_ITEM_END_RECT, endRect);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_EFFECT_ADD_IMAGE_KEN_BURNS;
+        command.projectPath = projectPath;
+        command.relativeItemId = mediaItemId;
+        command.itemId = effectId;
+        command.startTime = startTimeMs;
+        command.duration = durationMs;
+        command.startRect = startRect;
+        command.endRect = endRect;
+
+        startCommand(context, command);
     }
 
     /**
@@ -1047,13 +1119,13 @@ public class ApiService extends Service {
      */
     public static void removeEffect(Context context, String projectPath, String mediaItemId,
             String effectId) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_EFFECT_REMOVE);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, effectId);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_EFFECT_REMOVE;
+        command.projectPath = projectPath;
+        command.relativeItemId = mediaItemId;
+        command.itemId = effectId;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -1068,16 +1140,16 @@ public class ApiService extends Service {
      */
     public static void addOverlay(Context context, String projectPath, String mediaItemId,
             String overlayId, Bundle userAttributes, long startTimeMs, long durationMs) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_OVERLAY_ADD);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, overlayId);
-        intent.putExtra(PARAM_START_TIME, startTimeMs);
-        intent.putExtra(PARAM_DURATION, durationMs);
-        intent.putExtra(PARAM_ATTRIBUTES, userAttributes);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_OVERLAY_ADD;
+        command.projectPath = projectPath;
+        command.relativeItemId = mediaItemId;
+        command.itemId = overlayId;
+        command.startTime = startTimeMs;
+        command.duration = durationMs;
+        command.attributes = userAttributes;
+
+        startCommand(context, command);
     }
 
     /**
@@ -1090,13 +1162,13 @@ public class ApiService extends Service {
      */
     public static void removeOverlay(Context context, String projectPath, String mediaItemId,
             String overlayId) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_OVERLAY_REMOVE);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, overlayId);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_OVERLAY_REMOVE;
+        command.projectPath = projectPath;
+        command.relativeItemId = mediaItemId;
+        command.itemId = overlayId;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -1110,14 +1182,14 @@ public class ApiService extends Service {
      */
     public static void setOverlayStartTime(Context context, String projectPath, String mediaItemId,
             String overlayId, long startTimeMs) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_OVERLAY_SET_START_TIME);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, overlayId);
-        intent.putExtra(PARAM_START_TIME, startTimeMs);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_OVERLAY_SET_START_TIME;
+        command.projectPath = projectPath;
+        command.relativeItemId = mediaItemId;
+        command.itemId = overlayId;
+        command.startTime = startTimeMs;
+
+        startCommand(context, command);
     }
 
     /**
@@ -1131,14 +1203,14 @@ public class ApiService extends Service {
      */
     public static void setOverlayDuration(Context context, String projectPath, String mediaItemId,
             String overlayId, long durationMs) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_OVERLAY_SET_DURATION);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, overlayId);
-        intent.putExtra(PARAM_DURATION, durationMs);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_OVERLAY_SET_DURATION;
+        command.projectPath = projectPath;
+        command.relativeItemId = mediaItemId;
+        command.itemId = overlayId;
+        command.duration = durationMs;
+
+        startCommand(context, command);
     }
 
     /**
@@ -1152,14 +1224,14 @@ public class ApiService extends Service {
      */
     public static void setOverlayUserAttributes(Context context, String projectPath,
             String mediaItemId, String overlayId, Bundle userAttributes) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_OVERLAY_SET_ATTRIBUTES);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID, mediaItemId);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, overlayId);
-        intent.putExtra(PARAM_ATTRIBUTES, userAttributes);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_OVERLAY_SET_ATTRIBUTES;
+        command.projectPath = projectPath;
+        command.relativeItemId = mediaItemId;
+        command.itemId = overlayId;
+        command.attributes = userAttributes;
+
+        startCommand(context, command);
     }
 
     /**
@@ -1173,14 +1245,14 @@ public class ApiService extends Service {
      */
     public static void addAudioTrack(Context context, String projectPath, String id, Uri uri,
             boolean loop) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_AUDIO_TRACK_ADD);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, id);
-        intent.putExtra(PARAM_FILENAME, uri);
-        intent.putExtra(PARAM_LOOP, loop);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_AUDIO_TRACK_ADD;
+        command.projectPath = projectPath;
+        command.itemId = id;
+        command.uri = uri;
+        command.loop = loop;
+
+        startCommand(context, command);
     }
 
     /**
@@ -1191,12 +1263,12 @@ public class ApiService extends Service {
      * @param audioTrackId The id of the audio track to remove
      */
     public static void removeAudioTrack(Context context, String projectPath, String audioTrackId) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_AUDIO_TRACK_REMOVE);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, audioTrackId);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_AUDIO_TRACK_REMOVE;
+        command.projectPath = projectPath;
+        command.itemId = audioTrackId;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -1210,14 +1282,14 @@ public class ApiService extends Service {
      */
     public static void setAudioTrackBoundaries(Context context, String projectPath,
             String audioTrackId, long beginBoundaryMs, long endBoundaryMs) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_AUDIO_TRACK_SET_BOUNDARIES);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, audioTrackId);
-        intent.putExtra(PARAM_BEGIN_BOUNDARY, beginBoundaryMs);
-        intent.putExtra(PARAM_END_BOUNDARY, endBoundaryMs);
-
-        startCommand(context, intent);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_AUDIO_TRACK_SET_BOUNDARIES;
+        command.projectPath = projectPath;
+        command.itemId = audioTrackId;
+        command.beginBoundary = beginBoundaryMs;
+        command.endBoundary = endBoundaryMs;
+
+        startCommand(context, command);
     }
 
     /**
@@ -1230,13 +1302,13 @@ public class ApiService extends Service {
      */
     public static void setAudioTrackLoop(Context context, String projectPath, String audioTrackId,
             boolean loop) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_AUDIO_TRACK_SET_LOOP);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, audioTrackId);
-        intent.putExtra(PARAM_LOOP, loop);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_AUDIO_TRACK_SET_LOOP;
+        command.projectPath = projectPath;
+        command.itemId = audioTrackId;
+        command.loop = loop;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -1249,13 +1321,13 @@ public class ApiService extends Service {
      */
     public static void setAudioTrackDuck(Context context, String projectPath, String audioTrackId,
             boolean duck) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_AUDIO_TRACK_SET_DUCK);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, audioTrackId);
-        intent.putExtra(PARAM_DUCK, duck);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_AUDIO_TRACK_SET_DUCK;
+        command.projectPath = projectPath;
+        command.itemId = audioTrackId;
+        command.duck = duck;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -1268,13 +1340,13 @@ public class ApiService extends Service {
      */
     public static void setAudioTrackVolume(Context context, String projectPath,
             String audioTrackId, int volumePercentage) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_AUDIO_TRACK_SET_VOLUME);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, audioTrackId);
-        intent.putExtra(PARAM_VOLUME, volumePercentage);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_AUDIO_TRACK_SET_VOLUME;
+        command.projectPath = projectPath;
+        command.itemId = audioTrackId;
+        command.volume = volumePercentage;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -1287,13 +1359,13 @@ public class ApiService extends Service {
      */
     public static void setAudioTrackMute(Context context, String projectPath, String audioTrackId,
             boolean muted) {
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_AUDIO_TRACK_SET_MUTE);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, audioTrackId);
-        intent.putExtra(PARAM_MUTE, muted);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_AUDIO_TRACK_SET_MUTE;
+        command.projectPath = projectPath;
+        command.itemId = audioTrackId;
+        command.mute = muted;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -1308,12 +1380,12 @@ public class ApiService extends Service {
         if (isAudioTrackAudioWaveformPending(projectPath, audioTrackId)) {
             return;
         }
-        final Intent intent = mIntentPool.get(context, ApiService.class);
-        intent.putExtra(PARAM_OP, OP_AUDIO_TRACK_EXTRACT_AUDIO_WAVEFORM);
-        intent.putExtra(PARAM_PROJECT_PATH, projectPath);
-        intent.putExtra(PARAM_STORYBOARD_ITEM_ID, audioTrackId);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_AUDIO_TRACK_EXTRACT_AUDIO_WAVEFORM;
+        command.projectPath = projectPath;
+        command.itemId = audioTrackId;
 
-        startCommand(context, intent);
+        startCommand(context, command);
     }
 
     /**
@@ -1326,12 +1398,12 @@ public class ApiService extends Service {
      */
     public static boolean isAudioTrackAudioWaveformPending(String projectPath,
             String audioTrackId) {
-        for (Intent intent : mPendingIntents.values()) {
-            int op = intent.getIntExtra(PARAM_OP, -1);
+        for (ApiCommand command : mPendingRequests.commands()) {
+            int op = command.op;
             if (op == OP_AUDIO_TRACK_EXTRACT_AUDIO_WAVEFORM) {
-                String pp = intent.getStringExtra(PARAM_PROJECT_PATH);
+                String pp = command.projectPath;
                 if (pp.equals(projectPath)) {
-                    String mid = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    String mid = command.itemId;
                     if (mid.equals(audioTrackId)) {
                         return true;
                     }
@@ -1343,27 +1415,38 @@ public class ApiService extends Service {
     }
 
     /**
-     * Start the service (if it is not running) with the specified Intent
+     * Dispatch the specified command to the service. The service is started
+     * if it is not running. This method may be invoked from any thread.
      *
      * @param context The context
-     * @param intent The intent
+     * @param command The command
      *
      * @return The request id of the pending request
      */
-    private static String startCommand(Context context, Intent intent) {
-        final String requestId = StringUtils.randomString(8);
-        intent.putExtra(PARAM_REQUEST_ID, requestId);
-        mPendingIntents.put(requestId, intent);
+    private static long startCommand(Context context, ApiCommand command) {
+        final long requestId = mLastRequestId.incrementAndGet();
+        command.requestId = requestId;
+        final boolean projectEdited = mPendingRequests.add(command,
+                isEditingOperation(command.op));
+
+        final boolean queued;
+        synchronized (mQueuedCommands) {
+            queued = mServiceInstance == null;
+            if (queued) {
+                mQueuedCommands.add(command);
+            } else {
+                mServiceInstance.dispatchCommand(command);
+            }
+        }
 
-        context.startService(intent);
+        if (queued) {
+            context.startService(new Intent(context, ApiService.class));
+        }
 
-        final String projectPath = intent.getStringExtra(PARAM_PROJECT_PATH);
-        if (projectPath != null) {
-            final boolean projectEdited = isProjectBeingEdited(projectPath);
-            if (projectEdited) {
-                for (ApiServiceListener listener : mListeners) {
-                    listener.onProjectEditState(projectPath, projectEdited);
-                }
+        // Notify the listeners when the project starts being edited
+        if (projectEdited) {
+            for (ApiServiceListener listener : mListeners) {
+                listener.onProjectEditState(command.projectPath, true);
             }
         }
 
@@ -1375,21 +1458,70 @@ public class ApiService extends Service {
         super.onCreate();
         mHandler = new Handler(Looper.getMainLooper());
 
-        mVideoThread = new IntentProcessor("VideoServiceThread");
+        if (mEditorCache == null) {
+            mEditorCache = new EditorCache(MemoryBudget.getEditorCacheSize(this));
+        }
+
+        mVideoThread = new CommandProcessor("VideoServiceThread");
         mVideoThread.start();
 
-        mAudioThread = new IntentProcessor("AudioServiceThread");
+        mAudioThread = new CommandProcessor("AudioServiceThread");
         mAudioThread.start();
 
-        mThumbnailThread = new IntentProcessor("ThumbnailServiceThread");
+        mThumbnailThread = new CommandProcessor("ThumbnailServiceThread");
         mThumbnailThread.start();
+
+        mExportScheduler = new ExportScheduler(new File(getFilesDir(), EXPORT_QUEUE_FILENAME),
+                mExportRunner);
+
+        // Extract the theme masks and audio tracks before they are needed
+        ThemeAssets.prepareAsync(this);
+
+        dispatchQueuedCommands();
+
+        // Restart the exports which did not complete when the process died
+        final List<ExportScheduler.ExportJob> jobs = mExportScheduler.restore();
+        for (ExportScheduler.ExportJob job : jobs) {
+            logd("Restarting export: " + job.getFilename());
+            exportVideoEditor(this, job.getProjectPath(), job.getFilename(), job.getHeight(),
+                    job.getBitrate());
+        }
     }
 
     @Override
-    public int onStartCommand(final Intent intent, int flags, int startId) {
-        final int op = intent.getIntExtra(PARAM_OP, -1);
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // The intent is only used to start the service. The commands are
+        // dispatched in-process.
+        dispatchQueuedCommands();
+        return START_NOT_STICKY;
+    }
+
+    /**
+     * Make this the running service and dispatch the commands which were
+     * submitted while the service was starting.
+     */
+    private void dispatchQueuedCommands() {
+        synchronized (mQueuedCommands) {
+            mServiceInstance = this;
+
+            final int commandCount = mQueuedCommands.size();
+            for (int i = 0; i < commandCount; i++) {
+                dispatchCommand(mQueuedCommands.get(i));
+            }
+            mQueuedCommands.clear();
+        }
+    }
+
+    /**
+     * Dispatch the command to the thread which processes it
+     *
+     * @param command The command
+     */
+    private void dispatchCommand(ApiCommand command) {
+        final int op = command.op;
         switch(op) {
             case OP_VIDEO_EDITOR_LOAD_PROJECTS:
+            case OP_VIDEO_EDITOR_TRIM_CACHE:
             case OP_VIDEO_EDITOR_CREATE:
             case OP_VIDEO_EDITOR_LOAD:
             case OP_VIDEO_EDITOR_SAVE:
@@ -1399,7 +1531,7 @@ public class ApiService extends Service {
             case OP_VIDEO_EDITOR_APPLY_THEME:
             case OP_VIDEO_EDITOR_EXPORT:
             case OP_VIDEO_EDITOR_CANCEL_EXPORT:
-            case OP_VIDEO_EDITOR_EXPORT_STATUS:
+            case OP_VIDEO_EDITOR_BENCHMARK_EXPORT:
 
             case OP_MEDIA_ITEM_ADD_VIDEO_URI:
             case OP_MEDIA_ITEM_ADD_IMAGE_URI:
@@ -1435,40 +1567,41 @@ public class ApiService extends Service {
             case OP_AUDIO_TRACK_SET_BOUNDARIES:
             case OP_AUDIO_TRACK_EXTRACT_AUDIO_WAVEFORM:
             case OP_AUDIO_TRACK_EXTRACT_AUDIO_WAVEFORM_STATUS: {
-                mVideoThread.submit(intent);
+                mVideoThread.submit(command);
                 break;
             }
 
             case OP_TRANSITION_GET_THUMBNAIL: {
-                mThumbnailThread.submit(intent);
+                mThumbnailThread.submit(command);
                 break;
             }
 
             case OP_MEDIA_ITEM_GET_THUMBNAILS: {
-                final String projectPath = intent.getStringExtra(PARAM_PROJECT_PATH);
-                final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
-                final int token = intent.getIntExtra(PARAM_TOKEN, 0);
+                final String projectPath = command.projectPath;
+                final String mediaItemId = command.itemId;
+                final int token = command.token;
                 // Cancel any pending thumbnail request for the same media item
                 // but with a different token
-                Iterator<Intent> intentQueueIterator = mThumbnailThread.getIntentQueueIterator();
-                while (intentQueueIterator.hasNext()) {
-                    Intent qIntent = intentQueueIterator.next();
-                    int opi = qIntent.getIntExtra(PARAM_OP, -1);
-                    String pp = qIntent.getStringExtra(PARAM_PROJECT_PATH);
-                    String mid = qIntent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
-                    int tk = qIntent.getIntExtra(PARAM_TOKEN, 0);
+                final Iterator<ApiCommand> commandQueueIterator =
+                        mThumbnailThread.getCommandQueueIterator();
+                while (commandQueueIterator.hasNext()) {
+                    ApiCommand qCommand = commandQueueIterator.next();
+                    int opi = qCommand.op;
+                    String pp = qCommand.projectPath;
+                    String mid = qCommand.itemId;
+                    int tk = qCommand.token;
                     if (opi == op && pp.equals(projectPath) && mid.equals(mediaItemId)
                             && tk != token) {
-                        boolean canceled = mThumbnailThread.cancel(qIntent);
+                        boolean canceled = mThumbnailThread.cancel(qCommand);
                         if (canceled) {
                             logd("Canceled operation: " + op + " for media item" + mediaItemId);
-                            mPendingIntents.remove(qIntent.getStringExtra(PARAM_REQUEST_ID));
-                            mIntentPool.put(qIntent);
+                            mPendingRequests.remove(qCommand, isEditingOperation(opi));
+                            mCommandPool.put(qCommand);
                         }
                         break;
                     }
                 }
-                mThumbnailThread.submit(intent);
+                mThumbnailThread.submit(command);
                 break;
             }
 
@@ -1479,7 +1612,7 @@ public class ApiService extends Service {
             case OP_AUDIO_TRACK_SET_MUTE:
             case OP_AUDIO_TRACK_SET_LOOP:
             case OP_AUDIO_TRACK_SET_DUCK: {
-                mAudioThread.submit(intent);
+                mAudioThread.submit(command);
                 break;
             }
 
@@ -1488,14 +1621,53 @@ public class ApiService extends Service {
                 break;
             }
         }
+    }
 
-        return START_NOT_STICKY;
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        if (level >= TRIM_MEMORY_MODERATE
+                || (level >= TRIM_MEMORY_RUNNING_LOW && level < TRIM_MEMORY_UI_HIDDEN)) {
+            // Release all the editors which are not in use
+            trimEditorCache(0);
+        } else {
+            // Keep only the most recently used editor
+            trimEditorCache(1);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        trimEditorCache(0);
+    }
+
+    /**
+     * Release the least recently used editors which are not in use. The
+     * editors are released on the video thread.
+     *
+     * @param maxSize The maximum number of editors to keep
+     */
+    private void trimEditorCache(int maxSize) {
+        logd("trimEditorCache: " + maxSize);
+        final ApiCommand command = mCommandPool.get();
+        command.op = OP_VIDEO_EDITOR_TRIM_CACHE;
+        command.count = maxSize;
+
+        startCommand(this, command);
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
 
+        synchronized (mQueuedCommands) {
+            if (mServiceInstance == this) {
+                mServiceInstance = null;
+            }
+        }
+
         if (mThumbnailThread != null) {
             mThumbnailThread.quit();
             mThumbnailThread = null;
@@ -1510,6 +1682,16 @@ public class ApiService extends Service {
             mVideoThread.quit();
             mVideoThread = null;
         }
+
+        if (mExportScheduler != null) {
+            mExportScheduler.quit();
+            mExportScheduler = null;
+        }
+
+        // Release the parked editors and report the leaked ones
+        if (mEditorCache != null) {
+            mEditorCache.releaseInactiveAndCheck();
+        }
     }
 
     @Override
@@ -1518,20 +1700,22 @@ public class ApiService extends Service {
     }
 
     /**
-     * Process the intent
+     * Process the command
      *
-     * @param intent The intent
+     * @param command The command
      */
-    public void processIntent(final Intent intent) {
-        final int op = intent.getIntExtra(PARAM_OP, -1);
+    public void processCommand(final ApiCommand command) {
+        final int op = command.op;
         VideoEditor videoEditor = null;
         try {
-            final String projectPath = intent.getStringExtra(PARAM_PROJECT_PATH);
+            final String projectPath = command.projectPath;
             // Check if the project path matches the current VideoEditor project
             switch (op) {
                 case OP_VIDEO_EDITOR_LOAD_PROJECTS:
+                case OP_VIDEO_EDITOR_TRIM_CACHE:
                 case OP_VIDEO_EDITOR_CREATE:
                 case OP_VIDEO_EDITOR_LOAD:
+                case OP_VIDEO_EDITOR_EXPORT:
                 case OP_VIDEO_EDITOR_DELETE: {
                     break;
                 }
@@ -1561,7 +1745,7 @@ public class ApiService extends Service {
                                     try {
                                         projects.add(VideoEditorProject.fromXml(null, pp));
                                     } catch (FileNotFoundException ex) {
-                                        Log.w(TAG, "processIntent: Project file not found: " + pp);
+                                        Log.w(TAG, "processCommand: Project file not found: " + pp);
                                         FileUtils.deleteDir(new File(pp));
                                     } catch (Exception ex) {
                                         ex.printStackTrace();
@@ -1588,7 +1772,14 @@ public class ApiService extends Service {
                         }
                     }
 
-                    completeRequest(intent, videoEditor, null, projects, null, true);
+                    completeRequest(command, videoEditor, null, projects, null, true);
+                    break;
+                }
+
+                case OP_VIDEO_EDITOR_TRIM_CACHE: {
+                    logd("OP_VIDEO_EDITOR_TRIM_CACHE: " + command.count);
+                    mEditorCache.trimToSize(command.count);
+                    completeRequest(command, null, null, null, null, true);
                     break;
                 }
 
@@ -1596,13 +1787,13 @@ public class ApiService extends Service {
                     logd("OP_VIDEO_EDITOR_CREATE: " + projectPath);
 
                     try {
-                        // Release the current video editor if any
-                        releaseEditor();
+                        // Release a stale editor of the same project if any
+                        mEditorCache.release(projectPath);
 
                         videoEditor = VideoEditorFactory.create(projectPath);
 
                         // Add the movies to the timeline
-                        final String[] movies = intent.getStringArrayExtra(PARAM_MOVIES_FILENAMES);
+                        final String[] movies = command.movies;
                         for (int i = 0; i < movies.length; i++) {
                             final MediaItem mediaItem = new MediaVideoItem(videoEditor,
                                     generateId(), movies[i],
@@ -1611,7 +1802,7 @@ public class ApiService extends Service {
                         }
 
                         // Add the photos to the timeline
-                        final String[] photos = intent.getStringArrayExtra(PARAM_PHOTOS_FILENAMES);
+                        final String[] photos = command.photos;
                         for (int i = 0; i < photos.length; i++) {
                             final MediaItem mediaItem = new MediaImageItem(videoEditor,
                                     generateId(), photos[i],
@@ -1621,8 +1812,8 @@ public class ApiService extends Service {
                         }
 
                         // Create the project
-                        final String projectName = intent.getStringExtra(PARAM_PROJECT_NAME);
-                        final String themeId = intent.getStringExtra(PARAM_THEME);
+                        final String projectName = command.projectName;
+                        final String themeId = command.theme;
                         if (themeId != null) {
                             applyThemeToMovie(videoEditor, themeId);
                         }
@@ -1643,13 +1834,12 @@ public class ApiService extends Service {
                                 videoEditor.getAllAudioTracks()));
 
                         // Make this project the current project
-                        mVideoEditor = videoEditor;
-                        mGeneratePreviewListener = new ServiceMediaProcessingProgressListener(
-                                projectPath);
+                        mEditorCache.put(projectPath, videoEditor, videoProject,
+                                new ServiceMediaProcessingProgressListener(projectPath));
 
-                        completeRequest(intent, videoEditor, null, videoProject, null, false);
+                        completeRequest(command, videoEditor, null, videoProject, null, false);
                         generatePreview(videoEditor, true);
-                        completeRequest(intent);
+                        completeRequest(command);
                     } catch (Exception ex) {
                         if (videoEditor != null) {
                             videoEditor.release();
@@ -1662,9 +1852,9 @@ public class ApiService extends Service {
                 }
 
                 case OP_VIDEO_EDITOR_LOAD: {
-                    videoEditor = releaseEditorNot(projectPath);
+                    videoEditor = mEditorCache.getVideoEditor(projectPath);
 
-                    if (videoEditor == null) {  // The old project was released.
+                    if (videoEditor == null) {  // The project is not loaded.
                         logd("OP_VIDEO_EDITOR_LOAD: Loading: " + projectPath);
                         try {
                             // Load the project
@@ -1678,13 +1868,12 @@ public class ApiService extends Service {
                             videoProject.setAudioTracks(copyAudioTracks(
                                     videoEditor.getAllAudioTracks()));
                             // Make this the current project
-                            mVideoEditor = videoEditor;
-                            mGeneratePreviewListener = new ServiceMediaProcessingProgressListener(
-                                    projectPath);
+                            mEditorCache.put(projectPath, videoEditor, videoProject,
+                                    new ServiceMediaProcessingProgressListener(projectPath));
 
-                            completeRequest(intent, videoEditor, null, videoProject, null, false);
+                            completeRequest(command, videoEditor, null, videoProject, null, false);
                             generatePreview(videoEditor, true);
-                            completeRequest(intent);
+                            completeRequest(command);
                         } catch (Exception ex) {
                             if (videoEditor != null) {
                                 videoEditor.release();
@@ -1694,7 +1883,11 @@ public class ApiService extends Service {
                         }
                     } else {  // The project is already loaded.
                         logd("OP_VIDEO_EDITOR_LOAD: Was already loaded: " + projectPath);
-                        completeRequest(intent, videoEditor, null, null, null, true);
+                        // Make this the current project
+                        mEditorCache.setActive(projectPath, true);
+
+                        completeRequest(command, videoEditor, null,
+                                mEditorCache.getProject(projectPath), null, true);
                     }
 
                     break;
@@ -1703,12 +1896,11 @@ public class ApiService extends Service {
                 case OP_VIDEO_EDITOR_SET_ASPECT_RATIO: {
                     logd("OP_VIDEO_EDITOR_SET_ASPECT_RATIO");
 
-                    videoEditor.setAspectRatio(intent.getIntExtra(PARAM_ASPECT_RATIO,
-                            MediaProperties.ASPECT_RATIO_UNDEFINED));
+                    videoEditor.setAspectRatio(command.aspectRatio);
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
@@ -1716,35 +1908,98 @@ public class ApiService extends Service {
                     logd("OP_VIDEO_EDITOR_APPLY_THEME");
 
                     // Apply the theme
-                    applyThemeToMovie(videoEditor, intent.getStringExtra(PARAM_THEME));
+                    final boolean changed = applyThemeToMovie(videoEditor, command.theme);
 
                     final List<MovieMediaItem> mediaItems =
                             copyMediaItems(videoEditor.getAllMediaItems());
                     final List<MovieAudioTrack> audioTracks =
                             copyAudioTracks(videoEditor.getAllAudioTracks());
 
-                    completeRequest(intent, videoEditor, null, mediaItems, audioTracks, false);
-                    generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    if (changed) {
+                        completeRequest(command, videoEditor, null, mediaItems, audioTracks,
+                                false);
+                        generatePreview(videoEditor, true);
+                        completeRequest(command);
+                    } else {
+                        // The storyboard already matches the theme
+                        completeRequest(command, videoEditor, null, mediaItems, audioTracks,
+                                true);
+                    }
                     break;
                 }
 
                 case OP_VIDEO_EDITOR_EXPORT: {
                     logd("OP_VIDEO_EDITOR_EXPORT");
-                    exportMovie(videoEditor, intent);
+                    videoEditor = getVideoEditor(projectPath);
+                    if (videoEditor == null) {
+                        // An export restarted after the process died. Load the
+                        // editor and park it in the cache. The preview is
+                        // generated like for OP_VIDEO_EDITOR_LOAD since a later
+                        // load of the project reuses the parked editor as is.
+                        videoEditor = VideoEditorFactory.load(projectPath, false);
+                        final VideoEditorProject videoProject = VideoEditorProject.fromXml(
+                                videoEditor, projectPath);
+                        videoProject.setMediaItems(copyMediaItems(
+                                videoEditor.getAllMediaItems()));
+                        videoProject.setAudioTracks(copyAudioTracks(
+                                videoEditor.getAllAudioTracks()));
+                        mEditorCache.put(projectPath, videoEditor, videoProject,
+                                new ServiceMediaProcessingProgressListener(projectPath));
+                        mEditorCache.setActive(projectPath, false);
+                        generatePreview(videoEditor, false);
+                    }
+
+                    // The user is waiting for this export so the calibration
+                    // exports stop, whichever project they were started for.
+                    // The export is queued first so that the interrupted
+                    // calibration resumes behind it.
+                    mExportScheduler.schedule(new ExportScheduler.ExportJob(projectPath,
+                            command.filename, command.height, command.bitrate, command));
+                    if (mExportScheduler.cancel(null, getBenchmarkDir().getAbsolutePath())) {
+                        // Stop the running calibration export
+                        synchronized (mBenchmarkLock) {
+                            if (mBenchmarkEditor != null) {
+                                mBenchmarkEditor.cancelExport(
+                                        getBenchmarkOutputFile().getAbsolutePath());
+                            }
+                        }
+                    }
                     break;
                 }
 
-                case OP_VIDEO_EDITOR_CANCEL_EXPORT: {
-                    logd("OP_VIDEO_EDITOR_CANCEL_EXPORT");
-                    videoEditor.cancelExport(intent.getStringExtra(PARAM_FILENAME));
-                    completeRequest(intent, videoEditor, null, null, null, true);
+                case OP_VIDEO_EDITOR_BENCHMARK_EXPORT: {
+                    logd("OP_VIDEO_EDITOR_BENCHMARK_EXPORT");
+                    // Benchmark with the first item of the storyboard, be it a
+                    // video or an image
+                    final List<MediaItem> mediaItems = videoEditor.getAllMediaItems();
+                    if (mediaItems.size() == 0) {
+                        throw new IllegalArgumentException("No media item to benchmark in: "
+                                + projectPath);
+                    }
+
+                    final MediaItem mediaItem = mediaItems.get(0);
+                    command.filename = mediaItem.getFilename();
+                    command.className = mediaItem.getClass().getCanonicalName();
+                    command.renderingMode = mediaItem.getRenderingMode();
+                    if (mediaItem instanceof MediaVideoItem) {
+                        command.beginBoundary =
+                            ((MediaVideoItem)mediaItem).getBoundaryBeginTime();
+                    }
+                    command.aspectRatio = videoEditor.getAspectRatio();
+                    final ExportScheduler.ExportJob job = new ExportScheduler.ExportJob(
+                            projectPath, getBenchmarkDir().getAbsolutePath(), 0, 0, command);
+                    job.setPersistent(false);
+                    mExportScheduler.schedule(job);
                     break;
                 }
 
-                case OP_VIDEO_EDITOR_EXPORT_STATUS: {
-                    logd("OP_VIDEO_EDITOR_EXPORT_STATUS");
-                    completeRequest(intent, videoEditor, null, null, null, true);
+                case OP_VIDEO_EDITOR_CANCEL_EXPORT: {
+                    logd("OP_VIDEO_EDITOR_CANCEL_EXPORT");
+                    if (mExportScheduler.cancel(projectPath, command.filename)) {
+                        // Stop the running export
+                        videoEditor.cancelExport(command.filename);
+                    }
+                    completeRequest(command, videoEditor, null, null, null, true);
                     break;
                 }
 
@@ -1752,35 +2007,48 @@ public class ApiService extends Service {
                     logd("OP_VIDEO_EDITOR_SAVE: " + projectPath);
                     videoEditor.save();
 
+                    // Size the project picker thumbnail now so that the
+                    // picker does not decode the full thumbnail
+                    try {
+                        ImageUtils.savePickerThumbnail(projectPath,
+                                (int)getResources().getDimension(
+                                        R.dimen.project_picker_item_width),
+                                (int)getResources().getDimension(
+                                        R.dimen.project_picker_item_height));
+                    } catch (IOException ex) {
+                        Log.w(TAG, "Cannot save the picker thumbnail", ex);
+                    }
+
                     final VideoEditorProject videoProject = getProject(projectPath);
                     if (videoProject != null) {
                         videoProject.saveToXml();
                     }
 
-                    completeRequest(intent, videoEditor, null, null, null, true);
+                    completeRequest(command, videoEditor, null, null, null, true);
                     break;
                 }
 
                 case OP_VIDEO_EDITOR_RELEASE: {
                     logd("OP_VIDEO_EDITOR_RELEASE: " + projectPath);
-                    releaseEditor(projectPath);
-                    completeRequest(intent, videoEditor, null, null, null, true);
+                    // Keep the editor loaded so that reopening the project is fast
+                    mEditorCache.setActive(projectPath, false);
+                    completeRequest(command, videoEditor, null, null, null, true);
                     break;
                 }
 
                 case OP_VIDEO_EDITOR_DELETE: {
                     logd("OP_VIDEO_EDITOR_DELETE: " + projectPath);
-                    releaseEditor(projectPath);
+                    mEditorCache.release(projectPath);
                     // Delete all the files and the project folder.
                     FileUtils.deleteDir(new File(projectPath));
-                    completeRequest(intent, videoEditor, null, null, null, true);
+                    completeRequest(command, videoEditor, null, null, null, true);
                     break;
                 }
 
                 case OP_MEDIA_ITEM_ADD_VIDEO_URI: {
                     logd("OP_MEDIA_ITEM_ADD_VIDEO_URI: " +
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
-                    final Uri data = intent.getParcelableExtra(PARAM_FILENAME);
+                            command.itemId);
+                    final Uri data = command.uri;
                     String filename = null;
                     // Get the filename
                     Cursor cursor = null;
@@ -1801,12 +2069,12 @@ public class ApiService extends Service {
                     }
 
                     final MediaItem mediaItem = new MediaVideoItem(videoEditor,
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID),
+                            command.itemId,
                             filename,
-                            intent.getIntExtra(PARAM_MEDIA_ITEM_RENDERING_MODE, 0));
+                            command.renderingMode);
 
                     videoEditor.insertMediaItem(mediaItem,
-                            intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                            command.relativeItemId);
 
                     // If this is the first media item, change the aspect ratio
                     final Integer aspectRatio;
@@ -1818,23 +2086,23 @@ public class ApiService extends Service {
                     }
 
                     // Apply the theme if any
-                    final String themeId = intent.getStringExtra(PARAM_THEME);
+                    final String themeId = command.theme;
                     if (themeId != null) {
                         applyThemeToMediaItem(videoEditor, themeId, mediaItem);
                     }
 
-                    completeRequest(intent, videoEditor, null, new MovieMediaItem(mediaItem),
+                    completeRequest(command, videoEditor, null, new MovieMediaItem(mediaItem),
                             aspectRatio, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_MEDIA_ITEM_ADD_IMAGE_URI: {
                     logd("OP_MEDIA_ITEM_ADD_IMAGE_URI: "
-                        + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                        + command.itemId);
 
-                    final Uri data = intent.getParcelableExtra(PARAM_FILENAME);
+                    final Uri data = command.uri;
                     String filename = null;
                     // Get the filename
                     Cursor cursor = null;
@@ -1869,13 +2137,13 @@ public class ApiService extends Service {
                     }
 
                     final MediaItem mediaItem = new MediaImageItem(videoEditor,
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID),
+                            command.itemId,
                             filename,
-                            intent.getLongExtra(PARAM_DURATION, 0),
-                            intent.getIntExtra(PARAM_MEDIA_ITEM_RENDERING_MODE, 0));
+                            command.duration,
+                            command.renderingMode);
 
                     videoEditor.insertMediaItem(mediaItem,
-                            intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                            command.relativeItemId);
 
                     // If this is the first media item, change the aspect ratio
                     final Integer aspectRatio;
@@ -1887,22 +2155,22 @@ public class ApiService extends Service {
                     }
 
                     // Apply the theme if any
-                    final String themeId = intent.getStringExtra(PARAM_THEME);
+                    final String themeId = command.theme;
                     if (themeId != null) {
                         applyThemeToMediaItem(videoEditor, themeId, mediaItem);
                     }
 
-                    completeRequest(intent, videoEditor, null, new MovieMediaItem(mediaItem),
+                    completeRequest(command, videoEditor, null, new MovieMediaItem(mediaItem),
                             aspectRatio, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_MEDIA_ITEM_LOAD: {
-                    final Uri data = intent.getParcelableExtra(PARAM_FILENAME);
+                    final Uri data = command.uri;
                     logd("OP_MEDIA_ITEM_LOAD: " + data);
-                    final Intent requestIntent = intent;
+                    final ApiCommand requestCommand = command;
                     new Thread() {
                         @Override
                         public void run() {
@@ -1910,11 +2178,10 @@ public class ApiService extends Service {
                             FileOutputStream fos = null;
                             final File file = new File(projectPath, "download_" + generateId());
 
-                            final Intent statusIntent = mIntentPool.get();
-                            statusIntent.putExtra(PARAM_OP, OP_MEDIA_ITEM_LOAD_STATUS);
-                            statusIntent.putExtra(PARAM_PROJECT_PATH,
-                                    requestIntent.getStringExtra(PARAM_PROJECT_PATH));
-                            statusIntent.putExtra(PARAM_INTENT, requestIntent);
+                            final ApiCommand statusCommand = mCommandPool.get();
+                            statusCommand.op = OP_MEDIA_ITEM_LOAD_STATUS;
+                            statusCommand.projectPath = requestCommand.projectPath;
+                            statusCommand.originalCommand = requestCommand;
                             try {
                                 is = getContentResolver().openInputStream(data);
                                 // Save the input stream to a file
@@ -1926,7 +2193,7 @@ public class ApiService extends Service {
                                 }
                             } catch (Exception ex) {
                                 Log.e(TAG, "Cannot open input stream for: " + data);
-                                statusIntent.putExtra(PARAM_EXCEPTION, ex);
+                                statusCommand.exception = ex;
                                 file.delete();
                             } finally {
                                 if (is != null) {
@@ -1947,7 +2214,7 @@ public class ApiService extends Service {
                                 }
                             }
 
-                            if (!statusIntent.hasExtra(PARAM_EXCEPTION)) {
+                            if (statusCommand.exception == null) {
                                 final String filename = file.getAbsolutePath();
                                 try {
                                     final String mimeType = getContentResolver().getType(data);
@@ -1957,22 +2224,21 @@ public class ApiService extends Service {
                                         if (ImageUtils.transformJpeg(filename, outputFile)) {
                                             // Delete the downloaded file
                                             file.delete();
-                                            statusIntent.putExtra(PARAM_FILENAME,
-                                                    outputFile.getAbsolutePath());
+                                            statusCommand.filename = outputFile.getAbsolutePath();
                                         } else {
-                                            statusIntent.putExtra(PARAM_FILENAME, filename);
+                                            statusCommand.filename = filename;
                                         }
                                     } else {
-                                        statusIntent.putExtra(PARAM_FILENAME, filename);
+                                        statusCommand.filename = filename;
                                     }
                                 } catch (Exception ex) {
                                     // Ignore the exception and continue
                                     Log.w(TAG, "Could not transform JPEG: " + filename, ex);
-                                    statusIntent.putExtra(PARAM_FILENAME, filename);
+                                    statusCommand.filename = filename;
                                 }
                             }
 
-                            mVideoThread.submit(statusIntent);
+                            mVideoThread.submit(statusCommand);
                         }
                     }.start();
 
@@ -1980,21 +2246,20 @@ public class ApiService extends Service {
                 }
 
                 case OP_MEDIA_ITEM_LOAD_STATUS: {
-                    final Intent originalIntent = (Intent)intent.getParcelableExtra(PARAM_INTENT);
-                    if (intent.hasExtra(PARAM_EXCEPTION)) { //
-                        final Exception exception =
-                            (Exception)intent.getSerializableExtra(PARAM_EXCEPTION);
-                        completeRequest(intent, videoEditor, exception, null, originalIntent,
+                    final ApiCommand originalCommand = command.originalCommand;
+                    if (command.exception != null) {
+                        final Exception exception = command.exception;
+                        completeRequest(command, videoEditor, exception, null, originalCommand,
                                 true);
                     } else {
-                        completeRequest(intent, videoEditor, null,
-                                intent.getStringExtra(PARAM_FILENAME), originalIntent, true);
+                        completeRequest(command, videoEditor, null,
+                                command.filename, originalCommand, true);
                     }
                     break;
                 }
 
                 case OP_MEDIA_ITEM_MOVE: {
-                    final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String mediaItemId = command.itemId;
                     logd("OP_MEDIA_ITEM_MOVE: " + mediaItemId);
 
                     // Determine the position of the media item we are moving
@@ -2019,12 +2284,11 @@ public class ApiService extends Service {
                     final Transition beginTransition = movedMediaItem.getBeginTransition();
                     final Transition endTransition = movedMediaItem.getEndTransition();
 
-                    final String afterMediaItemId = intent.getStringExtra(
-                            PARAM_RELATIVE_STORYBOARD_ITEM_ID);
+                    final String afterMediaItemId = command.relativeItemId;
                     videoEditor.moveMediaItem(mediaItemId, afterMediaItemId);
 
                     // Apply the theme if any
-                    final String themeId = intent.getStringExtra(PARAM_THEME);
+                    final String themeId = command.theme;
                     if (themeId != null) {
                         // Apply the theme at the removed position
                         applyThemeAfterMove(videoEditor, themeId, movedMediaItem,
@@ -2032,14 +2296,14 @@ public class ApiService extends Service {
                     }
 
                     final List<MovieMediaItem> mediaItemsCopy = copyMediaItems(mediaItems);
-                    completeRequest(intent, videoEditor, null, mediaItemsCopy, null, false);
+                    completeRequest(command, videoEditor, null, mediaItemsCopy, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_MEDIA_ITEM_REMOVE: {
-                    final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String mediaItemId = command.itemId;
                     logd("OP_MEDIA_ITEM_REMOVE: " + mediaItemId);
 
                     // Determine the position of the media item we are removing
@@ -2066,7 +2330,7 @@ public class ApiService extends Service {
 
                     // Apply the theme if any
                     MovieTransition movieTransition = null;
-                    final String themeId = intent.getStringExtra(PARAM_THEME);
+                    final String themeId = command.theme;
                     if (themeId != null && mediaItems.size() > 0) {
                         final Transition transition = applyThemeAfterRemove(videoEditor, themeId,
                                 removedItemPosition, beginTransition, endTransition);
@@ -2075,31 +2339,30 @@ public class ApiService extends Service {
                         }
                     }
 
-                    completeRequest(intent, videoEditor, null, movieTransition, null, false);
+                    completeRequest(command, videoEditor, null, movieTransition, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_MEDIA_ITEM_SET_RENDERING_MODE: {
-                    final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String mediaItemId = command.itemId;
                     logd("OP_MEDIA_ITEM_SET_RENDERING_MODE: " + mediaItemId);
 
                     final MediaItem mediaItem = videoEditor.getMediaItem(mediaItemId);
                     if (mediaItem == null) {
                         throw new IllegalArgumentException("MediaItem not found: " + mediaItemId);
                     }
-                    mediaItem.setRenderingMode(intent.getIntExtra(PARAM_MEDIA_ITEM_RENDERING_MODE,
-                            MediaItem.RENDERING_MODE_BLACK_BORDER));
+                    mediaItem.setRenderingMode(command.renderingMode);
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_MEDIA_ITEM_SET_DURATION: {
-                    final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String mediaItemId = command.itemId;
                     logd("OP_MEDIA_ITEM_SET_DURATION: " + mediaItemId);
 
                     final MediaImageItem mediaItem =
@@ -2108,7 +2371,7 @@ public class ApiService extends Service {
                         throw new IllegalArgumentException("MediaItem not found: " + mediaItemId);
                     }
 
-                    final long durationMs = intent.getLongExtra(PARAM_DURATION, 0);
+                    final long durationMs = command.duration;
                     mediaItem.setDuration(durationMs);
                     // Adjust all effects to the new duration
                     final List<Effect> effects = mediaItem.getAllEffects();
@@ -2116,23 +2379,23 @@ public class ApiService extends Service {
                         effect.setDuration(durationMs);
                     }
 
-                    completeRequest(intent, videoEditor, null, new MovieMediaItem(mediaItem), null,
+                    completeRequest(command, videoEditor, null, new MovieMediaItem(mediaItem), null,
                             false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_MEDIA_ITEM_SET_BOUNDARIES: {
-                    final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String mediaItemId = command.itemId;
                     final MediaVideoItem mediaItem =
                         (MediaVideoItem)videoEditor.getMediaItem(mediaItemId);
                     if (mediaItem == null) {
                         throw new IllegalArgumentException("MediaItem not found: " + mediaItemId);
                     }
 
-                    mediaItem.setExtractBoundaries(intent.getLongExtra(PARAM_BEGIN_BOUNDARY, 0),
-                            intent.getLongExtra(PARAM_END_BOUNDARY, 0));
+                    mediaItem.setExtractBoundaries(command.beginBoundary,
+                            command.endBoundary);
 
                     final List<Overlay> overlays = mediaItem.getAllOverlays();
                     if (overlays.size() > 0) {
@@ -2151,16 +2414,16 @@ public class ApiService extends Service {
                         }
                     }
 
-                    completeRequest(intent, videoEditor, null, new MovieMediaItem(mediaItem), null,
+                    completeRequest(command, videoEditor, null, new MovieMediaItem(mediaItem), null,
                             false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_MEDIA_ITEM_GET_THUMBNAILS: {
                     // Note that this command is executed in the thumbnail thread
-                    final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String mediaItemId = command.itemId;
                     logd("OP_MEDIA_ITEM_GET_THUMBNAILS: " + mediaItemId);
 
                     final MediaItem mediaItem = videoEditor.getMediaItem(mediaItemId);
@@ -2168,38 +2431,35 @@ public class ApiService extends Service {
                         throw new IllegalArgumentException("MediaItem not found: " + mediaItemId);
                     }
 
-                    final VideoEditor ve = videoEditor; // Just to make it "final"
-                    mediaItem.getThumbnailList(
-                            intent.getIntExtra(PARAM_WIDTH, 0),
-                            intent.getIntExtra(PARAM_HEIGHT, 0),
-                            intent.getLongExtra(PARAM_START_TIME, 0),
-                            intent.getLongExtra(PARAM_END_TIME, 0),
-                            intent.getIntExtra(PARAM_COUNT, 0),
-                            intent.getIntArrayExtra(PARAM_INDICES),
-                            new GetThumbnailListCallback() {
-                                public void onThumbnail(Bitmap bitmap, int index) {
-                                    completeRequest(
-                                            intent, ve, null, bitmap,
-                                            Integer.valueOf(index), false);
-                                }
-                            }
-                            );
+                    final ThumbnailListConverter converter =
+                        new ThumbnailListConverter(command, videoEditor);
+                    try {
+                        mediaItem.getThumbnailList(command.width,
+                                command.height,
+                                command.startTime,
+                                command.endTime,
+                                command.count,
+                                command.indices,
+                                converter);
+                    } finally {
+                        converter.release();
+                    }
 
-                    completeRequest(intent, videoEditor, null, null, null, true);
+                    completeRequest(command, videoEditor, null, null, null, true);
                     break;
                 }
 
                 case OP_MEDIA_ITEM_SET_VOLUME: {
-                    final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String mediaItemId = command.itemId;
                     logd("OP_MEDIA_ITEM_SET_VOLUME: " + mediaItemId);
 
                     final MediaItem mediaItem = videoEditor.getMediaItem(mediaItemId);
                     if (mediaItem != null && mediaItem instanceof MediaVideoItem) {
-                        ((MediaVideoItem)mediaItem).setVolume(intent.getIntExtra(PARAM_VOLUME, 0));
+                        ((MediaVideoItem)mediaItem).setVolume(command.volume);
 
-                        completeRequest(intent, videoEditor, null, null, null, false);
+                        completeRequest(command, videoEditor, null, null, null, false);
                         generatePreview(videoEditor, false);
-                        completeRequest(intent);
+                        completeRequest(command);
                     } else {
                         throw new IllegalArgumentException("MediaItem not found: " + mediaItemId);
                     }
@@ -2207,17 +2467,16 @@ public class ApiService extends Service {
                 }
 
                 case OP_MEDIA_ITEM_SET_MUTE: {
-                    final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String mediaItemId = command.itemId;
                     logd("OP_MEDIA_ITEM_SET_MUTE: " + mediaItemId);
 
                     final MediaItem mediaItem = videoEditor.getMediaItem(mediaItemId);
                     if (mediaItem != null && mediaItem instanceof MediaVideoItem) {
-                        ((MediaVideoItem)mediaItem).setMute(intent.getBooleanExtra(PARAM_MUTE,
-                                false));
+                        ((MediaVideoItem)mediaItem).setMute(command.mute);
 
-                        completeRequest(intent, videoEditor, null, null, null, false);
+                        completeRequest(command, videoEditor, null, null, null, false);
                         generatePreview(videoEditor, false);
-                        completeRequest(intent);
+                        completeRequest(command);
                     } else {
                         throw new IllegalArgumentException("MediaItem not found: " + mediaItemId);
                     }
@@ -2225,7 +2484,7 @@ public class ApiService extends Service {
                 }
 
                 case OP_MEDIA_ITEM_EXTRACT_AUDIO_WAVEFORM: {
-                    final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String mediaItemId = command.itemId;
                     logd("OP_MEDIA_ITEM_EXTRACT_AUDIO_WAVEFORM: " + mediaItemId);
 
                     final MediaItem mediaItem = videoEditor.getMediaItem(mediaItemId);
@@ -2233,11 +2492,11 @@ public class ApiService extends Service {
                         final MediaVideoItem movieMediaItem = ((MediaVideoItem)mediaItem);
                         final WaveformData waveformData = movieMediaItem.getWaveformData();
                         if (waveformData == null) {
-                            extractMediaItemAudioWaveform(intent, videoEditor, movieMediaItem);
-                            completeRequest(intent, videoEditor, null,
+                            extractMediaItemAudioWaveform(command, videoEditor, movieMediaItem);
+                            completeRequest(command, videoEditor, null,
                                     movieMediaItem.getWaveformData(), null, true);
                         } else {
-                            completeRequest(intent, videoEditor, null, waveformData, null, true);
+                            completeRequest(command, videoEditor, null, waveformData, null, true);
                         }
                     } else {
                         throw new IllegalArgumentException("MediaItem not found: " + mediaItemId);
@@ -2247,10 +2506,9 @@ public class ApiService extends Service {
 
                 case OP_TRANSITION_INSERT_ALPHA: {
                     logd("OP_TRANSITION_INSERT_ALPHA: "
-                            + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                            + command.itemId);
 
-                    final String afterMediaItemId =
-                        intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID);
+                    final String afterMediaItemId = command.relativeItemId;
                     final MediaItem afterMediaItem;
                     if (afterMediaItemId != null) {
                         afterMediaItem = videoEditor.getMediaItem(afterMediaItemId);
@@ -2258,34 +2516,30 @@ public class ApiService extends Service {
                         afterMediaItem = null;
                     }
 
-                    final int maskRawResourceId = intent.getIntExtra(PARAM_TRANSITION_MASK,
-                            R.raw.mask_contour);
+                    final int maskRawResourceId = command.transitionMask;
 
                     final MediaItem beforeMediaItem = nextMediaItem(videoEditor, afterMediaItemId);
-                    final Transition transition = new TransitionAlpha(
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID),
+                    final Transition transition = new TransitionAlpha(command.itemId,
                             afterMediaItem, beforeMediaItem,
-                            intent.getLongExtra(PARAM_DURATION, 0),
-                            intent.getIntExtra(PARAM_TRANSITION_BEHAVIOR,
-                                    Transition.BEHAVIOR_LINEAR),
+                            command.duration,
+                            command.transitionBehavior,
                                     FileUtils.getMaskFilename(getApplicationContext(),
                                             maskRawResourceId),
-                            intent.getIntExtra(PARAM_TRANSITION_BLENDING, 100),
-                            intent.getBooleanExtra(PARAM_TRANSITION_INVERT, false));
+                            command.transitionBlending,
+                            command.transitionInvert);
                     videoEditor.addTransition(transition);
 
-                    completeRequest(intent, videoEditor, null, transition, null, false);
+                    completeRequest(command, videoEditor, null, transition, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_TRANSITION_INSERT_CROSSFADE: {
                     logd("OP_TRANSITION_INSERT_CROSSFADE: "
-                        + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                        + command.itemId);
 
-                    final String afterMediaItemId =
-                        intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID);
+                    final String afterMediaItemId = command.relativeItemId;
                     final MediaItem afterMediaItem;
                     if (afterMediaItemId != null) {
                         afterMediaItem = videoEditor.getMediaItem(afterMediaItemId);
@@ -2294,26 +2548,23 @@ public class ApiService extends Service {
                     }
 
                     final MediaItem beforeMediaItem = nextMediaItem(videoEditor, afterMediaItemId);
-                    final Transition transition = new TransitionCrossfade(
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID),
+                    final Transition transition = new TransitionCrossfade(command.itemId,
                             afterMediaItem, beforeMediaItem,
-                            intent.getLongExtra(PARAM_DURATION, 0),
-                            intent.getIntExtra(PARAM_TRANSITION_BEHAVIOR,
-                                    Transition.BEHAVIOR_LINEAR));
+                            command.duration,
+                            command.transitionBehavior);
                     videoEditor.addTransition(transition);
 
-                    completeRequest(intent, videoEditor, null, transition, null, false);
+                    completeRequest(command, videoEditor, null, transition, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_TRANSITION_INSERT_FADE_BLACK: {
                     logd("OP_TRANSITION_INSERT_FADE_TO_BLACK: "
-                            + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                            + command.itemId);
 
-                    final String afterMediaItemId =
-                        intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID);
+                    final String afterMediaItemId = command.relativeItemId;
                     final MediaItem afterMediaItem;
                     if (afterMediaItemId != null) {
                         afterMediaItem = videoEditor.getMediaItem(afterMediaItemId);
@@ -2322,26 +2573,23 @@ public class ApiService extends Service {
                     }
 
                     final MediaItem beforeMediaItem = nextMediaItem(videoEditor, afterMediaItemId);
-                    final Transition transition = new TransitionFadeBlack(
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID),
+                    final Transition transition = new TransitionFadeBlack(command.itemId,
                             afterMediaItem, beforeMediaItem,
-                            intent.getLongExtra(PARAM_DURATION, 0),
-                            intent.getIntExtra(PARAM_TRANSITION_BEHAVIOR,
-                                    Transition.BEHAVIOR_LINEAR));
+                            command.duration,
+                            command.transitionBehavior);
                     videoEditor.addTransition(transition);
 
-                    completeRequest(intent, videoEditor, null, transition, null, false);
+                    completeRequest(command, videoEditor, null, transition, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_TRANSITION_INSERT_SLIDING: {
                     logd("OP_TRANSITION_INSERT_SLIDING: "
-                            + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                            + command.itemId);
 
-                    final String afterMediaItemId =
-                        intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID);
+                    final String afterMediaItemId = command.relativeItemId;
                     final MediaItem afterMediaItem;
                     if (afterMediaItemId != null) {
                         afterMediaItem = videoEditor.getMediaItem(afterMediaItemId);
@@ -2350,36 +2598,33 @@ public class ApiService extends Service {
                     }
 
                     final MediaItem beforeMediaItem = nextMediaItem(videoEditor, afterMediaItemId);
-                    final Transition transition = new TransitionSliding(
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID),
+                    final Transition transition = new TransitionSliding(command.itemId,
                             afterMediaItem, beforeMediaItem,
-                            intent.getLongExtra(PARAM_DURATION, 0),
-                            intent.getIntExtra(PARAM_TRANSITION_BEHAVIOR,
-                                    Transition.BEHAVIOR_LINEAR),
-                                    intent.getIntExtra(PARAM_TRANSITION_DIRECTION,
-                                            TransitionSliding.DIRECTION_RIGHT_OUT_LEFT_IN));
+                            command.duration,
+                            command.transitionBehavior,
+                                    command.transitionDirection);
                     videoEditor.addTransition(transition);
 
-                    completeRequest(intent, videoEditor, null, transition, null, false);
+                    completeRequest(command, videoEditor, null, transition, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_TRANSITION_REMOVE: {
                     logd("OP_TRANSITION_REMOVE: "
-                        + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                        + command.itemId);
 
-                    videoEditor.removeTransition(intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                    videoEditor.removeTransition(command.itemId);
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_TRANSITION_SET_DURATION: {
-                    final String transitionId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String transitionId = command.itemId;
                     logd("OP_TRANSITION_SET_DURATION: " + transitionId);
 
                     final Transition transition = videoEditor.getTransition(transitionId);
@@ -2387,16 +2632,16 @@ public class ApiService extends Service {
                         throw new IllegalArgumentException("Transition not found: " +
                                 transitionId);
                     }
-                    transition.setDuration(intent.getLongExtra(PARAM_DURATION, 0));
+                    transition.setDuration(command.duration);
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_TRANSITION_GET_THUMBNAIL: {
-                    final String transitionId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String transitionId = command.itemId;
                     logd("OP_TRANSITION_GET_THUMBNAIL: " + transitionId);
 
                     final Transition transition = videoEditor.getTransition(transitionId);
@@ -2405,7 +2650,7 @@ public class ApiService extends Service {
                                 transitionId);
                     }
 
-                    final int height = intent.getIntExtra(PARAM_HEIGHT, 0);
+                    final int height = command.height;
                     final MediaItem afterMediaItem = transition.getAfterMediaItem();
                     final Bitmap[] thumbnails = new Bitmap[2];
                     if (afterMediaItem != null) {
@@ -2425,19 +2670,20 @@ public class ApiService extends Service {
                         thumbnails[1] = null;
                     }
 
-                    completeRequest(intent, videoEditor, null, thumbnails, null, true);
+                    thumbnails[0] = convertThumbnail(thumbnails[0], command.bitmapConfig);
+                    thumbnails[1] = convertThumbnail(thumbnails[1], command.bitmapConfig);
+                    completeRequest(command, videoEditor, null, thumbnails, null, true);
                     break;
                 }
 
                 case OP_EFFECT_ADD_COLOR: {
                     logd("OP_EFFECT_ADD_COLOR: "
-                            + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                            + command.itemId);
 
-                    final MediaItem mediaItem = videoEditor.getMediaItem(
-                            intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                    final MediaItem mediaItem = videoEditor.getMediaItem(command.relativeItemId);
                     if (mediaItem == null) {
                         throw new IllegalArgumentException("MediaItem not found: " +
-                                intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                                command.relativeItemId);
                     }
 
                     // Remove any existing effect
@@ -2447,29 +2693,28 @@ public class ApiService extends Service {
                     }
 
                     final Effect effect = new EffectColor(mediaItem,
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID),
-                            intent.getLongExtra(PARAM_START_TIME, -1),
-                            intent.getLongExtra(PARAM_DURATION, 0),
-                            intent.getIntExtra(PARAM_EFFECT_TYPE, -1),
-                            intent.getIntExtra(PARAM_EFFECT_PARAM, -1));
+                            command.itemId,
+                            command.startTime,
+                            command.duration,
+                            command.effectType,
+                            command.effectParam);
                     mediaItem.addEffect(effect);
 
-                    completeRequest(intent, videoEditor, null, new MovieEffect(effect), null,
+                    completeRequest(command, videoEditor, null, new MovieEffect(effect), null,
                             false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_EFFECT_ADD_IMAGE_KEN_BURNS: {
                     logd("OP_EFFECT_ADD_IMAGE_KEN_BURNS: "
-                            + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                            + command.itemId);
 
-                    final MediaItem mediaItem = videoEditor.getMediaItem(
-                            intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                    final MediaItem mediaItem = videoEditor.getMediaItem(command.relativeItemId);
                     if (mediaItem == null) {
                         throw new IllegalArgumentException("MediaItem not found: " +
-                                intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                                command.relativeItemId);
                     }
 
                     // Remove any existing effect
@@ -2479,46 +2724,44 @@ public class ApiService extends Service {
                     }
 
                     final Effect effect = new EffectKenBurns(mediaItem,
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID),
-                            (Rect)intent.getParcelableExtra(PARAM_MEDIA_ITEM_START_RECT),
-                            (Rect)intent.getParcelableExtra(PARAM_MEDIA_ITEM_END_RECT),
-                            intent.getLongExtra(PARAM_START_TIME, 0),
-                            intent.getLongExtra(PARAM_DURATION, 0));
+                            command.itemId,
+                            (Rect)command.startRect,
+                            (Rect)command.endRect,
+                            command.startTime,
+                            command.duration);
                     mediaItem.addEffect(effect);
 
-                    completeRequest(intent, videoEditor, null, new MovieEffect(effect), null,
+                    completeRequest(command, videoEditor, null, new MovieEffect(effect), null,
                             false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_EFFECT_REMOVE: {
-                    logd("OP_EFFECT_REMOVE: " + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                    logd("OP_EFFECT_REMOVE: " + command.itemId);
 
-                    final MediaItem mediaItem = videoEditor.getMediaItem(
-                            intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                    final MediaItem mediaItem = videoEditor.getMediaItem(command.relativeItemId);
                     if (mediaItem == null) {
                         throw new IllegalArgumentException("MediaItem not found: " +
-                                intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                                command.relativeItemId);
                     }
 
-                    mediaItem.removeEffect(intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                    mediaItem.removeEffect(command.itemId);
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_OVERLAY_ADD: {
-                    logd("OP_OVERLAY_ADD: " + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                    logd("OP_OVERLAY_ADD: " + command.itemId);
 
-                    final MediaItem mediaItem = videoEditor.getMediaItem(
-                            intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                    final MediaItem mediaItem = videoEditor.getMediaItem(command.relativeItemId);
                     if (mediaItem == null) {
                         throw new IllegalArgumentException("MediaItem not found: " +
-                                intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                                command.relativeItemId);
                     }
 
                     // Remove any existing overlays
@@ -2536,18 +2779,18 @@ public class ApiService extends Service {
                         scaledHeight = ((MediaImageItem)mediaItem).getScaledHeight();
                     }
 
-                    final Bundle userAttributes = intent.getBundleExtra(PARAM_ATTRIBUTES);
+                    final Bundle userAttributes = command.attributes;
 
                     final int overlayType = MovieOverlay.getType(userAttributes);
                     final String title = MovieOverlay.getTitle(userAttributes);
                     final String subTitle = MovieOverlay.getSubtitle(userAttributes);
 
                     final OverlayFrame overlay = new OverlayFrame(mediaItem,
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID),
+                            command.itemId,
                             ImageUtils.buildOverlayBitmap(getApplicationContext(), null,
                                     overlayType, title, subTitle, scaledWidth, scaledHeight),
-                            intent.getLongExtra(PARAM_START_TIME, -1),
-                            intent.getLongExtra(PARAM_DURATION, 0));
+                            command.startTime,
+                            command.duration);
 
                     // Set the user attributes
                     for (String name : userAttributes.keySet()) {
@@ -2560,99 +2803,92 @@ public class ApiService extends Service {
                     }
                     mediaItem.addOverlay(overlay);
 
-                    completeRequest(intent, videoEditor, null, new MovieOverlay(overlay), null,
+                    completeRequest(command, videoEditor, null, new MovieOverlay(overlay), null,
                             false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_OVERLAY_REMOVE: {
-                    logd("OP_OVERLAY_REMOVE: " + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                    logd("OP_OVERLAY_REMOVE: " + command.itemId);
 
-                    final MediaItem mediaItem = videoEditor.getMediaItem(
-                            intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                    final MediaItem mediaItem = videoEditor.getMediaItem(command.relativeItemId);
                     if (mediaItem == null) {
                         throw new IllegalArgumentException("MediaItem not found: " +
-                                intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                                command.relativeItemId);
                     }
 
-                    mediaItem.removeOverlay(intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                    mediaItem.removeOverlay(command.itemId);
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_OVERLAY_SET_START_TIME: {
                     logd("OP_OVERLAY_SET_START_TIME: "
-                            + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                            + command.itemId);
 
-                    final MediaItem mediaItem = videoEditor.getMediaItem(
-                            intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                    final MediaItem mediaItem = videoEditor.getMediaItem(command.relativeItemId);
                     if (mediaItem == null) {
                         throw new IllegalArgumentException("MediaItem not found: " +
-                                intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                                command.relativeItemId);
                     }
 
-                    final Overlay overlay = mediaItem.getOverlay(
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                    final Overlay overlay = mediaItem.getOverlay(command.itemId);
                     if (overlay == null) {
                         throw new IllegalArgumentException("Overlay not found: " +
-                                intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                                command.itemId);
                     }
 
-                    overlay.setStartTime(intent.getLongExtra(PARAM_START_TIME, 0));
+                    overlay.setStartTime(command.startTime);
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_OVERLAY_SET_DURATION: {
                     logd("OP_OVERLAY_SET_DURATION: "
-                            + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                            + command.itemId);
 
-                    final MediaItem mediaItem = videoEditor.getMediaItem(
-                            intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                    final MediaItem mediaItem = videoEditor.getMediaItem(command.relativeItemId);
                     if (mediaItem == null) {
                         throw new IllegalArgumentException("MediaItem not found: " +
-                                intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                                command.relativeItemId);
                     }
 
-                    final Overlay overlay = mediaItem.getOverlay(
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                    final Overlay overlay = mediaItem.getOverlay(command.itemId);
                     if (overlay == null) {
                         throw new IllegalArgumentException("Overlay not found: " +
-                                intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                                command.itemId);
                     }
 
-                    overlay.setDuration(intent.getLongExtra(PARAM_DURATION, 0));
+                    overlay.setDuration(command.duration);
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_OVERLAY_SET_ATTRIBUTES: {
                     logd("OP_OVERLAY_SET_ATTRIBUTES: "
-                            + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                            + command.itemId);
 
-                    final MediaItem mediaItem = videoEditor.getMediaItem(
-                            intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                    final MediaItem mediaItem = videoEditor.getMediaItem(command.relativeItemId);
                     if (mediaItem == null) {
                         throw new IllegalArgumentException("MediaItem not found: " +
-                                intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID));
+                                command.relativeItemId);
                     }
 
-                    final Overlay overlay = mediaItem.getOverlay(
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                    final Overlay overlay = mediaItem.getOverlay(command.itemId);
                     if (overlay == null) {
                         throw new IllegalArgumentException("Overlay not found: " +
-                                intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                                command.itemId);
                     }
 
                     final int scaledWidth, scaledHeight;
@@ -2664,7 +2900,7 @@ public class ApiService extends Service {
                         scaledHeight = ((MediaImageItem)mediaItem).getScaledHeight();
                     }
 
-                    final Bundle userAttributes = intent.getBundleExtra(PARAM_ATTRIBUTES);
+                    final Bundle userAttributes = command.attributes;
                     final int overlayType = MovieOverlay.getType(userAttributes);
                     final String title = MovieOverlay.getTitle(userAttributes);
                     final String subTitle = MovieOverlay.getSubtitle(userAttributes);
@@ -2682,16 +2918,16 @@ public class ApiService extends Service {
                         }
                     }
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, true);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_AUDIO_TRACK_ADD: {
-                    logd("OP_AUDIO_TRACK_ADD: " + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                    logd("OP_AUDIO_TRACK_ADD: " + command.itemId);
 
-                    final Uri data = intent.getParcelableExtra(PARAM_FILENAME);
+                    final Uri data = command.uri;
                     String filename = null;
                     // Get the filename
                     Cursor cursor = null;
@@ -2712,10 +2948,10 @@ public class ApiService extends Service {
                     }
 
                     final AudioTrack audioTrack = new AudioTrack(videoEditor,
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID), filename);
+                            command.itemId, filename);
                     audioTrack.enableDucking(DUCK_THRESHOLD, DUCK_TRACK_VOLUME);
                     audioTrack.setVolume(DEFAULT_AUDIO_TRACK_VOLUME);
-                    if (intent.getBooleanExtra(PARAM_LOOP, false)) {
+                    if (command.loop) {
                         audioTrack.enableLoop();
                     } else {
                         audioTrack.disableLoop();
@@ -2723,28 +2959,28 @@ public class ApiService extends Service {
 
                     videoEditor.addAudioTrack(audioTrack);
 
-                    completeRequest(intent, videoEditor, null, new MovieAudioTrack(audioTrack),
+                    completeRequest(command, videoEditor, null, new MovieAudioTrack(audioTrack),
                             null, false);
                     // This is needed to decode the audio file into a PCM file
                     generatePreview(videoEditor, false);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_AUDIO_TRACK_REMOVE: {
                     logd("OP_AUDIO_TRACK_REMOVE: "
-                            + intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                            + command.itemId);
 
-                    videoEditor.removeAudioTrack(intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID));
+                    videoEditor.removeAudioTrack(command.itemId);
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, false);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_AUDIO_TRACK_SET_BOUNDARIES: {
-                    final String audioTrackId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String audioTrackId = command.itemId;
                     logd("OP_AUDIO_TRACK_SET_BOUNDARIES: " + audioTrackId);
 
                     final AudioTrack audioTrack = videoEditor.getAudioTrack(audioTrackId);
@@ -2753,17 +2989,17 @@ public class ApiService extends Service {
                                 audioTrackId);
                     }
 
-                    audioTrack.setExtractBoundaries(intent.getLongExtra(PARAM_BEGIN_BOUNDARY, 0),
-                            intent.getLongExtra(PARAM_END_BOUNDARY, 0));
+                    audioTrack.setExtractBoundaries(command.beginBoundary,
+                            command.endBoundary);
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, false);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_AUDIO_TRACK_SET_LOOP: {
-                    final String audioTrackId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String audioTrackId = command.itemId;
                     logd("OP_AUDIO_TRACK_SET_LOOP: " + audioTrackId);
 
                     final AudioTrack audioTrack = videoEditor.getAudioTrack(audioTrackId);
@@ -2772,20 +3008,20 @@ public class ApiService extends Service {
                                 audioTrackId);
                     }
 
-                    if (intent.getBooleanExtra(PARAM_LOOP, false)) {
+                    if (command.loop) {
                         audioTrack.enableLoop();
                     } else {
                         audioTrack.disableLoop();
                     }
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, false);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_AUDIO_TRACK_SET_DUCK: {
-                    final String audioTrackId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String audioTrackId = command.itemId;
                     logd("OP_AUDIO_TRACK_SET_DUCK: " + audioTrackId);
 
                     final AudioTrack audioTrack = videoEditor.getAudioTrack(audioTrackId);
@@ -2794,20 +3030,20 @@ public class ApiService extends Service {
                                 audioTrackId);
                     }
 
-                    if (intent.getBooleanExtra(PARAM_DUCK, false)) {
+                    if (command.duck) {
                         audioTrack.enableDucking(DUCK_THRESHOLD, DUCK_TRACK_VOLUME);
                     } else {
                         audioTrack.disableDucking();
                     }
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, false);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_AUDIO_TRACK_SET_VOLUME: {
-                    final String audioTrackId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String audioTrackId = command.itemId;
                     logd("OP_AUDIO_TRACK_SET_VOLUME: " + audioTrackId);
 
                     final AudioTrack audioTrack = videoEditor.getAudioTrack(audioTrackId);
@@ -2816,16 +3052,16 @@ public class ApiService extends Service {
                                 audioTrackId);
                     }
 
-                    audioTrack.setVolume(intent.getIntExtra(PARAM_VOLUME, 0));
+                    audioTrack.setVolume(command.volume);
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, false);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_AUDIO_TRACK_SET_MUTE: {
-                    final String audioTrackId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String audioTrackId = command.itemId;
                     logd("OP_AUDIO_TRACK_SET_MUTE: " + audioTrackId);
 
                     final AudioTrack audioTrack = videoEditor.getAudioTrack(audioTrackId);
@@ -2834,16 +3070,16 @@ public class ApiService extends Service {
                                 audioTrackId);
                     }
 
-                    audioTrack.setMute(intent.getBooleanExtra(PARAM_MUTE, false));
+                    audioTrack.setMute(command.mute);
 
-                    completeRequest(intent, videoEditor, null, null, null, false);
+                    completeRequest(command, videoEditor, null, null, null, false);
                     generatePreview(videoEditor, false);
-                    completeRequest(intent);
+                    completeRequest(command);
                     break;
                 }
 
                 case OP_AUDIO_TRACK_EXTRACT_AUDIO_WAVEFORM: {
-                    final String audioTrackId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String audioTrackId = command.itemId;
                     logd("OP_AUDIO_TRACK_EXTRACT_AUDIO_WAVEFORM: " + audioTrackId);
 
                     final AudioTrack audioTrack = videoEditor.getAudioTrack(audioTrackId);
@@ -2854,11 +3090,11 @@ public class ApiService extends Service {
 
                     final WaveformData waveformData = audioTrack.getWaveformData();
                     if (waveformData == null) {
-                        extractAudioTrackAudioWaveform(intent, videoEditor, audioTrack);
-                        completeRequest(intent, videoEditor, null, audioTrack.getWaveformData(),
+                        extractAudioTrackAudioWaveform(command, videoEditor, audioTrack);
+                        completeRequest(command, videoEditor, null, audioTrack.getWaveformData(),
                                 null, true);
                     } else {
-                        completeRequest(intent, videoEditor, null, waveformData, null, true);
+                        completeRequest(command, videoEditor, null, waveformData, null, true);
                     }
                     break;
                 }
@@ -2869,27 +3105,27 @@ public class ApiService extends Service {
             }
         } catch (Exception ex) {
             ex.printStackTrace();
-            completeRequest(intent, videoEditor, ex, null, null, true);
+            completeRequest(command, videoEditor, ex, null, null, true);
         }
     }
 
     /**
      * Complete the request
      *
-     * @param intent The intent
+     * @param command The command
      * @param videoEditor The video editor
      * @param exception The exception
      * @param result The result object
      * @param extraResult The extra result object
      * @param finalize true if the request should be finalized
      */
-    private void completeRequest(final Intent intent, final VideoEditor videoEditor,
+    private void completeRequest(final ApiCommand command, final VideoEditor videoEditor,
             final Exception exception, final Object result, final Object extraResult,
             final boolean finalize) {
         mHandler.post(new Runnable() {
             @Override
             public void run() {
-                onIntentProcessed(intent, videoEditor, result, extraResult, exception, finalize);
+                onCommandProcessed(command, videoEditor, result, extraResult, exception, finalize);
             }
         });
     }
@@ -2897,22 +3133,22 @@ public class ApiService extends Service {
     /**
      * Complete the request
      *
-     * @param intent The intent
+     * @param command The command
      */
-    private void completeRequest(final Intent intent) {
+    private void completeRequest(final ApiCommand command) {
         mHandler.post (new Runnable() {
             @Override
             public void run() {
-                finalizeRequest(intent);
-                mIntentPool.put(intent);
+                finalizeRequest(command);
+                mCommandPool.put(command);
             }
         });
     }
 
     /**
-     * Callback called after the specified intent is processed.
+     * Callback called after the specified command is processed.
      *
-     * @param intent The intent
+     * @param command The command
      * @param videoEditor The VideoEditor on which the operation was performed
      * @param result The result object
      * @param extraResult The extra result object
@@ -2920,15 +3156,15 @@ public class ApiService extends Service {
      * @param finalize true if the request should be finalized
      */
     @SuppressWarnings("unchecked")
-    public void onIntentProcessed(final Intent intent, VideoEditor videoEditor,
+    public void onCommandProcessed(final ApiCommand command, VideoEditor videoEditor,
             Object result, Object extraResult, Exception ex, boolean finalize) {
 
-        final String projectPath = intent.getStringExtra(PARAM_PROJECT_PATH);
-        final int op = intent.getIntExtra(PARAM_OP, -1);
+        final String projectPath = command.projectPath;
+        final int op = command.op;
         switch (op) {
             case OP_VIDEO_EDITOR_LOAD_PROJECTS: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
                 final List<VideoEditorProject> projects = (List<VideoEditorProject>)result;
@@ -2941,14 +3177,11 @@ public class ApiService extends Service {
 
             case OP_VIDEO_EDITOR_CREATE: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                // Release the old project
-                if (mVideoProject != null) {
-                    mVideoProject.release();
-                    mVideoProject = null;
-                }
+                // The old project remains in the editor cache
+                mVideoProject = null;
 
                 if (ex != null) {
                     FileUtils.deleteDir(new File(projectPath));
@@ -2967,14 +3200,11 @@ public class ApiService extends Service {
 
             case OP_VIDEO_EDITOR_LOAD: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                if (result != null) { // A new project was created
-                    if (mVideoProject != null) {
-                        mVideoProject.release();
-                        mVideoProject = null;
-                    }
+                if (result != null) {
+                    // The old project remains in the editor cache
                     mVideoProject = (VideoEditorProject)result;
                 }
 
@@ -2989,11 +3219,10 @@ public class ApiService extends Service {
 
             case OP_VIDEO_EDITOR_SET_ASPECT_RATIO: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final int aspectRatio = intent.getIntExtra(PARAM_ASPECT_RATIO,
-                        MediaProperties.ASPECT_RATIO_UNDEFINED);
+                final int aspectRatio = command.aspectRatio;
                 if (ex == null) {
                     final VideoEditorProject videoProject = getProject(projectPath);
                     if (videoProject != null) {
@@ -3010,10 +3239,10 @@ public class ApiService extends Service {
 
             case OP_VIDEO_EDITOR_APPLY_THEME: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String theme = intent.getStringExtra(PARAM_THEME);
+                final String theme = command.theme;
                 if (ex == null) {
                     final VideoEditorProject videoProject = getProject(projectPath);
                     if (videoProject != null) {
@@ -3031,11 +3260,10 @@ public class ApiService extends Service {
             }
 
             case OP_VIDEO_EDITOR_GENERATE_PREVIEW_PROGRESS: {
-                final String className = intent.getStringExtra(PARAM_ATTRIBUTES);
-                final String itemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
-                final int action = intent.getIntExtra(PARAM_ACTION,
-                        VideoEditor.MediaProcessingProgressListener.ACTION_DECODE);
-                final int progress = intent.getIntExtra(PARAM_PROGRESS_VALUE, 0);
+                final String className = command.className;
+                final String itemId = command.itemId;
+                final int action = command.action;
+                final int progress = command.progress;
 
                 for (ApiServiceListener listener : mListeners) {
                     listener.onVideoEditorGeneratePreviewProgress(projectPath, className, itemId,
@@ -3047,19 +3275,27 @@ public class ApiService extends Service {
 
             case OP_VIDEO_EDITOR_EXPORT: {
                 // The finalizeRequest() call and listener callbacks are done in
-                // OP_VIDEO_EDITOR_EXPORT_STATUS intent handling (where we are
-                // called originalIntent).
+                // OP_VIDEO_EDITOR_EXPORT_STATUS command handling (where we are
+                // called originalCommand).
+                if (ex != null) {
+                    // The export could not be scheduled
+                    finalizeRequest(command);
+                    for (ApiServiceListener listener : mListeners) {
+                        listener.onVideoEditorExportComplete(
+                                projectPath, command.filename, ex, false);
+                    }
+                }
                 break;
             }
 
             case OP_VIDEO_EDITOR_CANCEL_EXPORT: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
                 for (ApiServiceListener listener : mListeners) {
                     listener.onVideoEditorExportCanceled(projectPath,
-                            intent.getStringExtra(PARAM_FILENAME));
+                            command.filename);
                 }
                 break;
             }
@@ -3067,21 +3303,20 @@ public class ApiService extends Service {
             case OP_VIDEO_EDITOR_EXPORT_STATUS: {
                 // This operation is for the service internal use only
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String filename = intent.getStringExtra(PARAM_FILENAME);
-                if (intent.hasExtra(PARAM_EXCEPTION)) { // Complete
-                    final Intent originalIntent = (Intent)intent.getParcelableExtra(PARAM_INTENT);
-                    finalizeRequest(originalIntent);
-                    mIntentPool.put(originalIntent);
+                final String filename = command.filename;
+                if (command.complete) {
+                    final ApiCommand originalCommand = command.originalCommand;
+                    finalizeRequest(originalCommand);
+                    mCommandPool.put(originalCommand);
 
-                    final Exception exception =
-                        (Exception)intent.getSerializableExtra(PARAM_EXCEPTION);
+                    final Exception exception = command.exception;
                     final VideoEditorProject videoProject = getProject(projectPath);
-                    final boolean cancelled = intent.getBooleanExtra(PARAM_CANCELLED, false);
+                    final boolean cancelled = command.cancelled;
                     if (!cancelled && videoProject != null && exception == null) {
-                        final Uri uri = (Uri)intent.getParcelableExtra(PARAM_MOVIE_URI);
+                        final Uri uri = command.movieUri;
                         videoProject.addExportedMovieUri(uri);
                     }
 
@@ -3092,7 +3327,7 @@ public class ApiService extends Service {
                 } else { // Progress
                     for (ApiServiceListener listener : mListeners) {
                         listener.onVideoEditorExportProgress(projectPath, filename,
-                                intent.getIntExtra(PARAM_PROGRESS_VALUE, -1));
+                                command.progress);
                     }
 
                     // The original request is still pending
@@ -3102,7 +3337,7 @@ public class ApiService extends Service {
 
             case OP_VIDEO_EDITOR_SAVE: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
                 for (ApiServiceListener listener : mListeners) {
@@ -3113,15 +3348,12 @@ public class ApiService extends Service {
 
             case OP_VIDEO_EDITOR_RELEASE: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final VideoEditorProject videoProject = getProject(projectPath);
-                if (videoProject != null) {
-                    videoProject.release();
-                    if (mVideoProject == videoProject) {
-                        mVideoProject = null;
-                    }
+                // The project is released when its editor is evicted from the cache
+                if (mVideoProject != null && mVideoProject.getPath().equals(projectPath)) {
+                    mVideoProject = null;
                 }
 
                 for (ApiServiceListener listener : mListeners) {
@@ -3133,7 +3365,7 @@ public class ApiService extends Service {
 
             case OP_VIDEO_EDITOR_DELETE: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
                 final VideoEditorProject videoProject = getProject(projectPath);
@@ -3153,11 +3385,10 @@ public class ApiService extends Service {
 
             case OP_MEDIA_ITEM_ADD_VIDEO_URI: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String afterMediaItemId =
-                    intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID);
+                final String afterMediaItemId = command.relativeItemId;
 
                 final MovieMediaItem movieMediaItem = (MovieMediaItem)result;
                 final VideoEditorProject videoProject = getProject(projectPath);
@@ -3174,7 +3405,7 @@ public class ApiService extends Service {
 
                 for (ApiServiceListener listener : mListeners) {
                     listener.onMediaItemAdded(projectPath,
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID), movieMediaItem,
+                            command.itemId, movieMediaItem,
                             afterMediaItemId, MediaVideoItem.class, (Integer)extraResult, ex);
                 }
 
@@ -3183,11 +3414,10 @@ public class ApiService extends Service {
 
             case OP_MEDIA_ITEM_ADD_IMAGE_URI: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String afterMediaItemId =
-                    intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID);
+                final String afterMediaItemId = command.relativeItemId;
 
                 final MovieMediaItem movieMediaItem = (MovieMediaItem)result;
                 final VideoEditorProject videoProject = getProject(projectPath);
@@ -3204,7 +3434,7 @@ public class ApiService extends Service {
 
                 for (ApiServiceListener listener : mListeners) {
                     listener.onMediaItemAdded(projectPath,
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID), movieMediaItem,
+                            command.itemId, movieMediaItem,
                             afterMediaItemId, MediaImageItem.class, (Integer)extraResult, ex);
                 }
 
@@ -3214,10 +3444,10 @@ public class ApiService extends Service {
             case OP_MEDIA_ITEM_LOAD: {
                 // Note that this message is handled only if the download
                 // cannot start.
-                final Uri data = (Uri)intent.getParcelableExtra(PARAM_FILENAME);
-                final String mimeType = intent.getStringExtra(PARAM_ATTRIBUTES);
+                final Uri data = command.uri;
+                final String mimeType = command.mimeType;
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
                 for (ApiServiceListener listener : mListeners) {
@@ -3228,17 +3458,17 @@ public class ApiService extends Service {
 
             case OP_MEDIA_ITEM_LOAD_STATUS: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final Intent originalIntent = (Intent)intent.getParcelableExtra(PARAM_INTENT);
-                final Uri data = (Uri)originalIntent.getParcelableExtra(PARAM_FILENAME);
-                final String mimeType = originalIntent.getStringExtra(PARAM_ATTRIBUTES);
+                final ApiCommand originalCommand = command.originalCommand;
+                final Uri data = originalCommand.uri;
+                final String mimeType = originalCommand.mimeType;
 
-                finalizeRequest(originalIntent);
-                mIntentPool.put(originalIntent);
+                finalizeRequest(originalCommand);
+                mCommandPool.put(originalCommand);
 
-                final String filename = intent.getStringExtra(PARAM_FILENAME);
+                final String filename = command.filename;
 
                 if (ex == null && filename != null) {
                     final VideoEditorProject videoProject = getProject(projectPath);
@@ -3253,7 +3483,7 @@ public class ApiService extends Service {
 
             case OP_MEDIA_ITEM_MOVE: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
                 if (ex == null) {
@@ -3265,8 +3495,8 @@ public class ApiService extends Service {
 
                 for (ApiServiceListener listener : mListeners) {
                     listener.onMediaItemMoved(projectPath,
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID),
-                            intent.getStringExtra(PARAM_RELATIVE_STORYBOARD_ITEM_ID), ex);
+                            command.itemId,
+                            command.relativeItemId, ex);
                 }
 
                 break;
@@ -3274,10 +3504,10 @@ public class ApiService extends Service {
 
             case OP_MEDIA_ITEM_REMOVE: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                final String mediaItemId = command.itemId;
                 final MovieTransition transition = (MovieTransition)result;
                 if (ex == null) {
                     final VideoEditorProject videoProject = getProject(projectPath);
@@ -3295,12 +3525,11 @@ public class ApiService extends Service {
 
             case OP_MEDIA_ITEM_SET_RENDERING_MODE: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
-                final int renderingMode = intent.getIntExtra(PARAM_MEDIA_ITEM_RENDERING_MODE,
-                        MediaItem.RENDERING_MODE_BLACK_BORDER);
+                final String mediaItemId = command.itemId;
+                final int renderingMode = command.renderingMode;
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
@@ -3325,10 +3554,10 @@ public class ApiService extends Service {
 
             case OP_MEDIA_ITEM_SET_DURATION: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                final String mediaItemId = command.itemId;
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
@@ -3345,7 +3574,7 @@ public class ApiService extends Service {
 
                 for (ApiServiceListener listener : mListeners) {
                     listener.onMediaItemDurationSet(projectPath, mediaItemId,
-                            intent.getLongExtra(PARAM_DURATION, 0), ex);
+                            command.duration, ex);
                 }
 
                 break;
@@ -3353,10 +3582,10 @@ public class ApiService extends Service {
 
             case OP_MEDIA_ITEM_SET_BOUNDARIES: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                final String mediaItemId = command.itemId;
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
@@ -3376,8 +3605,8 @@ public class ApiService extends Service {
 
                 for (ApiServiceListener listener : mListeners) {
                     listener.onMediaItemBoundariesSet(projectPath, mediaItemId,
-                            intent.getLongExtra(PARAM_BEGIN_BOUNDARY, 0),
-                            intent.getLongExtra(PARAM_END_BOUNDARY, 0), ex);
+                            command.beginBoundary,
+                            command.endBoundary, ex);
                 }
 
                 break;
@@ -3385,7 +3614,7 @@ public class ApiService extends Service {
 
             case OP_MEDIA_ITEM_GET_THUMBNAILS: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                     break;
                 }
 
@@ -3394,8 +3623,8 @@ public class ApiService extends Service {
                 boolean used = false;
                 for (ApiServiceListener listener : mListeners) {
                     used |= listener.onMediaItemThumbnail(projectPath,
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID),
-                            bitmap, index, intent.getIntExtra(PARAM_TOKEN, 0),
+                            command.itemId,
+                            bitmap, index, command.token,
                             ex);
                 }
 
@@ -3410,17 +3639,17 @@ public class ApiService extends Service {
 
             case OP_MEDIA_ITEM_SET_VOLUME: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
-                    final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String mediaItemId = command.itemId;
                     final MovieMediaItem mediaItem = videoProject.getMediaItem(mediaItemId);
                     if (mediaItem != null) {
                         videoProject.setClean(false);
                         if (ex == null) {
-                            mediaItem.setVolume(intent.getIntExtra(PARAM_VOLUME, 0));
+                            mediaItem.setVolume(command.volume);
                         } else {
                             mediaItem.setAppVolume(mediaItem.getVolume());
                         }
@@ -3432,17 +3661,17 @@ public class ApiService extends Service {
 
             case OP_MEDIA_ITEM_SET_MUTE: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
-                    final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String mediaItemId = command.itemId;
                     final MovieMediaItem mediaItem = videoProject.getMediaItem(mediaItemId);
                     if (mediaItem != null) {
                         videoProject.setClean(false);
                         if (ex == null) {
-                            mediaItem.setMute(intent.getBooleanExtra(PARAM_MUTE, false));
+                            mediaItem.setMute(command.mute);
                         } else {
                             mediaItem.setAppMute(mediaItem.isMuted());
                         }
@@ -3454,11 +3683,11 @@ public class ApiService extends Service {
 
             case OP_MEDIA_ITEM_EXTRACT_AUDIO_WAVEFORM_STATUS: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
-                final int progress = intent.getIntExtra(PARAM_PROGRESS_VALUE, 0);
+                final String mediaItemId = command.itemId;
+                final int progress = command.progress;
 
                 for (ApiServiceListener listener : mListeners) {
                     listener.onMediaItemExtractAudioWaveformProgress(projectPath, mediaItemId,
@@ -3470,10 +3699,10 @@ public class ApiService extends Service {
 
             case OP_MEDIA_ITEM_EXTRACT_AUDIO_WAVEFORM: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String mediaItemId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                final String mediaItemId = command.itemId;
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (ex == null && videoProject != null) {
@@ -3498,11 +3727,10 @@ public class ApiService extends Service {
             case OP_TRANSITION_INSERT_FADE_BLACK:
             case OP_TRANSITION_INSERT_SLIDING: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String afterMediaItemId = intent.getStringExtra(
-                        PARAM_RELATIVE_STORYBOARD_ITEM_ID);
+                final String afterMediaItemId = command.relativeItemId;
 
                 final MovieTransition movieTransition;
                 final VideoEditorProject videoProject = getProject(projectPath);
@@ -3529,10 +3757,10 @@ public class ApiService extends Service {
 
             case OP_TRANSITION_REMOVE: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String transitionId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                final String transitionId = command.itemId;
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
@@ -3550,11 +3778,11 @@ public class ApiService extends Service {
 
             case OP_TRANSITION_SET_DURATION: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String transitionId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
-                final long durationMs = intent.getLongExtra(PARAM_DURATION, 0);
+                final String transitionId = command.itemId;
+                final long durationMs = command.duration;
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
@@ -3578,14 +3806,14 @@ public class ApiService extends Service {
 
             case OP_TRANSITION_GET_THUMBNAIL: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
                 final Bitmap[] bitmaps = (Bitmap[])result;
                 boolean used = false;
                 for (ApiServiceListener listener : mListeners) {
                     used |= listener.onTransitionThumbnails(projectPath,
-                            intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID),
+                            command.itemId,
                             bitmaps, ex);
                 }
 
@@ -3604,11 +3832,10 @@ public class ApiService extends Service {
 
             case OP_OVERLAY_ADD: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String mediaItemId = intent.getStringExtra(
-                        PARAM_RELATIVE_STORYBOARD_ITEM_ID);
+                final String mediaItemId = command.relativeItemId;
 
                 final MovieOverlay movieOverlay = (MovieOverlay)result;
                 final VideoEditorProject videoProject = getProject(projectPath);
@@ -3627,12 +3854,11 @@ public class ApiService extends Service {
 
             case OP_OVERLAY_REMOVE: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String mediaItemId = intent.getStringExtra(
-                        PARAM_RELATIVE_STORYBOARD_ITEM_ID);
-                final String overlayId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                final String mediaItemId = command.relativeItemId;
+                final String overlayId = command.itemId;
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
@@ -3650,13 +3876,12 @@ public class ApiService extends Service {
 
             case OP_OVERLAY_SET_START_TIME: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String mediaItemId = intent.getStringExtra(
-                        PARAM_RELATIVE_STORYBOARD_ITEM_ID);
-                final String overlayId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
-                final long startTimeMs = intent.getLongExtra(PARAM_START_TIME, 0);
+                final String mediaItemId = command.relativeItemId;
+                final String overlayId = command.itemId;
+                final long startTimeMs = command.startTime;
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
@@ -3681,13 +3906,12 @@ public class ApiService extends Service {
 
             case OP_OVERLAY_SET_DURATION: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String mediaItemId = intent.getStringExtra(
-                        PARAM_RELATIVE_STORYBOARD_ITEM_ID);
-                final String overlayId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
-                final long durationMs = intent.getLongExtra(PARAM_DURATION, 0);
+                final String mediaItemId = command.relativeItemId;
+                final String overlayId = command.itemId;
+                final long durationMs = command.duration;
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
@@ -3712,13 +3936,12 @@ public class ApiService extends Service {
 
             case OP_OVERLAY_SET_ATTRIBUTES: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String mediaItemId = intent.getStringExtra(
-                        PARAM_RELATIVE_STORYBOARD_ITEM_ID);
-                final String overlayId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
-                final Bundle userAttributes = intent.getBundleExtra(PARAM_ATTRIBUTES);
+                final String mediaItemId = command.relativeItemId;
+                final String overlayId = command.itemId;
+                final Bundle userAttributes = command.attributes;
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
@@ -3743,11 +3966,10 @@ public class ApiService extends Service {
             case OP_EFFECT_ADD_COLOR:
             case OP_EFFECT_ADD_IMAGE_KEN_BURNS:{
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String mediaItemId = intent.getStringExtra(
-                        PARAM_RELATIVE_STORYBOARD_ITEM_ID);
+                final String mediaItemId = command.relativeItemId;
 
                 final MovieEffect movieEffect = (MovieEffect)result;
                 final VideoEditorProject videoProject = getProject(projectPath);
@@ -3766,12 +3988,11 @@ public class ApiService extends Service {
 
             case OP_EFFECT_REMOVE: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String mediaItemId = intent.getStringExtra(
-                        PARAM_RELATIVE_STORYBOARD_ITEM_ID);
-                final String effectId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                final String mediaItemId = command.relativeItemId;
+                final String effectId = command.itemId;
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
@@ -3789,7 +4010,7 @@ public class ApiService extends Service {
 
             case OP_AUDIO_TRACK_ADD: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
                 final MovieAudioTrack movieAudioTrack = (MovieAudioTrack)result;
@@ -3809,10 +4030,10 @@ public class ApiService extends Service {
 
             case OP_AUDIO_TRACK_REMOVE: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String audioTrackId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                final String audioTrackId = command.itemId;
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
@@ -3830,12 +4051,12 @@ public class ApiService extends Service {
 
             case OP_AUDIO_TRACK_SET_BOUNDARIES: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String audioTrackId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
-                final long beginBoundary = intent.getLongExtra(PARAM_BEGIN_BOUNDARY, 0);
-                final long endBoundary = intent.getLongExtra(PARAM_END_BOUNDARY, 0);
+                final String audioTrackId = command.itemId;
+                final long beginBoundary = command.beginBoundary;
+                final long endBoundary = command.endBoundary;
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
@@ -3859,17 +4080,17 @@ public class ApiService extends Service {
 
             case OP_AUDIO_TRACK_SET_LOOP: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
-                    final String audioTrackId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String audioTrackId = command.itemId;
                     final MovieAudioTrack audioTrack = videoProject.getAudioTrack(audioTrackId);
                     if (audioTrack != null) {
                         videoProject.setClean(false);
                         if (ex == null) {
-                            audioTrack.enableLoop(intent.getBooleanExtra(PARAM_LOOP, false));
+                            audioTrack.enableLoop(command.loop);
                         } else {
                             audioTrack.enableAppLoop(audioTrack.isLooping());
                         }
@@ -3881,17 +4102,17 @@ public class ApiService extends Service {
 
             case OP_AUDIO_TRACK_SET_DUCK: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
-                    final String audioTrackId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String audioTrackId = command.itemId;
                     final MovieAudioTrack audioTrack = videoProject.getAudioTrack(audioTrackId);
                     if (audioTrack != null) {
                         videoProject.setClean(false);
                         if (ex == null) {
-                            audioTrack.enableDucking(intent.getBooleanExtra(PARAM_DUCK, false));
+                            audioTrack.enableDucking(command.duck);
                         } else {
                             audioTrack.enableAppDucking(audioTrack.isDuckingEnabled());
                         }
@@ -3903,17 +4124,17 @@ public class ApiService extends Service {
 
             case OP_AUDIO_TRACK_SET_VOLUME: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
-                    final String audioTrackId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String audioTrackId = command.itemId;
                     final MovieAudioTrack audioTrack = videoProject.getAudioTrack(audioTrackId);
                     if (audioTrack != null) {
                         videoProject.setClean(false);
                         if (ex == null) {
-                            audioTrack.setVolume(intent.getIntExtra(PARAM_VOLUME, 0));
+                            audioTrack.setVolume(command.volume);
                         } else {
                             audioTrack.setAppVolume(audioTrack.getVolume());
                         }
@@ -3925,17 +4146,17 @@ public class ApiService extends Service {
 
             case OP_AUDIO_TRACK_SET_MUTE: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (videoProject != null) {
-                    final String audioTrackId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                    final String audioTrackId = command.itemId;
                     final MovieAudioTrack audioTrack = videoProject.getAudioTrack(audioTrackId);
                     if (audioTrack != null) {
                         videoProject.setClean(false);
                         if (ex == null) {
-                            audioTrack.setMute(intent.getBooleanExtra(PARAM_MUTE, false));
+                            audioTrack.setMute(command.mute);
                         } else {
                             audioTrack.setAppMute(audioTrack.isMuted());
                         }
@@ -3947,11 +4168,11 @@ public class ApiService extends Service {
 
             case OP_AUDIO_TRACK_EXTRACT_AUDIO_WAVEFORM_STATUS: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String audioTrackId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
-                final int progress = intent.getIntExtra(PARAM_PROGRESS_VALUE, 0);
+                final String audioTrackId = command.itemId;
+                final int progress = command.progress;
 
                 for (ApiServiceListener listener : mListeners) {
                     listener.onAudioTrackExtractAudioWaveformProgress(projectPath, audioTrackId,
@@ -3963,10 +4184,10 @@ public class ApiService extends Service {
 
             case OP_AUDIO_TRACK_EXTRACT_AUDIO_WAVEFORM: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
 
-                final String audioTrackId = intent.getStringExtra(PARAM_STORYBOARD_ITEM_ID);
+                final String audioTrackId = command.itemId;
 
                 final VideoEditorProject videoProject = getProject(projectPath);
                 if (ex == null && videoProject != null) {
@@ -3990,42 +4211,40 @@ public class ApiService extends Service {
 
             default: {
                 if (finalize) {
-                    finalizeRequest(intent);
+                    finalizeRequest(command);
                 }
                 break;
             }
         }
 
         if (finalize) {
-            mIntentPool.put(intent);
+            mCommandPool.put(command);
         }
     }
 
     /**
      * Finalizes a request. Calls the listeners that are interested in project status
-     * change and stops this service if there are no more pending intents.
+     * change and stops this service if there are no more pending commands.
      *
-     * @param intent The intent that just completed
+     * @param command The command that just completed
      */
-    private void finalizeRequest(Intent intent) {
-        mPendingIntents.remove(intent.getStringExtra(PARAM_REQUEST_ID));
-
-        final String projectPath = intent.getStringExtra(PARAM_PROJECT_PATH);
-        if (projectPath != null) {
-            final boolean projectEdited = isProjectBeingEdited(projectPath);
-            if (projectEdited == false) {
-                for (ApiServiceListener listener : mListeners) {
-                    listener.onProjectEditState(projectPath, projectEdited);
-                }
+    private void finalizeRequest(ApiCommand command) {
+        final boolean editDone = mPendingRequests.remove(command,
+                isEditingOperation(command.op));
+
+        // Notify the listeners when the last editing operation completes
+        if (editDone) {
+            for (ApiServiceListener listener : mListeners) {
+                listener.onProjectEditState(command.projectPath, false);
             }
         }
 
-        if (mPendingIntents.size() == 0) {
+        if (mPendingRequests.isEmpty()) {
             // Cancel the current timer if any. Extend the timeout by 5000 ms.
             mHandler.removeCallbacks(mStopRunnable);
 
             // Start a timer which will stop the service if the queue of
-            // pending intent will be empty at that time.
+            // pending command will be empty at that time.
             // This prevents the service from starting & stopping too often.
             mHandler.postDelayed(mStopRunnable, 5000);
             logd("completeRequest: Stopping service in 5000 ms");
@@ -4033,7 +4252,8 @@ public class ApiService extends Service {
     }
 
     /**
-     * Checks if the current project is the project specified by the specified path.
+     * Get the project specified by the specified path. The project is the
+     * current project or the project of an editor parked in the cache.
      *
      * @param projectPath The project path
      *
@@ -4046,187 +4266,368 @@ public class ApiService extends Service {
             }
         }
 
-        return null;
+        return mEditorCache.getProject(projectPath);
     }
 
     /**
-     * Check if the current editor is the project specified by the specified path
+     * Get the loaded editor of the project specified by the specified path
      *
      * @param projectPath The project path
      *
      * @return The video editor
      */
-    private synchronized VideoEditor getVideoEditor(String projectPath) {
-        if (mVideoEditor != null) {
-            if (mVideoEditor.getPath().equals(projectPath)) {
-                return mVideoEditor;
+    private VideoEditor getVideoEditor(String projectPath) {
+        return mEditorCache.getVideoEditor(projectPath);
+    }
+
+    /**
+     * Generate the preview
+     *
+     * @param videoEditor The video editor
+     * @param updatePreviewFrame true to show preview frame when done
+     */
+    private void generatePreview(VideoEditor videoEditor, boolean updatePreviewFrame) {
+        try {
+            final VideoEditor.MediaProcessingProgressListener listener =
+                    mEditorCache.getGeneratePreviewListener(videoEditor.getPath());
+            videoEditor.generatePreview(listener);
+            if (listener != null) {
+                // This is the last callback which is always fired last to
+                // let the UI know that generate preview completed
+                listener.onProgress(null,
+                        updatePreviewFrame ? ACTION_UPDATE_FRAME : ACTION_NO_FRAME_UPDATE, 100);
             }
+        } catch (Exception ex) {
+            ex.printStackTrace();
         }
-
-        return null;
     }
 
     /**
-     * Release the editor
+     * Exports the movies on the export thread
      */
-    private synchronized void releaseEditor() {
-        if (mVideoEditor != null) {
-            logd("releaseEditor (current): " + mVideoEditor.getPath());
-            mVideoEditor.release();
-            mVideoEditor = null;
-            mGeneratePreviewListener = null;
-
-            System.gc();
+    private final ExportScheduler.ExportRunner mExportRunner =
+            new ExportScheduler.ExportRunner() {
+        @Override
+        public void runExport(final ExportScheduler.ExportJob job) {
+            final ApiCommand command = job.getCommand();
+            if (command.op == OP_VIDEO_EDITOR_BENCHMARK_EXPORT) {
+                runExportBenchmark(job);
+                return;
+            }
+
+            final String filename = job.getFilename();
+
+            // Create the export status ApiCommand
+            final ApiCommand statusCommand = mCommandPool.get();
+            statusCommand.op = OP_VIDEO_EDITOR_EXPORT_STATUS;
+            statusCommand.projectPath = command.projectPath;
+            statusCommand.filename = filename;
+            statusCommand.originalCommand = command;
+            Exception resultException = null;
+
+            try {
+                if (!job.isCancelled()) {
+                    final VideoEditor videoEditor = getVideoEditor(job.getProjectPath());
+                    if (videoEditor == null) {
+                        throw new IllegalArgumentException("Invalid project path: "
+                                + job.getProjectPath() + " for export");
+                    }
+
+                    final long movieDurationMs = videoEditor.getDuration();
+                    final long startTime = SystemClock.elapsedRealtime();
+                    videoEditor.export(filename, job.getHeight(), job.getBitrate(),
+                            new ThrottledExportProgressListener(command));
+                    if (!job.isCancelled()) {
+                        ExportBenchmark.record(getApplicationContext(), job.getHeight(),
+                                job.getBitrate(), movieDurationMs,
+                                SystemClock.elapsedRealtime() - startTime);
+                    }
+                }
+
+                statusCommand.cancelled = job.isCancelled();
+                if (!job.isCancelled()) {
+                    if (new File(filename).exists()) {
+                        statusCommand.movieUri = exportToGallery(filename);
+                    } else {
+                        resultException = new IllegalStateException("Export file does not exist: " + filename);
+                    }
+                    logv("Export complete for: " + filename);
+                } else {
+                    logv("Export cancelled by user, file name: " + filename);
+                }
+            } catch (Exception ex) {
+                logv("Export error for: " + filename);
+                ex.printStackTrace();
+                resultException = ex;
+            }
+
+            // Complete the request. The status is posted to the main thread
+            // after the progress updates.
+            statusCommand.exception = resultException;
+            statusCommand.complete = true;
+            completeRequest(statusCommand, null, null, null, null, true);
         }
-    }
+    };
 
     /**
-     * Release the specified editor
-     *
-     * @param projectPath The project path
+     * Converts the thumbnails of a media item to the pixel format requested
+     * by the UI. An image item without Ken Burns passes the same bitmap for
+     * every index, so a converted source is recycled only when the next
+     * thumbnail uses a different bitmap or when {@link #release()} is
+     * invoked after the thumbnail list is complete.
      */
-    private synchronized void releaseEditor(String projectPath) {
-        if (mVideoEditor != null) {
-            if (mVideoEditor.getPath().equals(projectPath)) {
-                logd("releaseEditor: " + projectPath);
-                mVideoEditor.release();
-                mVideoEditor = null;
-                mGeneratePreviewListener = null;
-
-                System.gc();
+    private final class ThumbnailListConverter implements GetThumbnailListCallback {
+        // Instance variables
+        private final ApiCommand mCommand;
+        private final VideoEditor mVideoEditor;
+        private Bitmap mConvertedSource;
+
+        /**
+         * Constructor
+         *
+         * @param command The thumbnail command
+         * @param videoEditor The video editor
+         */
+        public ThumbnailListConverter(ApiCommand command, VideoEditor videoEditor) {
+            mCommand = command;
+            mVideoEditor = videoEditor;
+        }
+
+        @Override
+        public void onThumbnail(Bitmap bitmap, int index) {
+            if (bitmap != mConvertedSource) {
+                release();
+            }
+
+            final Bitmap thumbnail = ImageUtils.convertBitmap(bitmap, mCommand.bitmapConfig);
+            if (thumbnail != bitmap) {
+                // The source was not handed out and can be recycled once the
+                // video editor moves on to another bitmap
+                mConvertedSource = bitmap;
+            }
+
+            completeRequest(mCommand, mVideoEditor, null, thumbnail, Integer.valueOf(index),
+                    false);
+        }
+
+        /**
+         * Recycle the last converted source bitmap
+         */
+        public void release() {
+            if (mConvertedSource != null) {
+                mConvertedSource.recycle();
+                mConvertedSource = null;
             }
         }
     }
 
     /**
-     * Release the current editor if it is *not* the current editor
+     * Convert a thumbnail to the pixel format requested by the UI. The
+     * source thumbnail is recycled once it is converted so that only one
+     * frame is held per thumbnail. The source must not be used by anyone
+     * else: {@link MediaItem#getThumbnail} creates a new bitmap for each
+     * call, but {@link MediaItem#getThumbnailList} may not.
      *
-     * @param projectPath The project path
+     * @param bitmap The thumbnail created by the video editor
+     * @param config The bitmap configuration or null to keep the bitmap
+     *      configuration
      *
-     * @return The current video editor
+     * @return The converted thumbnail
      */
-    private synchronized VideoEditor releaseEditorNot(String projectPath) {
-        if (mVideoEditor != null) {
-            if (!mVideoEditor.getPath().equals(projectPath)) {
-                logd("releaseEditorNot: " + mVideoEditor.getPath());
-                mVideoEditor.release();
-                mVideoEditor = null;
-                mGeneratePreviewListener = null;
-
-                System.gc();
-            }
+    private static Bitmap convertThumbnail(Bitmap bitmap, Bitmap.Config config) {
+        final Bitmap result = ImageUtils.convertBitmap(bitmap, config);
+        if (result != bitmap) {
+            bitmap.recycle();
         }
 
-        return mVideoEditor;
+        return result;
     }
 
     /**
-     * Generate the preview
+     * @return The directory in which the export benchmark runs
+     */
+    private File getBenchmarkDir() {
+        return new File(getCacheDir(), "export_benchmark");
+    }
+
+    /**
+     * @return The movie exported by the export benchmark
+     */
+    private File getBenchmarkOutputFile() {
+        return new File(getBenchmarkDir(), "benchmark.mp4");
+    }
+
+    /**
+     * Export a few seconds of the first storyboard item at each supported
+     * movie size and quality and record the throughput. A benchmark
+     * cancelled by an export of the user is scheduled again behind that
+     * export. This method is invoked on the export thread.
      *
-     * @param videoEditor The video editor
-     * @param updatePreviewFrame true to show preview frame when done
+     * @param job The benchmark job
      */
-    private void generatePreview(VideoEditor videoEditor, boolean updatePreviewFrame) {
+    private void runExportBenchmark(ExportScheduler.ExportJob job) {
+        final ApiCommand command = job.getCommand();
+        if (job.isCancelled()) {
+            rescheduleExportBenchmark(job);
+            return;
+        }
+
+        final File benchmarkDir = new File(job.getFilename());
+        final File outputFile = getBenchmarkOutputFile();
+        final ExportProgressListener progressListener = new ExportProgressListener() {
+            @Override
+            public void onProgress(VideoEditor videoEditor, String filename, int progress) {
+            }
+        };
+
+        Exception resultException = null;
+        VideoEditor videoEditor = null;
         try {
-            videoEditor.generatePreview(mGeneratePreviewListener);
-            if (mGeneratePreviewListener != null) {
-                // This is the last callback which is always fired last to
-                // let the UI know that generate preview completed
-                mGeneratePreviewListener.onProgress(null,
-                        updatePreviewFrame ? ACTION_UPDATE_FRAME : ACTION_NO_FRAME_UPDATE, 100);
+            FileUtils.deleteDir(benchmarkDir);
+            benchmarkDir.mkdirs();
+
+            videoEditor = VideoEditorFactory.create(benchmarkDir.getAbsolutePath());
+            final MediaItem mediaItem;
+            if (MediaVideoItem.class.getCanonicalName().equals(command.className)) {
+                final MediaVideoItem videoItem = new MediaVideoItem(videoEditor, generateId(),
+                        command.filename, command.renderingMode);
+                videoItem.setExtractBoundaries(command.beginBoundary,
+                        Math.min(videoItem.getDuration(),
+                                command.beginBoundary + BENCHMARK_DURATION_MS));
+                mediaItem = videoItem;
+            } else {
+                mediaItem = new MediaImageItem(videoEditor, generateId(), command.filename,
+                        BENCHMARK_DURATION_MS, command.renderingMode);
+            }
+            videoEditor.addMediaItem(mediaItem);
+            videoEditor.setAspectRatio(command.aspectRatio);
+            synchronized (mBenchmarkLock) {
+                mBenchmarkEditor = videoEditor;
+            }
+            final long movieDurationMs = videoEditor.getDuration();
+
+            final Pair<Integer, Integer>[] sizes =
+                    MediaProperties.getSupportedResolutions(command.aspectRatio);
+            for (int i = 0; i < sizes.length && !job.isCancelled(); i++) {
+                final int height = sizes[i].second;
+                for (int j = 0; j < BENCHMARK_BITRATES.length && !job.isCancelled(); j++) {
+                    final long startTime = SystemClock.elapsedRealtime();
+                    videoEditor.export(outputFile.getAbsolutePath(), height,
+                            BENCHMARK_BITRATES[j], progressListener);
+                    if (!job.isCancelled()) {
+                        ExportBenchmark.record(getApplicationContext(), height,
+                                BENCHMARK_BITRATES[j], movieDurationMs,
+                                SystemClock.elapsedRealtime() - startTime);
+                    }
+                    outputFile.delete();
+                }
             }
         } catch (Exception ex) {
-            ex.printStackTrace();
+            Log.w(TAG, "Export benchmark failed", ex);
+            resultException = ex;
+        } finally {
+            synchronized (mBenchmarkLock) {
+                mBenchmarkEditor = null;
+                if (videoEditor != null) {
+                    videoEditor.release();
+                }
+            }
+            FileUtils.deleteDir(benchmarkDir);
+        }
+
+        if (job.isCancelled()) {
+            rescheduleExportBenchmark(job);
+            return;
+        }
+
+        if (resultException == null) {
+            ExportBenchmark.setCalibrated(getApplicationContext());
         }
+
+        completeRequest(command, null, resultException, null, null, true);
     }
 
     /**
-     * Exports a movie in a distinct worker thread.
+     * Queue a cancelled benchmark again. The benchmark was cancelled by an
+     * export of the user which is queued ahead of it.
      *
-     * @param videoEditor The video editor
-     * @param intent The intent
+     * @param job The cancelled benchmark job
      */
-    private void exportMovie(final VideoEditor videoEditor, final Intent intent) {
-        mExportCancelled = false;
-        new Thread() {
-            @Override
-            public void run() {
-                final String filename = intent.getStringExtra(PARAM_FILENAME);
-                final int height = intent.getIntExtra(PARAM_HEIGHT, -1);
-                final int bitrate = intent.getIntExtra(PARAM_BITRATE, -1);
-
-                // Create the export status Intent
-                final Intent statusIntent = mIntentPool.get();
-                statusIntent.putExtra(PARAM_OP, OP_VIDEO_EDITOR_EXPORT_STATUS);
-                statusIntent.putExtra(PARAM_PROJECT_PATH, intent.getStringExtra(
-                        PARAM_PROJECT_PATH));
-                statusIntent.putExtra(PARAM_FILENAME, filename);
-                statusIntent.putExtra(PARAM_INTENT, intent);
-                Exception resultException = null;
-
-                try {
-                    videoEditor.export(filename, height, bitrate, new ExportProgressListener() {
-                        @Override
-                        public void onProgress(VideoEditor videoEditor, String filename,
-                                int progress) {
-                            final Intent progressIntent = mIntentPool.get();
-                            progressIntent.putExtra(PARAM_OP, OP_VIDEO_EDITOR_EXPORT_STATUS);
-                            progressIntent.putExtra(PARAM_PROJECT_PATH, intent.getStringExtra(
-                                    PARAM_PROJECT_PATH));
-                            progressIntent.putExtra(PARAM_FILENAME, filename);
-                            progressIntent.putExtra(PARAM_INTENT, intent);
-                            progressIntent.putExtra(PARAM_PROGRESS_VALUE, progress);
-                            mVideoThread.submit(progressIntent);
-                            logv("Export progress: " + progress + " for: " + filename);
-                        }
-                    });
+    private void rescheduleExportBenchmark(ExportScheduler.ExportJob job) {
+        logv("Export benchmark interrupted by an export");
+        final ExportScheduler.ExportJob retryJob = new ExportScheduler.ExportJob(
+                job.getProjectPath(), job.getFilename(), 0, 0, job.getCommand());
+        retryJob.setPersistent(false);
+        mExportScheduler.schedule(retryJob);
+    }
 
-                    statusIntent.putExtra(PARAM_CANCELLED, mExportCancelled);
-                    if (!mExportCancelled) {
-                        if (new File(filename).exists()) {
-                            statusIntent.putExtra(PARAM_MOVIE_URI, exportToGallery(filename));
-                        } else {
-                            resultException = new IllegalStateException("Export file does not exist: " + filename);
-                        }
-                        logv("Export complete for: " + filename);
-                    } else {
-                        logv("Export cancelled by user, file name: " + filename);
-                    }
-                } catch (Exception ex) {
-                    logv("Export error for: " + filename);
-                    ex.printStackTrace();
-                    resultException = ex;
-                }
+    /**
+     * Delivers the export progress directly to the main thread instead of
+     * queuing it behind the edits on the video thread. The progress is
+     * delivered only when the percentage changes and at most once per
+     * {@link #EXPORT_PROGRESS_INTERVAL_MS}.
+     */
+    private final class ThrottledExportProgressListener implements ExportProgressListener {
+        // Instance variables
+        private final ApiCommand mCommand;
+        private int mLastProgress = -1;
+        private long mLastProgressTime;
 
-                // Complete the request
-                statusIntent.putExtra(PARAM_EXCEPTION, resultException);
-                mVideoThread.submit(statusIntent);
+        /**
+         * Constructor
+         *
+         * @param command The export command
+         */
+        public ThrottledExportProgressListener(ApiCommand command) {
+            mCommand = command;
+        }
+
+        @Override
+        public void onProgress(VideoEditor videoEditor, String filename, int progress) {
+            if (progress == mLastProgress) {
+                return;
+            }
+
+            final long now = SystemClock.uptimeMillis();
+            if (progress < 100 && now - mLastProgressTime < EXPORT_PROGRESS_INTERVAL_MS) {
+                return;
             }
-        }.start();
+
+            mLastProgress = progress;
+            mLastProgressTime = now;
+
+            final ApiCommand progressCommand = mCommandPool.get();
+            progressCommand.op = OP_VIDEO_EDITOR_EXPORT_STATUS;
+            progressCommand.projectPath = mCommand.projectPath;
+            progressCommand.filename = filename;
+            progressCommand.originalCommand = mCommand;
+            progressCommand.progress = progress;
+            completeRequest(progressCommand, null, null, null, null, true);
+            logv("Export progress: " + progress + " for: " + filename);
+        }
     }
 
     /**
      * Extract the audio waveform of a media item
      *
-     * @param intent The original Intent
+     * @param command The original command
      * @param videoEditor The video editor
      * @param mediaItem The media item
      */
-    private void extractMediaItemAudioWaveform(final Intent intent, final VideoEditor videoEditor,
-            final MediaVideoItem mediaItem) throws IOException {
+    private void extractMediaItemAudioWaveform(final ApiCommand command,
+            final VideoEditor videoEditor, final MediaVideoItem mediaItem) throws IOException {
         mediaItem.extractAudioWaveform(
             new ExtractAudioWaveformProgressListener() {
             @Override
             public void onProgress(int progress) {
-                final Intent progressIntent = mIntentPool.get();
-                progressIntent.putExtra(PARAM_OP, OP_MEDIA_ITEM_EXTRACT_AUDIO_WAVEFORM_STATUS);
-                progressIntent.putExtra(PARAM_PROJECT_PATH,
-                        intent.getStringExtra(PARAM_PROJECT_PATH));
-                progressIntent.putExtra(PARAM_INTENT, intent);
-                progressIntent.putExtra(PARAM_STORYBOARD_ITEM_ID, mediaItem.getId());
-                progressIntent.putExtra(PARAM_PROGRESS_VALUE, progress);
-
-                completeRequest(progressIntent, videoEditor, null, null, null, true);
+                final ApiCommand progressCommand = mCommandPool.get();
+                progressCommand.op = OP_MEDIA_ITEM_EXTRACT_AUDIO_WAVEFORM_STATUS;
+                progressCommand.projectPath = command.projectPath;
+                progressCommand.originalCommand = command;
+                progressCommand.itemId = mediaItem.getId();
+                progressCommand.progress = progress;
+
+                completeRequest(progressCommand, videoEditor, null, null, null, true);
             }
         });
     }
@@ -4234,26 +4635,24 @@ public class ApiService extends Service {
     /**
      * Extract the audio waveform of an AudioTrack
      *
-     * @param intent The original Intent
+     * @param command The original command
      * @param videoEditor The video editor
      * @param audioTrack The audio track
      */
-    private void extractAudioTrackAudioWaveform(final Intent intent, final VideoEditor videoEditor,
-            final AudioTrack audioTrack) throws IOException {
+    private void extractAudioTrackAudioWaveform(final ApiCommand command,
+            final VideoEditor videoEditor, final AudioTrack audioTrack) throws IOException {
         audioTrack.extractAudioWaveform(
             new ExtractAudioWaveformProgressListener() {
             @Override
             public void onProgress(int progress) {
-                final Intent progressIntent = mIntentPool.get();
-                progressIntent.putExtra(PARAM_OP,
-                        OP_AUDIO_TRACK_EXTRACT_AUDIO_WAVEFORM_STATUS);
-                progressIntent.putExtra(PARAM_PROJECT_PATH,
-                        intent.getStringExtra(PARAM_PROJECT_PATH));
-                progressIntent.putExtra(PARAM_INTENT, intent);
-                progressIntent.putExtra(PARAM_STORYBOARD_ITEM_ID, audioTrack.getId());
-                progressIntent.putExtra(PARAM_PROGRESS_VALUE, progress);
-
-                completeRequest(progressIntent, videoEditor, null, null, null, true);
+                final ApiCommand progressCommand = mCommandPool.get();
+                progressCommand.op = OP_AUDIO_TRACK_EXTRACT_AUDIO_WAVEFORM_STATUS;
+                progressCommand.projectPath = command.projectPath;
+                progressCommand.originalCommand = command;
+                progressCommand.itemId = audioTrack.getId();
+                progressCommand.progress = progress;
+
+                completeRequest(progressCommand, videoEditor, null, null, null, true);
             }
         });
     }
@@ -4309,125 +4708,209 @@ public class ApiService extends Service {
 
     /**
      * Apply a theme to the entire movie. This method shall be used when the
-     * theme is changing.
+     * theme is changing. Only the transitions, overlay and audio track which
+     * differ from the theme are replaced so that the preview of the unchanged
+     * segments does not need to be generated again.
      *
      * @param videoEditor The video editor
      * @param themeId The theme id
+     *
+     * @return true if the storyboard changed
      */
-    private void applyThemeToMovie(VideoEditor videoEditor, String themeId) throws IOException {
+    private boolean applyThemeToMovie(VideoEditor videoEditor, String themeId)
+            throws IOException {
         final Context context = getApplicationContext();
         final MovieTheme theme = MovieTheme.getTheme(context, themeId);
         final List<MediaItem> mediaItems = videoEditor.getAllMediaItems();
+        boolean changed = false;
 
-        // Add the transitions
+        // Update the transitions
         final int mediaItemsCount = mediaItems.size();
         if (mediaItemsCount > 0) {
-            // Remove all the transitions
-            for (int i = 0; i < mediaItemsCount; i++) {
-                final MediaItem mi = mediaItems.get(i);
-                if (i == 0) {
-                    final Transition beginTransition = mi.getBeginTransition();
-                    if (beginTransition != null) {
-                        videoEditor.removeTransition(beginTransition.getId());
-                    }
-                }
-
-                final Transition endTransition = mi.getEndTransition();
-                if (endTransition != null) {
-                    videoEditor.removeTransition(endTransition.getId());
-                }
-            }
-
-            // Add the begin transition to the first media item
-            final MovieTransition beginMovieTransition = theme.getBeginTransition();
-            if (beginMovieTransition != null) {
-                final MediaItem firstMediaItem = mediaItems.get(0);
-                videoEditor.addTransition(
-                        beginMovieTransition.buildTransition(context, null, firstMediaItem));
-            }
+            // The begin transition of the first media item
+            final MediaItem firstMediaItem = mediaItems.get(0);
+            changed |= applyThemeTransition(videoEditor, firstMediaItem.getBeginTransition(),
+                    theme.getBeginTransition(), null, firstMediaItem);
 
-            // Add the mid transitions
+            // The mid transitions
             final MovieTransition midMovieTransition = theme.getMidTransition();
-            if (midMovieTransition != null) {
-                for (int i = 0; i < mediaItemsCount - 1; i++) {
-                    videoEditor.addTransition(
-                            midMovieTransition.buildTransition(context,
-                                    mediaItems.get(i), mediaItems.get(i + 1)));
-                }
+            for (int i = 0; i < mediaItemsCount - 1; i++) {
+                final MediaItem mediaItem = mediaItems.get(i);
+                changed |= applyThemeTransition(videoEditor, mediaItem.getEndTransition(),
+                        midMovieTransition, mediaItem, mediaItems.get(i + 1));
             }
 
-            // Add the end transition to the last media item
-            final MovieTransition endMovieTransition = theme.getEndTransition();
-            if (endMovieTransition != null) {
-                final MediaItem lastMediaItem = mediaItems.get(mediaItemsCount - 1);
-                videoEditor.addTransition(
-                        endMovieTransition.buildTransition(context, lastMediaItem, null));
-            }
+            // The end transition of the last media item
+            final MediaItem lastMediaItem = mediaItems.get(mediaItemsCount - 1);
+            changed |= applyThemeTransition(videoEditor, lastMediaItem.getEndTransition(),
+                    theme.getEndTransition(), lastMediaItem, null);
         }
 
-        // Add the overlay
+        // Update the overlay
         final MovieOverlay movieOverlay = theme.getOverlay();
         if (movieOverlay != null && mediaItemsCount > 0) {
-            // Remove all the overlay for the first media item
             final MediaItem mediaItem = mediaItems.get(0);
+            final Bundle userAttributes = movieOverlay.buildUserAttributes();
             final List<Overlay> overlays = mediaItem.getAllOverlays();
-            if (overlays.size() > 0) {
-                mediaItem.removeOverlay(overlays.get(0).getId());
-            }
+            if (overlays.size() == 0
+                    || !overlayMatches(overlays.get(0), movieOverlay, userAttributes)) {
+                // Remove the overlay of the first media item
+                if (overlays.size() > 0) {
+                    mediaItem.removeOverlay(overlays.get(0).getId());
+                }
 
-            // Add the new overlay
-            final int scaledWidth, scaledHeight;
-            if (mediaItem instanceof MediaVideoItem) {
-                scaledWidth = ((MediaVideoItem)mediaItem).getWidth();
-                scaledHeight = ((MediaVideoItem)mediaItem).getHeight();
-            } else {
-                scaledWidth = ((MediaImageItem)mediaItem).getScaledWidth();
-                scaledHeight = ((MediaImageItem)mediaItem).getScaledHeight();
-            }
+                // Add the new overlay
+                final int scaledWidth, scaledHeight;
+                if (mediaItem instanceof MediaVideoItem) {
+                    scaledWidth = ((MediaVideoItem)mediaItem).getWidth();
+                    scaledHeight = ((MediaVideoItem)mediaItem).getHeight();
+                } else {
+                    scaledWidth = ((MediaImageItem)mediaItem).getScaledWidth();
+                    scaledHeight = ((MediaImageItem)mediaItem).getScaledHeight();
+                }
 
-            final Overlay overlay = new OverlayFrame(mediaItem, generateId(),
-                    ImageUtils.buildOverlayBitmap(getApplicationContext(), null,
-                            movieOverlay.getType(), movieOverlay.getTitle(),
-                            movieOverlay.getSubtitle(), scaledWidth, scaledHeight),
-                            movieOverlay.getStartTime(), movieOverlay.getDuration());
+                final Overlay overlay = new OverlayFrame(mediaItem, generateId(),
+                        ImageUtils.buildOverlayBitmap(getApplicationContext(), null,
+                                movieOverlay.getType(), movieOverlay.getTitle(),
+                                movieOverlay.getSubtitle(), scaledWidth, scaledHeight),
+                                movieOverlay.getStartTime(), movieOverlay.getDuration());
 
-            // Set the user attributes
-            final Bundle userAttributes = movieOverlay.buildUserAttributes();
-            for (String name : userAttributes.keySet()) {
-                if (MovieOverlay.getAttributeType(name).equals(Integer.class)) {
-                    overlay.setUserAttribute(name,
-                            Integer.toString(userAttributes.getInt(name)));
-                } else { // Strings
-                    overlay.setUserAttribute(name, userAttributes.getString(name));
+                // Set the user attributes
+                for (String name : userAttributes.keySet()) {
+                    overlay.setUserAttribute(name, getUserAttribute(userAttributes, name));
                 }
+                mediaItem.addOverlay(overlay);
+                changed = true;
             }
-            mediaItem.addOverlay(overlay);
         }
 
+        // Update the audio track
         final MovieAudioTrack at = theme.getAudioTrack();
         if (at != null) {
-            // Remove all audio tracks
+            final String audioTrackFilename =
+                    FileUtils.getAudioTrackFilename(context, at.getRawResourceId());
             final List<AudioTrack> audioTracks = videoEditor.getAllAudioTracks();
-            while (audioTracks.size() > 0) {
-                videoEditor.removeAudioTrack(audioTracks.get(0).getId());
+            if (audioTracks.size() != 1
+                    || !audioTrackMatches(audioTracks.get(0), at, audioTrackFilename)) {
+                // Remove all audio tracks
+                while (audioTracks.size() > 0) {
+                    videoEditor.removeAudioTrack(audioTracks.get(0).getId());
+                }
+
+                // Add the new audio track
+                final AudioTrack audioTrack = new AudioTrack(videoEditor, generateId(),
+                        audioTrackFilename);
+
+                // Enable looping if necessary
+                if (at.isLooping()) {
+                    audioTrack.enableLoop();
+                }
+
+                // Enable ducking
+                audioTrack.enableDucking(DUCK_THRESHOLD, DUCK_TRACK_VOLUME);
+                audioTrack.setVolume(DEFAULT_AUDIO_TRACK_VOLUME);
+                videoEditor.addAudioTrack(audioTrack);
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Replace a transition unless it is already the transition of the theme
+     *
+     * @param videoEditor The video editor
+     * @param transition The current transition or null if there is none
+     * @param movieTransition The transition of the theme or null if the
+     *      theme has none
+     * @param afterMediaItem The media item before the transition
+     * @param beforeMediaItem The media item after the transition
+     *
+     * @return true if the transition was replaced or removed
+     */
+    private boolean applyThemeTransition(VideoEditor videoEditor, Transition transition,
+            MovieTransition movieTransition, MediaItem afterMediaItem,
+            MediaItem beforeMediaItem) throws IOException {
+        final Context context = getApplicationContext();
+        if (transition != null) {
+            if (movieTransition != null && movieTransition.matches(context, transition)) {
+                return false;
             }
 
-            // Add the new audio track
-            final AudioTrack audioTrack = new AudioTrack(videoEditor, generateId(),
-                    FileUtils.getAudioTrackFilename(context, at.getRawResourceId()));
+            videoEditor.removeTransition(transition.getId());
+        }
+
+        if (movieTransition != null) {
+            videoEditor.addTransition(
+                    movieTransition.buildTransition(context, afterMediaItem, beforeMediaItem));
+            return true;
+        }
+
+        return transition != null;
+    }
+
+    /**
+     * Check if an overlay is the overlay of the theme
+     *
+     * @param overlay The overlay
+     * @param movieOverlay The overlay of the theme
+     * @param userAttributes The user attributes of the overlay of the theme
+     *
+     * @return true if the overlay matches
+     */
+    private static boolean overlayMatches(Overlay overlay, MovieOverlay movieOverlay,
+            Bundle userAttributes) {
+        if (overlay.getStartTime() != movieOverlay.getStartTime()
+                || overlay.getDuration() != movieOverlay.getDuration()) {
+            return false;
+        }
 
-            // Enable looping if necessary
-            if (at.isLooping()) {
-                audioTrack.enableLoop();
+        final Map<String, String> attributes = overlay.getUserAttributes();
+        if (attributes.size() != userAttributes.size()) {
+            return false;
+        }
+
+        for (String name : userAttributes.keySet()) {
+            if (!getUserAttribute(userAttributes, name).equals(attributes.get(name))) {
+                return false;
             }
+        }
 
-            // Enable ducking
-            audioTrack.enableDucking(DUCK_THRESHOLD, DUCK_TRACK_VOLUME);
-            audioTrack.setVolume(DEFAULT_AUDIO_TRACK_VOLUME);
-            videoEditor.addAudioTrack(audioTrack);
+        return true;
+    }
+
+    /**
+     * @param userAttributes The user attributes of a theme overlay
+     * @param name The attribute name
+     *
+     * @return The value of the attribute as stored in an overlay
+     */
+    private static String getUserAttribute(Bundle userAttributes, String name) {
+        if (MovieOverlay.getAttributeType(name).equals(Integer.class)) {
+            return Integer.toString(userAttributes.getInt(name));
+        } else { // Strings
+            return userAttributes.getString(name);
         }
     }
 
+    /**
+     * Check if an audio track is the audio track of the theme
+     *
+     * @param audioTrack The audio track
+     * @param movieAudioTrack The audio track of the theme
+     * @param filename The filename of the audio track of the theme
+     *
+     * @return true if the audio track matches
+     */
+    private static boolean audioTrackMatches(AudioTrack audioTrack,
+            MovieAudioTrack movieAudioTrack, String filename) {
+        return filename.equals(audioTrack.getFilename())
+                && audioTrack.isLooping() == movieAudioTrack.isLooping()
+                && audioTrack.isDuckingEnabled()
+                && audioTrack.getVolume() == DEFAULT_AUDIO_TRACK_VOLUME;
+    }
+
     /**
      * Apply a theme
      *
@@ -4705,21 +5188,21 @@ public class ApiService extends Service {
     }
 
     /**
-     * Worker thread that processes intents and maintains its own intent queue.
+     * Worker thread that processes commands and maintains its own command queue.
      */
-    private class IntentProcessor extends Thread {
-        private final BlockingQueue<Intent> mIntentQueue;
+    private class CommandProcessor extends Thread {
+        private final BlockingQueue<ApiCommand> mCommandQueue;
 
-        public IntentProcessor(String threadName) {
-            super("IntentProcessor-" + threadName);
-            mIntentQueue = new LinkedBlockingQueue<Intent>();
+        public CommandProcessor(String threadName) {
+            super("CommandProcessor-" + threadName);
+            mCommandQueue = new LinkedBlockingQueue<ApiCommand>();
         }
 
         @Override
         public void run() {
             try {
                 while(true) {
-                    processIntent(mIntentQueue.take());
+                    processCommand(mCommandQueue.take());
                 }
             } catch (InterruptedException e) {
                 Log.e(TAG, "Terminating " + getName());
@@ -4727,39 +5210,39 @@ public class ApiService extends Service {
         }
 
         /**
-         * Submits a new intent for processing.
+         * Submits a new command for processing.
          *
-         * @param intent The intent to be processed
+         * @param command The command to be processed
          */
-        public void submit(Intent intent) {
+        public void submit(ApiCommand command) {
             if (isAlive()) {
-                mIntentQueue.add(intent);
+                mCommandQueue.add(command);
             } else {
                 Log.e(TAG, getName() + " should be started before submitting tasks.");
             }
         }
 
         /**
-         * Removes an intent from the queue.
+         * Removes a command from the queue.
          *
-         * @param intent The intent to be removed
+         * @param command The command to be removed
          *
-         * @return true if the intent is removed
+         * @return true if the command is removed
          */
-        public boolean cancel(Intent intent) {
-            return mIntentQueue.remove(intent);
+        public boolean cancel(ApiCommand command) {
+            return mCommandQueue.remove(command);
         }
 
-        public Iterator<Intent> getIntentQueueIterator() {
-            return mIntentQueue.iterator();
+        public Iterator<ApiCommand> getCommandQueueIterator() {
+            return mCommandQueue.iterator();
         }
 
         public void quit() {
             // Display an error if the queue is not empty and clear it.
-            final int queueSize = mIntentQueue.size();
+            final int queueSize = mCommandQueue.size();
             if (queueSize > 0) {
                 Log.e(TAG, "Thread queue is not empty. Size: " + queueSize);
-                mIntentQueue.clear();
+                mCommandQueue.clear();
             }
             interrupt();
         }
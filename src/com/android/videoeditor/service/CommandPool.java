@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.videoeditor.service;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.util.Log;
+
+/**
+ * A bounded pool of commands. Each thread first uses a small private cache
+ * and falls back to a shared lock-free queue. Commands returned to a full
+ * pool are left to the garbage collector.
+ */
+class CommandPool {
+    // Logging
+    private static final String TAG = "CommandPool";
+
+    // The number of commands cached by each thread
+    private static final int LOCAL_CAPACITY = 4;
+
+    /**
+     * The commands cached by a thread
+     */
+    private static class LocalCache {
+        private final ApiCommand[] mCommands = new ApiCommand[LOCAL_CAPACITY];
+        private int mSize;
+    }
+
+    // Instance variables
+    private final int mCapacity;
+    private final ConcurrentLinkedQueue<ApiCommand> mSharedPool;
+    private final AtomicInteger mSharedSize;
+    private final ThreadLocal<LocalCache> mLocalCache = new ThreadLocal<LocalCache>() {
+        @Override
+        protected LocalCache initialValue() {
+            return new LocalCache();
+        }
+    };
+
+    // Statistics
+    private final AtomicLong mRequestCount = new AtomicLong();
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicInteger mInUseCount = new AtomicInteger();
+    private final AtomicInteger mHighWaterMark = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param capacity The maximum number of commands in the shared pool
+     */
+    public CommandPool(int capacity) {
+        mCapacity = capacity;
+        mSharedPool = new ConcurrentLinkedQueue<ApiCommand>();
+        mSharedSize = new AtomicInteger();
+    }
+
+    /**
+     * @return The command is retrieved from the pool or if the pool is empty
+     *      a new command is allocated
+     */
+    public ApiCommand get() {
+        mRequestCount.incrementAndGet();
+        updateHighWaterMark(mInUseCount.incrementAndGet());
+
+        final LocalCache cache = mLocalCache.get();
+        ApiCommand command = null;
+        if (cache.mSize > 0) {
+            cache.mSize--;
+            command = cache.mCommands[cache.mSize];
+            cache.mCommands[cache.mSize] = null;
+        } else {
+            command = mSharedPool.poll();
+            if (command != null) {
+                mSharedSize.decrementAndGet();
+            }
+        }
+
+        if (command != null) {
+            // The command was cleared when it was returned to the pool
+            mHitCount.incrementAndGet();
+            return command;
+        } else {
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "Pool miss");
+            }
+            return new ApiCommand();
+        }
+    }
+
+    /**
+     * @param command Return a command to the pool
+     */
+    public void put(ApiCommand command) {
+        mInUseCount.decrementAndGet();
+
+        // Release the references held by the command
+        command.clear();
+
+        final LocalCache cache = mLocalCache.get();
+        if (cache.mSize < LOCAL_CAPACITY) {
+            cache.mCommands[cache.mSize++] = command;
+            return;
+        }
+
+        // Reserve a slot in the shared pool. Drop the command if it is full.
+        if (mSharedSize.incrementAndGet() <= mCapacity) {
+            mSharedPool.offer(command);
+        } else {
+            mSharedSize.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return The percentage of requests served from the pool
+     */
+    public int getHitRate() {
+        final long requestCount = mRequestCount.get();
+        if (requestCount == 0) {
+            return 0;
+        }
+
+        return (int)((mHitCount.get() * 100) / requestCount);
+    }
+
+    /**
+     * @return The maximum number of commands in use at the same time
+     */
+    public int getHighWaterMark() {
+        return mHighWaterMark.get();
+    }
+
+    /**
+     * Log the pool statistics
+     */
+    public void logStats() {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Requests: " + mRequestCount.get() + ", hit rate: " + getHitRate()
+                    + "%, high water mark: " + getHighWaterMark());
+        }
+    }
+
+    /**
+     * Update the high water mark
+     *
+     * @param inUseCount The number of commands currently in use
+     */
+    private void updateHighWaterMark(int inUseCount) {
+        int highWaterMark = mHighWaterMark.get();
+        while (inUseCount > highWaterMark) {
+            if (mHighWaterMark.compareAndSet(highWaterMark, inUseCount)) {
+                break;
+            }
+            highWaterMark = mHighWaterMark.get();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.videoeditor.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.media.videoeditor.VideoEditor;
+import android.util.Log;
+
+import com.android.videoeditor.util.NativeResources;
+
+/**
+ * A least recently used cache of loaded video editors. Editors which are
+ * no longer used by an activity are parked in the cache so that reopening
+ * the project does not require a reload. Parked editors are released when
+ * the cache exceeds its size or when the system runs low on memory. Active
+ * editors and editors of projects with pending editing operations are never
+ * evicted.
+ */
+class EditorCache {
+    // Logging
+    private static final String TAG = "EditorCache";
+
+    /**
+     * A cached editor
+     */
+    private static class Entry {
+        private final VideoEditor mVideoEditor;
+        private final VideoEditorProject mProject;
+        private final VideoEditor.MediaProcessingProgressListener mGeneratePreviewListener;
+        private boolean mActive;
+
+        /**
+         * Constructor
+         *
+         * @param videoEditor The video editor
+         * @param project The video editor project
+         * @param generatePreviewListener The generate preview listener
+         */
+        public Entry(VideoEditor videoEditor, VideoEditorProject project,
+                VideoEditor.MediaProcessingProgressListener generatePreviewListener) {
+            mVideoEditor = videoEditor;
+            mProject = project;
+            mGeneratePreviewListener = generatePreviewListener;
+            mActive = true;
+        }
+    }
+
+    // Instance variables
+    private final int mMaxSize;
+    private final LinkedHashMap<String, Entry> mEntries;
+
+    /**
+     * Constructor
+     *
+     * @param maxSize The maximum number of cached editors
+     */
+    public EditorCache(int maxSize) {
+        mMaxSize = maxSize;
+        // Iterate in access order, least recently used first
+        mEntries = new LinkedHashMap<String, Entry>(maxSize + 1, 0.75f, true);
+    }
+
+    /**
+     * @param projectPath The project path
+     *
+     * @return The video editor or null if the editor is not loaded
+     */
+    public synchronized VideoEditor getVideoEditor(String projectPath) {
+        final Entry entry = mEntries.get(projectPath);
+        return entry != null ? entry.mVideoEditor : null;
+    }
+
+    /**
+     * @param projectPath The project path
+     *
+     * @return The project of the cached editor or null if the editor
+     *      is not loaded
+     */
+    public synchronized VideoEditorProject getProject(String projectPath) {
+        final Entry entry = mEntries.get(projectPath);
+        return entry != null ? entry.mProject : null;
+    }
+
+    /**
+     * @param projectPath The project path
+     *
+     * @return The generate preview listener of the cached editor or null if
+     *      the editor is not loaded
+     */
+    public synchronized VideoEditor.MediaProcessingProgressListener getGeneratePreviewListener(
+            String projectPath) {
+        final Entry entry = mEntries.get(projectPath);
+        return entry != null ? entry.mGeneratePreviewListener : null;
+    }
+
+    /**
+     * Add a newly loaded editor. The editor is marked as active.
+     *
+     * @param projectPath The project path
+     * @param videoEditor The video editor
+     * @param project The video editor project
+     * @param generatePreviewListener The listener which reports the
+     *      preview generation of this editor
+     */
+    public synchronized void put(String projectPath, VideoEditor videoEditor,
+            VideoEditorProject project,
+            VideoEditor.MediaProcessingProgressListener generatePreviewListener) {
+        NativeResources.register(videoEditor, TAG);
+        final Entry oldEntry = mEntries.put(projectPath,
+                new Entry(videoEditor, project, generatePreviewListener));
+        if (oldEntry != null && oldEntry.mVideoEditor != videoEditor) {
+            releaseEntry(projectPath, oldEntry);
+        }
+
+        trimToSize(mMaxSize);
+    }
+
+    /**
+     * Mark an editor as used or no longer used by an activity. Editors
+     * which are not used may be evicted.
+     *
+     * @param projectPath The project path
+     * @param active true if the editor is used
+     */
+    public synchronized void setActive(String projectPath, boolean active) {
+        final Entry entry = mEntries.get(projectPath);
+        if (entry != null) {
+            entry.mActive = active;
+            if (!active) {
+                trimToSize(mMaxSize);
+            }
+        }
+    }
+
+    /**
+     * Remove and release the editor of the specified project
+     *
+     * @param projectPath The project path
+     */
+    public synchronized void release(String projectPath) {
+        final Entry entry = mEntries.remove(projectPath);
+        if (entry != null) {
+            releaseEntry(projectPath, entry);
+        }
+    }
+
+    /**
+     * Release all the editors which are not used
+     */
+    public synchronized void releaseInactive() {
+        trimToSize(0);
+    }
+
+    /**
+     * Release the editors which are not used and report the editors which
+     * were loaded but are neither cached nor released. The editors which are
+     * still used by an activity remain loaded since the cache outlives the
+     * service. Leaks are reported only when the leak detection of
+     * {@link NativeResources} is enabled.
+     */
+    public synchronized void releaseInactiveAndCheck() {
+        trimToSize(0);
+
+        final List<VideoEditor> inUse = new ArrayList<VideoEditor>(mEntries.size());
+        for (Entry entry : mEntries.values()) {
+            inUse.add(entry.mVideoEditor);
+        }
+        NativeResources.checkReleased(TAG, inUse);
+    }
+
+    /**
+     * Release the least recently used editors which are not in use until
+     * the cache holds at most the specified number of editors
+     *
+     * @param maxSize The maximum number of cached editors
+     */
+    public synchronized void trimToSize(int maxSize) {
+        final Iterator<Map.Entry<String, Entry>> iterator = mEntries.entrySet().iterator();
+        while (mEntries.size() > maxSize && iterator.hasNext()) {
+            final Map.Entry<String, Entry> mapEntry = iterator.next();
+            final String projectPath = mapEntry.getKey();
+            final Entry entry = mapEntry.getValue();
+            if (!entry.mActive && !ApiService.isProjectBeingEdited(projectPath)) {
+                iterator.remove();
+                releaseEntry(projectPath, entry);
+            }
+        }
+    }
+
+    /**
+     * Release a cached editor
+     *
+     * @param projectPath The project path
+     * @param entry The cache entry
+     */
+    private void releaseEntry(String projectPath, Entry entry) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Release editor: " + projectPath);
+        }
+
+        entry.mVideoEditor.release();
+        NativeResources.unregister(entry.mVideoEditor);
+        if (entry.mProject != null) {
+            entry.mProject.release();
+        }
+    }
+}
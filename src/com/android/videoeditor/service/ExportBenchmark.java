@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.videoeditor.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * The export throughput of this device. The throughput is measured for each
+ * movie height and bitrate as the number of milliseconds of movie exported
+ * per millisecond, by the calibration exports and by every completed
+ * export. The measurements are persisted and used to estimate the duration
+ * of an export before it starts.
+ */
+public class ExportBenchmark {
+    // Logging
+    private static final String TAG = "ExportBenchmark";
+
+    // The preferences in which the measurements are persisted
+    private static final String PREFS_NAME = "export_benchmark";
+
+    // The weight of a new measurement in the average throughput
+    private static final float NEW_MEASUREMENT_WEIGHT = 0.5f;
+
+    // Exports shorter than this are too short to measure
+    private static final long MIN_MEASURED_DURATION_MS = 500;
+
+    // The key which records that the calibration exports completed
+    private static final String KEY_CALIBRATED = "calibrated";
+
+    /**
+     * It is not possible to instantiate this class
+     */
+    private ExportBenchmark() {
+    }
+
+    /**
+     * Record the throughput of an export
+     *
+     * @param context The context
+     * @param height The output movie height
+     * @param bitrate The output movie bitrate
+     * @param movieDurationMs The duration of the exported movie
+     * @param elapsedMs The time it took to export the movie
+     */
+    public static void record(Context context, int height, int bitrate, long movieDurationMs,
+            long elapsedMs) {
+        if (movieDurationMs < MIN_MEASURED_DURATION_MS || elapsedMs <= 0) {
+            return;
+        }
+
+        final float throughput = (float)movieDurationMs / elapsedMs;
+        final SharedPreferences prefs = getPreferences(context);
+        final String key = getKey(height, bitrate);
+        final float averageThroughput;
+        if (prefs.contains(key)) {
+            averageThroughput = NEW_MEASUREMENT_WEIGHT * throughput
+                    + (1 - NEW_MEASUREMENT_WEIGHT) * prefs.getFloat(key, throughput);
+        } else {
+            averageThroughput = throughput;
+        }
+
+        prefs.edit().putFloat(key, averageThroughput).apply();
+
+        // Keep this format stable so that the results of different builds
+        // can be compared
+        Log.i(TAG, "build=" + Build.DISPLAY + " height=" + height + " bitrate=" + bitrate
+                + " movie_ms=" + movieDurationMs + " elapsed_ms=" + elapsedMs
+                + " throughput=" + throughput);
+    }
+
+    /**
+     * Estimate the duration of an export
+     *
+     * @param context The context
+     * @param height The output movie height
+     * @param bitrate The output movie bitrate
+     * @param movieDurationMs The duration of the movie
+     *
+     * @return The estimated duration in milliseconds or -1 if the
+     *      throughput was never measured
+     */
+    public static long estimateDuration(Context context, int height, int bitrate,
+            long movieDurationMs) {
+        final float throughput = getPreferences(context).getFloat(getKey(height, bitrate), 0);
+        if (throughput <= 0) {
+            return -1;
+        }
+
+        return (long)(movieDurationMs / throughput);
+    }
+
+    /**
+     * @param context The context
+     *
+     * @return true if the calibration exports measured every movie size and
+     *      quality
+     */
+    public static boolean isCalibrated(Context context) {
+        return getPreferences(context).getBoolean(KEY_CALIBRATED, false);
+    }
+
+    /**
+     * Record that the calibration exports completed. This method is invoked
+     * only after the throughput of every calibration export was recorded so
+     * that a cancelled or failed calibration is requested again.
+     *
+     * @param context The context
+     */
+    public static void setCalibrated(Context context) {
+        getPreferences(context).edit().putBoolean(KEY_CALIBRATED, true).apply();
+    }
+
+    /**
+     * @param context The context
+     *
+     * @return The preferences in which the measurements are persisted
+     */
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * @param height The output movie height
+     * @param bitrate The output movie bitrate
+     *
+     * @return The key of the measurement
+     */
+    private static String getKey(int height, int bitrate) {
+        return height + "_" + bitrate;
+    }
+}
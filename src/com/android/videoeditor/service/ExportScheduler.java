@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.videoeditor.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * Runs the exports one at a time on a background priority thread. Each
+ * export has its own cancel token. The queue is persisted so that exports
+ * which did not complete can be restarted after the process died.
+ */
+class ExportScheduler {
+    // Logging
+    private static final String TAG = "ExportScheduler";
+
+    // The version of the persisted queue format
+    private static final int STATE_VERSION = 1;
+
+    /**
+     * Runs an export
+     */
+    public interface ExportRunner {
+        /**
+         * Export the movie. This method is invoked on the export thread.
+         * The runner must check {@link ExportJob#isCancelled()} before
+         * starting the export.
+         *
+         * @param job The export job
+         */
+        public void runExport(ExportJob job);
+    }
+
+    /**
+     * An export request
+     */
+    public static class ExportJob {
+        // Instance variables
+        private final String mProjectPath;
+        private final String mFilename;
+        private final int mHeight;
+        private final int mBitrate;
+        private final ApiCommand mCommand;
+        private boolean mPersistent = true;
+        private volatile boolean mCancelled;
+
+        /**
+         * Constructor
+         *
+         * @param projectPath The project path
+         * @param filename The export filename
+         * @param height The output movie height
+         * @param bitrate The output movie bitrate
+         * @param command The export command
+         */
+        public ExportJob(String projectPath, String filename, int height, int bitrate,
+                ApiCommand command) {
+            mProjectPath = projectPath;
+            mFilename = filename;
+            mHeight = height;
+            mBitrate = bitrate;
+            mCommand = command;
+        }
+
+        public String getProjectPath() {
+            return mProjectPath;
+        }
+
+        public String getFilename() {
+            return mFilename;
+        }
+
+        public int getHeight() {
+            return mHeight;
+        }
+
+        public int getBitrate() {
+            return mBitrate;
+        }
+
+        public ApiCommand getCommand() {
+            return mCommand;
+        }
+
+        /**
+         * @param persistent false if the job must not be restarted after the
+         *      process died
+         */
+        public void setPersistent(boolean persistent) {
+            mPersistent = persistent;
+        }
+
+        /**
+         * @return true if the export was cancelled
+         */
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * @param projectPath The project path or null to match any project
+         * @param filename The export filename
+         *
+         * @return true if this job exports the specified movie
+         */
+        private boolean matches(String projectPath, String filename) {
+            return (projectPath == null || mProjectPath.equals(projectPath))
+                    && mFilename.equals(filename);
+        }
+    }
+
+    // Instance variables
+    private final File mStateFile;
+    private final ExportRunner mRunner;
+    private final LinkedList<ExportJob> mQueue;
+    private final Thread mThread;
+    private ExportJob mRunningJob;
+    private boolean mQuit;
+
+    /**
+     * Constructor
+     *
+     * @param stateFile The file in which the queue is persisted
+     * @param runner The export runner
+     */
+    public ExportScheduler(File stateFile, ExportRunner runner) {
+        mStateFile = stateFile;
+        mRunner = runner;
+        mQueue = new LinkedList<ExportJob>();
+        mThread = new Thread("ExportScheduler") {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runExports();
+            }
+        };
+        mThread.start();
+    }
+
+    /**
+     * Queue an export
+     *
+     * @param job The export job
+     */
+    public synchronized void schedule(ExportJob job) {
+        mQueue.add(job);
+        saveState();
+        notifyAll();
+    }
+
+    /**
+     * Cancel an export. A queued export completes as cancelled as soon as it
+     * reaches the head of the queue.
+     *
+     * @param projectPath The project path or null to cancel the export of
+     *      any project
+     * @param filename The export filename
+     *
+     * @return true if the export is running and the encoder must be stopped
+     */
+    public synchronized boolean cancel(String projectPath, String filename) {
+        if (mRunningJob != null && mRunningJob.matches(projectPath, filename)) {
+            mRunningJob.mCancelled = true;
+            return true;
+        }
+
+        for (ExportJob job : mQueue) {
+            if (job.matches(projectPath, filename)) {
+                job.mCancelled = true;
+                break;
+            }
+        }
+
+        saveState();
+        return false;
+    }
+
+    /**
+     * Read the exports which did not complete when the process died and
+     * clear the persisted queue. The exports are not scheduled.
+     *
+     * @return The exports which did not complete. The jobs have no command.
+     */
+    public synchronized List<ExportJob> restore() {
+        final List<ExportJob> jobs = new ArrayList<ExportJob>();
+        if (!mStateFile.exists()) {
+            return jobs;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(mStateFile));
+            if (in.readInt() == STATE_VERSION) {
+                final int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    final String projectPath = in.readUTF();
+                    final String filename = in.readUTF();
+                    final int height = in.readInt();
+                    final int bitrate = in.readInt();
+                    jobs.add(new ExportJob(projectPath, filename, height, bitrate, null));
+                }
+            }
+        } catch (IOException ex) {
+            Log.w(TAG, "Cannot read the export queue", ex);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ex) {
+                }
+            }
+        }
+
+        mStateFile.delete();
+        return jobs;
+    }
+
+    /**
+     * Stop the export thread. The persisted queue is kept.
+     */
+    public synchronized void quit() {
+        mQuit = true;
+        notifyAll();
+    }
+
+    /**
+     * Run the queued exports until the scheduler quits
+     */
+    private void runExports() {
+        while (true) {
+            final ExportJob job;
+            synchronized (this) {
+                while (mQueue.isEmpty() && !mQuit) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                    }
+                }
+
+                if (mQuit) {
+                    return;
+                }
+
+                job = mQueue.getFirst();
+                mRunningJob = job;
+            }
+
+            try {
+                mRunner.runExport(job);
+            } catch (Exception ex) {
+                Log.e(TAG, "Export failed: " + job.mFilename, ex);
+            }
+
+            synchronized (this) {
+                mRunningJob = null;
+                mQueue.remove(job);
+                saveState();
+            }
+        }
+    }
+
+    /**
+     * Persist the exports which are not cancelled. The state is written to a
+     * temporary file first so that the queue is never partially written.
+     */
+    private void saveState() {
+        final List<ExportJob> jobs = new ArrayList<ExportJob>(mQueue.size());
+        for (ExportJob job : mQueue) {
+            if (job.mPersistent && !job.mCancelled) {
+                jobs.add(job);
+            }
+        }
+
+        if (jobs.size() == 0) {
+            mStateFile.delete();
+            return;
+        }
+
+        final File tmpFile = new File(mStateFile.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new FileOutputStream(tmpFile));
+            out.writeInt(STATE_VERSION);
+            out.writeInt(jobs.size());
+            for (ExportJob job : jobs) {
+                out.writeUTF(job.mProjectPath);
+                out.writeUTF(job.mFilename);
+                out.writeInt(job.mHeight);
+                out.writeInt(job.mBitrate);
+            }
+            out.close();
+            out = null;
+
+            if (!tmpFile.renameTo(mStateFile)) {
+                Log.w(TAG, "Cannot save the export queue");
+            }
+        } catch (FileNotFoundException ex) {
+            Log.w(TAG, "Cannot create the export queue file", ex);
+        } catch (IOException ex) {
+            Log.w(TAG, "Cannot write the export queue", ex);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ex) {
+                }
+            }
+        }
+    }
+}
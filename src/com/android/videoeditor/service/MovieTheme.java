@@ -16,6 +16,10 @@
 
 package com.android.videoeditor.service;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 import com.android.videoeditor.R;
 
 import android.content.Context;
@@ -26,7 +30,8 @@ import android.media.videoeditor.TransitionFadeBlack;
 import android.media.videoeditor.TransitionSliding;
 
 /**
- * Movie theme description
+ * Movie theme description. Themes are immutable and each theme is built only
+ * once.
  */
 public class MovieTheme {
     // Defined themes
@@ -35,6 +40,10 @@ public class MovieTheme {
     public static final String THEME_FILM = "film";
     public static final String THEME_ROCKANDROLL = "rockandroll";
 
+    // The themes which were built and the locale of their titles
+    private static final Map<String, MovieTheme> mThemes = new HashMap<String, MovieTheme>();
+    private static Locale mThemesLocale;
+
     /**
      * Get theme by name
      *
@@ -42,7 +51,33 @@ public class MovieTheme {
      * @param theme The theme id
      * @return The theme
      */
-    public static MovieTheme getTheme(Context context, String theme) {
+    public static synchronized MovieTheme getTheme(Context context, String theme) {
+        // The titles of the overlays are localized
+        final Locale locale = context.getResources().getConfiguration().locale;
+        if (!locale.equals(mThemesLocale)) {
+            mThemes.clear();
+            mThemesLocale = locale;
+        }
+
+        MovieTheme movieTheme = mThemes.get(theme);
+        if (movieTheme == null) {
+            movieTheme = buildTheme(context, theme);
+            if (movieTheme != null) {
+                mThemes.put(theme, movieTheme);
+            }
+        }
+
+        return movieTheme;
+    }
+
+    /**
+     * Build a theme
+     *
+     * @param context The context
+     * @param theme The theme id
+     * @return The theme or null if the theme id is invalid
+     */
+    private static MovieTheme buildTheme(Context context, String theme) {
         if (THEME_TRAVEL.equals(theme)) {
             return new MovieTheme(THEME_TRAVEL, R.string.theme_name_travel,
                     R.drawable.theme_preview_travel, 0,
@@ -247,6 +247,36 @@ public class MovieTransition {
         return mAlphaInvert;
     }
 
+    /**
+     * Check if a VideoEditor transition is the transition which
+     * {@link #buildTransition} would create
+     *
+     * @param context the context
+     * @param transition The VideoEditor transition
+     *
+     * @return true if the type, duration, behavior and type specific
+     *      parameters of the transition match
+     */
+    boolean matches(Context context, Transition transition) throws IOException {
+        if (!mTypeClass.equals(transition.getClass())
+                || mDurationMs != transition.getDuration()
+                || mBehavior != transition.getBehavior()) {
+            return false;
+        }
+
+        if (transition instanceof TransitionSliding) {
+            return mSlidingDirection == ((TransitionSliding)transition).getDirection();
+        } else if (transition instanceof TransitionAlpha) {
+            final TransitionAlpha ta = (TransitionAlpha)transition;
+            return mAlphaMaskBlendingPercent == ta.getBlendingPercent()
+                    && mAlphaInvert == ta.isInvert()
+                    && FileUtils.getMaskFilename(context, mAlphaMaskResId).equals(
+                            ta.getMaskFilename());
+        } else {
+            return true;
+        }
+    }
+
     /**
      * Create a VideoEditor transition
      *
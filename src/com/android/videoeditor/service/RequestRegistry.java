@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.videoeditor.service;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The registry of pending requests. Besides the pending commands the
+ * registry maintains, for each project, the number of pending operations
+ * which modify the timeline so that the edit state of a project can be
+ * queried without scanning the pending requests.
+ */
+class RequestRegistry {
+    // Instance variables
+    private final ConcurrentHashMap<Long, ApiCommand> mCommands =
+            new ConcurrentHashMap<Long, ApiCommand>();
+    private final ConcurrentHashMap<String, AtomicInteger> mEditCounts =
+            new ConcurrentHashMap<String, AtomicInteger>();
+
+    /**
+     * Add a pending request
+     *
+     * @param command The command
+     * @param editing true if the command modifies the timeline of its project
+     *
+     * @return true if this is the first pending editing operation
+     *      for the project
+     */
+    public boolean add(ApiCommand command, boolean editing) {
+        mCommands.put(command.requestId, command);
+
+        final String projectPath = command.projectPath;
+        if (!editing || projectPath == null) {
+            return false;
+        }
+
+        return getEditCount(projectPath).incrementAndGet() == 1;
+    }
+
+    /**
+     * Remove a pending request. Removing a request which is not pending
+     * has no effect.
+     *
+     * @param command The command
+     * @param editing true if the command modifies the timeline of its project
+     *
+     * @return true if this was the last pending editing operation
+     *      for the project
+     */
+    public boolean remove(ApiCommand command, boolean editing) {
+        if (mCommands.remove(command.requestId) == null) {
+            return false;
+        }
+
+        final String projectPath = command.projectPath;
+        if (!editing || projectPath == null) {
+            return false;
+        }
+
+        return getEditCount(projectPath).decrementAndGet() == 0;
+    }
+
+    /**
+     * @param projectPath The project path
+     *
+     * @return true if editing operations are pending for the project
+     */
+    public boolean isEditing(String projectPath) {
+        final AtomicInteger count = mEditCounts.get(projectPath);
+        return count != null && count.get() > 0;
+    }
+
+    /**
+     * @return The pending commands. The collection is weakly consistent and
+     *      may be iterated while requests are added or removed.
+     */
+    public Collection<ApiCommand> commands() {
+        return mCommands.values();
+    }
+
+    /**
+     * @return true if there are no pending requests
+     */
+    public boolean isEmpty() {
+        return mCommands.isEmpty();
+    }
+
+    /**
+     * @param projectPath The project path
+     *
+     * @return The counter of editing operations for the project
+     */
+    private AtomicInteger getEditCount(String projectPath) {
+        AtomicInteger count = mEditCounts.get(projectPath);
+        if (count == null) {
+            final AtomicInteger newCount = new AtomicInteger();
+            count = mEditCounts.putIfAbsent(projectPath, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+
+        return count;
+    }
+}
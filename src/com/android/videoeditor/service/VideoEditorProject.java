@@ -45,6 +45,9 @@ public class VideoEditorProject {
     // The name of the metadata file
     private final static String PROJECT_METADATA_FILENAME = "metadata.xml";
 
+    // The name of the thumbnail displayed by the project picker
+    public final static String PICKER_THUMBNAIL_FILENAME = "picker_thumbnail.jpg";
+
     public static final int DEFAULT_ZOOM_LEVEL = 20;
 
     // XML definitions
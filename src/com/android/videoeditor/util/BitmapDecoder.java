@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.videoeditor.util;
+
+import java.io.IOException;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.util.Log;
+
+/**
+ * Decodes images at the resolution at which they are displayed. The images
+ * are sub-sampled by a power of two, which the decoders apply exactly and
+ * cheaply, so that the decoded bitmap is never smaller than the requested
+ * size but is at most twice as large. Crops are decoded from the region
+ * they cover instead of from the whole image.
+ */
+public class BitmapDecoder {
+    // Logging
+    private static final String TAG = "BitmapDecoder";
+
+    /**
+     * It is not possible to instantiate this class
+     */
+    private BitmapDecoder() {
+    }
+
+    /**
+     * Decode the size of an image without decoding its pixels
+     *
+     * @param filename The filename
+     *
+     * @return The options which contain the width and the height of the image
+     */
+    public static BitmapFactory.Options decodeBounds(String filename) throws IOException {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(filename, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Cannot decode file: " + filename);
+        }
+
+        return options;
+    }
+
+    /**
+     * Compute the largest power of two sample size which decodes an image to
+     * at least the specified size
+     *
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param minWidth The minimum width of the decoded bitmap
+     * @param minHeight The minimum height of the decoded bitmap
+     *
+     * @return The sample size
+     */
+    public static int computeSampleSize(int width, int height, int minWidth, int minHeight) {
+        final int ratio = Math.min(width / Math.max(minWidth, 1),
+                height / Math.max(minHeight, 1));
+        return ratio > 1 ? Integer.highestOneBit(ratio) : 1;
+    }
+
+    /**
+     * Decode an image
+     *
+     * @param filename The filename
+     * @param sampleSize The power of two sample size
+     * @param config The bitmap configuration or null for the default
+     *      configuration
+     *
+     * @return The bitmap or null if the image cannot be decoded
+     */
+    public static Bitmap decodeFile(String filename, int sampleSize, Bitmap.Config config) {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        if (config != null) {
+            options.inPreferredConfig = config;
+            options.inDither = true;
+        }
+
+        return BitmapFactory.decodeFile(filename, options);
+    }
+
+    /**
+     * Decode a region of an image
+     *
+     * @param filename The filename
+     * @param region The region in image coordinates
+     * @param sampleSize The power of two sample size
+     * @param config The bitmap configuration or null for the default
+     *      configuration
+     *
+     * @return The bitmap or null if the region cannot be decoded
+     */
+    public static Bitmap decodeRegion(String filename, Rect region, int sampleSize,
+            Bitmap.Config config) {
+        final BitmapRegionDecoder decoder;
+        try {
+            decoder = BitmapRegionDecoder.newInstance(filename, false);
+        } catch (IOException ex) {
+            // The region decoder supports JPEG and PNG images only
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "Cannot decode region of: " + filename, ex);
+            }
+            return null;
+        }
+
+        try {
+            return decodeRegion(decoder, region, sampleSize, config, null);
+        } finally {
+            decoder.recycle();
+        }
+    }
+
+    /**
+     * Decode a region of an image. The bitmap is decoded into the bitmap to
+     * reuse if the decoded region has the same size and configuration.
+     *
+     * @param decoder The region decoder
+     * @param region The region in image coordinates
+     * @param sampleSize The power of two sample size
+     * @param config The bitmap configuration or null for the default
+     *      configuration
+     * @param reuse The bitmap to reuse or null
+     *
+     * @return The bitmap or null if the region cannot be decoded
+     */
+    public static Bitmap decodeRegion(BitmapRegionDecoder decoder, Rect region, int sampleSize,
+            Bitmap.Config config, Bitmap reuse) {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        if (config != null) {
+            options.inPreferredConfig = config;
+            options.inDither = true;
+        }
+
+        if (reuse != null && !reuse.isRecycled() && reuse.isMutable()
+                && reuse.getWidth() == getSampledSize(region.width(), sampleSize)
+                && reuse.getHeight() == getSampledSize(region.height(), sampleSize)
+                && (config == null || reuse.getConfig() == config)) {
+            options.inBitmap = reuse;
+        }
+
+        try {
+            return decoder.decodeRegion(region, options);
+        } catch (IllegalArgumentException ex) {
+            if (options.inBitmap == null) {
+                throw ex;
+            }
+
+            // The bitmap cannot be reused
+            options.inBitmap = null;
+            return decoder.decodeRegion(region, options);
+        }
+    }
+
+    /**
+     * Compute the centered region of an image which has the aspect ratio of
+     * a crop
+     *
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param cropWidth The width of the crop
+     * @param cropHeight The height of the crop
+     *
+     * @return The region in image coordinates
+     */
+    public static Rect getCenterCrop(int width, int height, int cropWidth, int cropHeight) {
+        final int regionWidth, regionHeight;
+        if ((long)width * cropHeight > (long)height * cropWidth) {
+            regionHeight = height;
+            regionWidth = Math.max((int)((long)height * cropWidth / cropHeight), 1);
+        } else {
+            regionWidth = width;
+            regionHeight = Math.max((int)((long)width * cropHeight / cropWidth), 1);
+        }
+
+        final int left = (width - regionWidth) / 2;
+        final int top = (height - regionHeight) / 2;
+        return new Rect(left, top, left + regionWidth, top + regionHeight);
+    }
+
+    /**
+     * @param size The size in image coordinates
+     * @param sampleSize The sample size
+     *
+     * @return The size of the sub-sampled bitmap
+     */
+    private static int getSampledSize(int size, int sampleSize) {
+        return (size + sampleSize - 1) / sampleSize;
+    }
+}
@@ -18,16 +18,11 @@ package com.android.videoeditor.util;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 
 import com.android.videoeditor.R;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Bitmap.CompressFormat;
 import android.media.videoeditor.MediaProperties;
 import android.os.Environment;
 import android.util.Log;
@@ -81,56 +76,7 @@ public class FileUtils {
      */
     public static String getMaskFilename(Context context, int maskRawResourceId)
             throws FileNotFoundException, IOException {
-        final String filename;
-        switch (maskRawResourceId) {
-            case R.raw.mask_contour: {
-                filename = "mask_countour.jpg";
-                break;
-            }
-
-            case R.raw.mask_diagonal: {
-                filename = "mask_diagonal.jpg";
-                break;
-            }
-
-            default: {
-                throw new IllegalArgumentException("Invalid mask raw resource id");
-            }
-        }
-
-        final File mf = new File(context.getFilesDir(), filename);
-        if (!mf.exists()) {
-            Bitmap bitmap = null;
-            FileOutputStream fos = null;
-            InputStream is = null;
-            try {
-                is = context.getResources().openRawResource(maskRawResourceId);
-                bitmap = BitmapFactory.decodeStream(is);
-                if (bitmap == null) {
-                    throw new IllegalStateException("Cannot decode raw resource mask");
-                }
-
-                fos = context.openFileOutput(filename, Context.MODE_WORLD_READABLE);
-                if (!bitmap.compress(CompressFormat.JPEG, 100, fos)) {
-                    throw new IllegalStateException("Cannot compress bitmap");
-                }
-            } finally {
-                if (is != null) {
-                    is.close();
-                }
-
-                if (bitmap != null) {
-                    bitmap.recycle();
-                }
-
-                if (fos != null) {
-                    fos.flush();
-                    fos.close();
-                }
-            }
-        }
-
-        return mf.getAbsolutePath();
+        return ThemeAssets.getFilename(context, maskRawResourceId);
     }
 
     /**
@@ -163,58 +109,7 @@ public class FileUtils {
      */
     public static String getAudioTrackFilename(Context context, int rawResourceId)
             throws FileNotFoundException, IOException {
-        final String filename;
-        switch (rawResourceId) {
-            case R.raw.theme_travel_audio_track: {
-                filename = "theme_travel.m4a";
-                break;
-            }
-
-            case R.raw.theme_surfing_audio_track: {
-                filename = "theme_surfing.m4a";
-                break;
-            }
-
-            case R.raw.theme_film_audio_track: {
-                filename = "theme_film.m4a";
-                break;
-            }
-
-            case R.raw.theme_rockandroll_audio_track: {
-                filename = "theme_rockandroll.m4a";
-                break;
-            }
-
-            default: {
-                throw new IllegalArgumentException("Invalid audio track raw resource id");
-            }
-        }
-
-        final File mf = new File(context.getFilesDir(), filename);
-        if (!mf.exists()) {
-            FileOutputStream fos = null;
-            InputStream is = null;
-            try {
-                is = context.getResources().openRawResource(rawResourceId);
-                fos = context.openFileOutput(filename, Context.MODE_WORLD_READABLE);
-                final byte[] buffer = new byte[1024];
-                int bytesRead;
-                while ((bytesRead = is.read(buffer)) > 0) {
-                    fos.write(buffer, 0, bytesRead);
-                }
-            } finally {
-                if (is != null) {
-                    is.close();
-                }
-
-                if (fos != null) {
-                    fos.flush();
-                    fos.close();
-                }
-            }
-        }
-
-        return mf.getAbsolutePath();
+        return ThemeAssets.getFilename(context, rawResourceId);
     }
 
     /**
@@ -34,10 +34,13 @@ import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.media.ExifInterface;
+import android.media.videoeditor.VideoEditor;
 import android.util.Log;
+import android.util.LruCache;
 
 import com.android.videoeditor.R;
 import com.android.videoeditor.service.MovieOverlay;
+import com.android.videoeditor.service.VideoEditorProject;
 
 /**
  * Image utility methods
@@ -51,10 +54,41 @@ public class ImageUtils {
     // The resize paint
     private static final Paint sResizePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
 
+    // The paint used to convert bitmaps to a smaller pixel format
+    private static final Paint sDitherPaint =
+            new Paint(Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG);
+
     // The match aspect ratio mode for scaleImage
     public static int MATCH_SMALLER_DIMENSION = 1;
     public static int MATCH_LARGER_DIMENSION = 2;
 
+    // The maximum number of memoized text layouts
+    private static final int TEXT_LAYOUT_CACHE_SIZE = 64;
+
+    // The trimmed texts and their widths keyed by font size, maximum width
+    // and text
+    private static final LruCache<String, TextLayout> sTextLayoutCache =
+            new LruCache<String, TextLayout>(TEXT_LAYOUT_CACHE_SIZE);
+
+    /**
+     * A text trimmed to fit a width
+     */
+    private static class TextLayout {
+        private final String mText;
+        private final float mWidth;
+
+        /**
+         * Constructor
+         *
+         * @param text The trimmed text
+         * @param width The width of the trimmed text
+         */
+        public TextLayout(String text, float width) {
+            mText = text;
+            mWidth = width;
+        }
+    }
+
     /**
      * It is not possible to instantiate this class
      */
@@ -73,48 +107,187 @@ public class ImageUtils {
      */
     public static Bitmap scaleImage(String filename, int width, int height, int match)
             throws IOException {
-        final BitmapFactory.Options dbo = new BitmapFactory.Options();
-        dbo.inJustDecodeBounds = true;
-        BitmapFactory.decodeFile(filename, dbo);
-
+        final BitmapFactory.Options dbo = BitmapDecoder.decodeBounds(filename);
         final int nativeWidth = dbo.outWidth;
         final int nativeHeight = dbo.outHeight;
 
-        final Bitmap srcBitmap;
-        float scaledWidth, scaledHeight;
-        final BitmapFactory.Options options = new BitmapFactory.Options();
+        final int scaledWidth, scaledHeight;
         if (nativeWidth > width || nativeHeight > height) {
             float dx = ((float) nativeWidth) / ((float) width);
             float dy = ((float) nativeHeight) / ((float) height);
             float scale = (match == MATCH_SMALLER_DIMENSION) ? Math.max(dx,dy) : Math.min(dx,dy);
-            scaledWidth = nativeWidth / scale;
-            scaledHeight = nativeHeight / scale;
-            // Create the bitmap from file.
-            options.inSampleSize = (scale > 1.0f) ? ((int) scale) : 1;
-       } else {
+            scaledWidth = Math.max(Math.round(nativeWidth / scale), 1);
+            scaledHeight = Math.max(Math.round(nativeHeight / scale), 1);
+        } else {
             scaledWidth = width;
             scaledHeight = height;
-            options.inSampleSize = 1;
-       }
-
-       srcBitmap = BitmapFactory.decodeFile(filename, options);
-       if (srcBitmap == null) {
-         throw new IOException("Cannot decode file: " + filename);
-       }
-
-       // Create the canvas bitmap.
-       final Bitmap bitmap = Bitmap.createBitmap(Math.round(scaledWidth),
-               Math.round(scaledHeight),
-               Bitmap.Config.ARGB_8888);
-       final Canvas canvas = new Canvas(bitmap);
-       canvas.drawBitmap(srcBitmap,
-               new Rect(0, 0, srcBitmap.getWidth(), srcBitmap.getHeight()),
-               new Rect(0, 0, Math.round(scaledWidth), Math.round(scaledHeight)),
-               sResizePaint);
-
-       // Release the source bitmap
-       srcBitmap.recycle();
-       return bitmap;
+        }
+
+        // Decode at the smallest power of two sub-sample which is at least as
+        // large as the scaled image so that the decoder does not round it
+        final int sampleSize = BitmapDecoder.computeSampleSize(nativeWidth, nativeHeight,
+                scaledWidth, scaledHeight);
+        final Bitmap srcBitmap = BitmapDecoder.decodeFile(filename, sampleSize, null);
+        if (srcBitmap == null) {
+            throw new IOException("Cannot decode file: " + filename);
+        }
+
+        final Bitmap bitmap = Bitmap.createScaledBitmap(srcBitmap, scaledWidth, scaledHeight,
+                true);
+        if (bitmap != srcBitmap) {
+            // Release the source bitmap
+            srcBitmap.recycle();
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Get the pixel format of the opaque thumbnails. The timeline and project
+     * picker thumbnails are opaque so they can be stored in RGB_565 unless
+     * the device is configured to keep them in ARGB_8888.
+     *
+     * @param context The context
+     *
+     * @return The bitmap configuration of the opaque thumbnails
+     */
+    public static Bitmap.Config getThumbnailConfig(Context context) {
+        return context.getResources().getBoolean(R.bool.config_rgb_565_thumbnails) ?
+                Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+    }
+
+    /**
+     * Convert a bitmap to the specified pixel format. The bitmap is dithered
+     * if the pixel format has fewer bits per color.
+     *
+     * @param bitmap The bitmap
+     * @param config The bitmap configuration or null to keep the bitmap
+     *      configuration
+     *
+     * @return The converted bitmap or the bitmap if it already has the
+     *      specified configuration. The bitmap is not recycled.
+     */
+    public static Bitmap convertBitmap(Bitmap bitmap, Bitmap.Config config) {
+        if (bitmap == null || config == null || bitmap.getConfig() == config) {
+            return bitmap;
+        }
+
+        final Bitmap result = Bitmap.createBitmap(bitmap.getWidth(), bitmap.getHeight(), config);
+        final Canvas canvas = new Canvas(result);
+        canvas.drawBitmap(bitmap, 0, 0, sDitherPaint);
+        return result;
+    }
+
+    /**
+     * Get the thumbnail of a project sized for the project picker. The
+     * thumbnail is decoded from the picker thumbnail file of the project.
+     * The file is generated from the project thumbnail if it does not exist,
+     * if it has a different size or if the project was saved since.
+     *
+     * @param projectPath The project path
+     * @param width The thumbnail width
+     * @param height The thumbnail height
+     * @param config The bitmap configuration
+     *
+     * @return The mutable thumbnail or null if the project has no thumbnail
+     */
+    public static Bitmap getPickerThumbnail(String projectPath, int width, int height,
+            Bitmap.Config config) throws IOException {
+        final File thumbnailFile = new File(projectPath, VideoEditor.THUMBNAIL_FILENAME);
+        final File pickerFile =
+                new File(projectPath, VideoEditorProject.PICKER_THUMBNAIL_FILENAME);
+        if (pickerFile.exists() && pickerFile.lastModified() >= thumbnailFile.lastModified()) {
+            final BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inMutable = true;
+            options.inPreferredConfig = config;
+            options.inDither = true;
+            final Bitmap bitmap = BitmapFactory.decodeFile(pickerFile.getAbsolutePath(), options);
+            if (bitmap != null && bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                return bitmap;
+            }
+
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+        }
+
+        final Bitmap bitmap = savePickerThumbnail(projectPath, width, height);
+        final Bitmap result = convertBitmap(bitmap, config);
+        if (result != bitmap) {
+            bitmap.recycle();
+        }
+
+        return result;
+    }
+
+    /**
+     * Generate the picker thumbnail file of a project from the project
+     * thumbnail. The project thumbnail is scaled to fill the picker
+     * thumbnail and centered.
+     *
+     * @param projectPath The project path
+     * @param width The thumbnail width
+     * @param height The thumbnail height
+     *
+     * @return The mutable thumbnail or null if the project has no thumbnail
+     */
+    public static Bitmap savePickerThumbnail(String projectPath, int width, int height)
+            throws IOException {
+        final File thumbnailFile = new File(projectPath, VideoEditor.THUMBNAIL_FILENAME);
+        if (!thumbnailFile.exists()) {
+            return null;
+        }
+
+        final String filename = thumbnailFile.getAbsolutePath();
+        final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.BLACK);
+        final Canvas canvas = new Canvas(bitmap);
+
+        // Decode only the centered part of the project thumbnail which fills
+        // the picker thumbnail and scale it directly into the picker thumbnail
+        final BitmapFactory.Options dbo = BitmapDecoder.decodeBounds(filename);
+        final Rect region = BitmapDecoder.getCenterCrop(dbo.outWidth, dbo.outHeight, width,
+                height);
+        final Bitmap regionBitmap = BitmapDecoder.decodeRegion(filename, region,
+                BitmapDecoder.computeSampleSize(region.width(), region.height(), width, height),
+                null);
+        if (regionBitmap != null) {
+            canvas.drawBitmap(regionBitmap, null, new Rect(0, 0, width, height), sResizePaint);
+            regionBitmap.recycle();
+        } else {
+            final Bitmap previewBitmap = scaleImage(filename, width, height,
+                    MATCH_LARGER_DIMENSION);
+            canvas.drawBitmap(previewBitmap, (width - previewBitmap.getWidth()) / 2,
+                    (height - previewBitmap.getHeight()) / 2, sResizePaint);
+            previewBitmap.recycle();
+        }
+
+        // Write to a temporary file so that a partially written thumbnail is
+        // never decoded
+        final File pickerFile =
+                new File(projectPath, VideoEditorProject.PICKER_THUMBNAIL_FILENAME);
+        // Each writer has its own temporary file because the picker
+        // thumbnail of a project may be generated concurrently by the service
+        // after a save and by the project picker
+        final File tmpFile = File.createTempFile(VideoEditorProject.PICKER_THUMBNAIL_FILENAME,
+                ".tmp", new File(projectPath));
+        try {
+            final FileOutputStream fos = new FileOutputStream(tmpFile);
+            try {
+                bitmap.compress(CompressFormat.JPEG, 90, fos);
+            } finally {
+                fos.close();
+            }
+
+            if (!tmpFile.renameTo(pickerFile)) {
+                Log.w(TAG, "Cannot save the picker thumbnail: " + pickerFile);
+            }
+        } finally {
+            // The temporary file remains only if it was not renamed
+            tmpFile.delete();
+        }
+
+        return bitmap;
     }
 
     /**
@@ -308,26 +481,11 @@ public class ImageUtils {
                 ((2 * height) / 3) - INSET);
         background.draw(canvas);
 
-        final Paint p = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
-        p.setTypeface(Typeface.DEFAULT_BOLD);
-        p.setColor(textColor);
-
         final int titleFontSize = height / 12;
         final int maxWidth = width - (2 * INSET) - (2 * titleFontSize);
         final int startYOffset = startHeight + (height / 6);
-        if (title != null) {
-            p.setTextSize(titleFontSize);
-            title = StringUtils.trimText(title, p, maxWidth);
-            canvas.drawText(title, (width - (2 * INSET) - p.measureText(title)) / 2,
-                    startYOffset - p.descent(), p);
-        }
-
-        if (subTitle != null) {
-            p.setTextSize(titleFontSize - 6);
-            subTitle = StringUtils.trimText(subTitle, p, maxWidth);
-            canvas.drawText(subTitle, (width - (2 * INSET) - p.measureText(subTitle)) / 2,
-                    startYOffset - p.ascent(), p);
-        }
+        drawTitles(canvas, textColor, title, subTitle, titleFontSize, maxWidth,
+                width - (2 * INSET), startYOffset);
     }
 
     /**
@@ -350,26 +508,11 @@ public class ImageUtils {
         background.setBounds(INSET, startHeight, width - INSET, height - INSET);
         background.draw(canvas);
 
-        final Paint p = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
-        p.setTypeface(Typeface.DEFAULT_BOLD);
-        p.setColor(textColor);
-
         final int titleFontSize = height / 12;
         final int maxWidth = width - (2 * INSET) - (2 * titleFontSize);
         final int startYOffset = startHeight + (height / 6);
-        if (title != null) {
-            p.setTextSize(titleFontSize);
-            title = StringUtils.trimText(title, p, maxWidth);
-            canvas.drawText(title, (width - (2 * INSET) - p.measureText(title)) / 2,
-                    startYOffset - p.descent(), p);
-        }
-
-        if (subTitle != null) {
-            p.setTextSize(titleFontSize - 6);
-            subTitle = StringUtils.trimText(subTitle, p, maxWidth);
-            canvas.drawText(subTitle, (width - (2 * INSET) - p.measureText(subTitle)) / 2,
-                    startYOffset - p.ascent(), p);
-        }
+        drawTitles(canvas, textColor, title, subTitle, titleFontSize, maxWidth,
+                width - (2 * INSET), startYOffset);
     }
 
     /**
@@ -429,25 +572,64 @@ public class ImageUtils {
                 height - INSET + startY);
         background.draw(canvas);
 
+        final int titleFontSize = height / 4;
+        final int maxWidth = width - (2 * INSET) - (2 * titleFontSize);
+        final int startYOffset = startHeight + (height / 2);
+        drawTitles(canvas, textColor, title, subTitle, titleFontSize, maxWidth,
+                width - (2 * INSET), startYOffset);
+    }
+
+    /**
+     * Draw the title and the subtitle of an overlay, centered horizontally
+     *
+     * @param canvas The canvas
+     * @param textColor The text color
+     * @param title The title
+     * @param subTitle The subtitle
+     * @param titleFontSize The title font size
+     * @param maxWidth The maximum width of the texts
+     * @param width The width in which the texts are centered
+     * @param startYOffset The baseline between the title and the subtitle
+     */
+    private static void drawTitles(Canvas canvas, int textColor, String title,
+            String subTitle, int titleFontSize, int maxWidth, int width, int startYOffset) {
         final Paint p = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
         p.setTypeface(Typeface.DEFAULT_BOLD);
         p.setColor(textColor);
 
-        final int titleFontSize = height / 4;
-        final int maxWidth = width - (2 * INSET) - (2 * titleFontSize);
-        final int startYOffset = startHeight + (height / 2);
         if (title != null) {
             p.setTextSize(titleFontSize);
-            title = StringUtils.trimText(title, p, maxWidth);
-            canvas.drawText(title, (width - (2 * INSET) - p.measureText(title)) / 2,
+            final TextLayout layout = getTextLayout(p, title, maxWidth);
+            canvas.drawText(layout.mText, (width - layout.mWidth) / 2,
                     startYOffset - p.descent(), p);
         }
 
         if (subTitle != null) {
             p.setTextSize(titleFontSize - 6);
-            subTitle = StringUtils.trimText(subTitle, p, maxWidth);
-            canvas.drawText(subTitle, (width - (2 * INSET) - p.measureText(subTitle)) / 2,
+            final TextLayout layout = getTextLayout(p, subTitle, maxWidth);
+            canvas.drawText(layout.mText, (width - layout.mWidth) / 2,
                     startYOffset - p.ascent(), p);
         }
     }
+
+    /**
+     * Trim and measure a text. The results are memoized.
+     *
+     * @param p The paint with the text size set
+     * @param text The text
+     * @param maxWidth The maximum width of the text
+     *
+     * @return The text layout
+     */
+    private static TextLayout getTextLayout(Paint p, String text, int maxWidth) {
+        final String key = (int)p.getTextSize() + ":" + maxWidth + ":" + text;
+        TextLayout layout = sTextLayoutCache.get(key);
+        if (layout == null) {
+            final String trimmedText = StringUtils.trimText(text, p, maxWidth);
+            layout = new TextLayout(trimmedText, p.measureText(trimmedText));
+            sTextLayoutCache.put(key, layout);
+        }
+
+        return layout;
+    }
 }
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.videoeditor.util;
+
+import java.lang.ref.WeakReference;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+import android.util.LruCache;
+
+/**
+ * The memory budget of the bitmap caches and of the loaded video editors.
+ * Each cache is sized as a fraction of the memory class of the device. The
+ * caches are registered so that they can be trimmed when the system runs
+ * low on memory and so that their hit rates can be reported.
+ */
+public class MemoryBudget {
+    // Logging
+    private static final String TAG = "MemoryBudget";
+
+    // The caches
+    public static final int CACHE_THUMBNAILS = 0;
+    public static final int CACHE_TIMELINE_TILES = 1;
+    public static final int CACHE_PROJECT_PREVIEWS = 2;
+    public static final int CACHE_IMAGE_TILES = 3;
+    public static final int CACHE_PICKER_IMAGES = 4;
+
+    // The names of the caches
+    private static final String[] CACHE_NAMES = {
+        "thumbnails", "timeline_tiles", "project_previews", "image_tiles", "picker_images"
+    };
+
+    // The fraction of the memory class allotted to each cache
+    private static final int[] CACHE_DIVISORS = { 16, 8, 16, 8, 16 };
+
+    // The caches which hold the content currently displayed by the timeline
+    // or by the Ken Burns editor are trimmed less than the other caches
+    private static final boolean[] CACHE_VISIBLE_TIER = { true, true, false, true, false };
+
+    // The registered caches
+    @SuppressWarnings("unchecked")
+    private static final WeakReference<LruCache<?, ?>>[] sCaches =
+            new WeakReference[CACHE_NAMES.length];
+
+    // The memory class in bytes
+    private static int sMemoryClassBytes;
+
+    /**
+     * It is not possible to instantiate this class
+     */
+    private MemoryBudget() {
+    }
+
+    /**
+     * Get the size of a cache
+     *
+     * @param context The context
+     * @param cache The cache
+     *
+     * @return The maximum size of the cache in bytes
+     */
+    public static synchronized int getCacheSize(Context context, int cache) {
+        return getMemoryClassBytes(context) / CACHE_DIVISORS[cache];
+    }
+
+    /**
+     * Get the number of video editors which are kept loaded. Most of the
+     * memory of an editor is allocated by the native engine and does not
+     * count against the heap, so the editors are budgeted by count rather
+     * than by bytes. The count still follows the memory class of the device.
+     *
+     * @param context The context
+     *
+     * @return The maximum number of loaded editors
+     */
+    public static synchronized int getEditorCacheSize(Context context) {
+        final int memoryClass = getMemoryClassBytes(context) / (1024 * 1024);
+        if (memoryClass >= 64) {
+            return 3;
+        } else if (memoryClass >= 32) {
+            return 2;
+        } else {
+            return 1;
+        }
+    }
+
+    /**
+     * @param context The context
+     *
+     * @return The memory class of the device in bytes
+     */
+    private static int getMemoryClassBytes(Context context) {
+        if (sMemoryClassBytes == 0) {
+            final Context appContext = context.getApplicationContext();
+            final ActivityManager activityManager =
+                    (ActivityManager)appContext.getSystemService(Context.ACTIVITY_SERVICE);
+            sMemoryClassBytes = activityManager.getMemoryClass() * 1024 * 1024;
+            appContext.registerComponentCallbacks(new ComponentCallbacks2() {
+                @Override
+                public void onTrimMemory(int level) {
+                    trimCaches(level);
+                }
+
+                @Override
+                public void onLowMemory() {
+                    trimCaches(TRIM_MEMORY_COMPLETE);
+                }
+
+                @Override
+                public void onConfigurationChanged(Configuration newConfig) {
+                }
+            });
+        }
+
+        return sMemoryClassBytes;
+    }
+
+    /**
+     * Register a cache. A cache registered before is replaced.
+     *
+     * @param cache The cache
+     * @param lruCache The cache sized by {@link #getCacheSize(Context, int)}
+     */
+    public static synchronized void register(int cache, LruCache<?, ?> lruCache) {
+        sCaches[cache] = new WeakReference<LruCache<?, ?>>(lruCache);
+    }
+
+    /**
+     * @param cache The cache
+     *
+     * @return The hit rate of the cache between 0 and 1 or -1 if the cache
+     *      is not registered or was never used
+     */
+    public static synchronized float getHitRate(int cache) {
+        final LruCache<?, ?> lruCache = getCache(cache);
+        if (lruCache == null) {
+            return -1;
+        }
+
+        final int hitCount = lruCache.hitCount();
+        final int requestCount = hitCount + lruCache.missCount();
+        return requestCount > 0 ? (float)hitCount / requestCount : -1;
+    }
+
+    /**
+     * Log the size and the hit rate of the registered caches
+     */
+    public static synchronized void logStatistics() {
+        for (int cache = 0; cache < sCaches.length; cache++) {
+            final LruCache<?, ?> lruCache = getCache(cache);
+            if (lruCache != null) {
+                Log.i(TAG, CACHE_NAMES[cache] + ": size=" + lruCache.size() + "/"
+                        + lruCache.maxSize() + " hits=" + lruCache.hitCount()
+                        + " misses=" + lruCache.missCount()
+                        + " evictions=" + lruCache.evictionCount());
+            }
+        }
+    }
+
+    /**
+     * Trim the registered caches
+     *
+     * @param level The trim memory level
+     */
+    private static synchronized void trimCaches(int level) {
+        final int percent = getRetainedPercent(level);
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "trimCaches: level=" + level + " retained=" + percent + "%");
+            logStatistics();
+        }
+
+        for (int cache = 0; cache < sCaches.length; cache++) {
+            final LruCache<?, ?> lruCache = getCache(cache);
+            if (lruCache != null) {
+                final int cachePercent = CACHE_VISIBLE_TIER[cache] ? percent : percent / 2;
+                lruCache.trimToSize((int)((long)lruCache.maxSize() * cachePercent / 100));
+            }
+        }
+    }
+
+    /**
+     * @param level The trim memory level
+     *
+     * @return The percentage of the visible tier caches which is retained
+     */
+    private static int getRetainedPercent(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            // The process is likely to be killed
+            return 0;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            return 25;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            // Nothing is displayed
+            return 50;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            return 25;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return 50;
+        } else {
+            return 75;
+        }
+    }
+
+    /**
+     * @param cache The cache
+     *
+     * @return The registered cache or null
+     */
+    private static LruCache<?, ?> getCache(int cache) {
+        return sCaches[cache] != null ? sCaches[cache].get() : null;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.videoeditor.util;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+/**
+ * Registry of resources which hold native memory, such as bitmaps and
+ * video editors. Owners release their resources explicitly instead of
+ * relying on the garbage collector.
+ *
+ * Leak detection is enabled when the log level of this class is DEBUG:
+ * adb shell setprop log.tag.NativeResources DEBUG
+ * Resources which are still registered when their owner is destroyed are
+ * then reported.
+ */
+public class NativeResources {
+    // Logging
+    private static final String TAG = "NativeResources";
+
+    // Leak detection is decided once when the class is loaded
+    private static final boolean TRACK = Log.isLoggable(TAG, Log.DEBUG);
+
+    // The registered resources and their owners
+    private static final Map<Object, String> mResources = new IdentityHashMap<Object, String>();
+
+    /**
+     * It is not possible to instantiate this class
+     */
+    private NativeResources() {
+    }
+
+    /**
+     * Register a resource
+     *
+     * @param resource The resource
+     * @param owner The owner which is responsible for releasing the resource
+     */
+    public static void register(Object resource, String owner) {
+        if (TRACK && resource != null) {
+            synchronized (mResources) {
+                mResources.put(resource, owner);
+            }
+        }
+    }
+
+    /**
+     * Unregister a resource which was released by its owner
+     *
+     * @param resource The resource
+     */
+    public static void unregister(Object resource) {
+        if (TRACK && resource != null) {
+            synchronized (mResources) {
+                mResources.remove(resource);
+            }
+        }
+    }
+
+    /**
+     * Recycle and unregister a bitmap
+     *
+     * @param bitmap The bitmap
+     */
+    public static void recycle(Bitmap bitmap) {
+        if (bitmap != null) {
+            unregister(bitmap);
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Report the resources of an owner which were not released and
+     * unregister them
+     *
+     * @param owner The owner
+     */
+    public static void checkReleased(String owner) {
+        checkReleased(owner, null);
+    }
+
+    /**
+     * Report the resources of an owner which were not released and
+     * unregister them, except the resources which the owner still uses
+     *
+     * @param owner The owner
+     * @param inUse The resources which the owner still uses and are kept
+     *      registered, or null
+     */
+    public static void checkReleased(String owner, Collection<?> inUse) {
+        if (!TRACK) {
+            return;
+        }
+
+        synchronized (mResources) {
+            final Iterator<Map.Entry<Object, String>> iterator =
+                    mResources.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<Object, String> entry = iterator.next();
+                final Object resource = entry.getKey();
+                if (owner.equals(entry.getValue())
+                        && (inUse == null || !containsResource(inUse, resource))) {
+                    // Bitmaps recycled directly by the owner are not leaked
+                    final boolean released =
+                            resource instanceof Bitmap && ((Bitmap)resource).isRecycled();
+                    if (!released) {
+                        Log.w(TAG, "Leaked by " + owner + ": " + resource);
+                    }
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param resources The resources
+     * @param resource The resource
+     *
+     * @return true if the resources contain this very resource
+     */
+    private static boolean containsResource(Collection<?> resources, Object resource) {
+        for (Object r : resources) {
+            if (r == resource) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
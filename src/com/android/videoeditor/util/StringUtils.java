@@ -16,6 +16,8 @@
 
 package com.android.videoeditor.util;
 
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
 import java.util.Random;
 
 import com.android.videoeditor.R;
@@ -27,6 +29,12 @@ import android.graphics.Paint;
  * String utilities
  */
 public class StringUtils {
+    // The length of the timestamp written by getTimestampAsChars()
+    public static final int TIMESTAMP_LENGTH = 10;
+
+    // The largest time which fits in TIMESTAMP_LENGTH characters
+    private static final long MAX_TIMESTAMP_MS = (100L * 3600 * 1000) - 1;
+
     /**
      * Pseudo-random number generator object for use with randomString(). The
      * Random class is not considered to be cryptographically secure, so only
@@ -48,6 +56,10 @@ public class StringUtils {
      */
     private static char[] sNumbers = ("0123456789").toCharArray();
 
+    // The zero digit of the locale in which the timestamps are written
+    private static Locale sZeroDigitLocale;
+    private static char sZeroDigit = '0';
+
     /**
      * This class cannot be instantiated
      */
@@ -120,6 +132,56 @@ public class StringUtils {
         return String.format("%02d:%02d:%02d.%01d", hours, mins, sec, time);
     }
 
+    /**
+     * Write a readable representation of the time (HH:MM:SS.T) into the
+     * specified buffer without allocating. The digits are those of the
+     * default locale, like in getTimestampAsString(). The hours, minutes and
+     * seconds are only written if the time is not within the same second as
+     * the time previously written into the buffer. Times of 100 hours or
+     * more are written as 99:59:59.9.
+     *
+     * @param time The time
+     * @param previousTime The time previously written into the buffer or -1
+     * @param buffer The buffer. Its length must be at least TIMESTAMP_LENGTH.
+     */
+    public static void getTimestampAsChars(long time, long previousTime, char[] buffer) {
+        final char zeroDigit = getZeroDigit();
+        time = Math.min(time, MAX_TIMESTAMP_MS);
+        final long sec = time / 1000;
+        // The buffer is also rewritten if it holds the digits of another locale
+        final int previousDigit = buffer[9] - zeroDigit;
+        if (previousTime < 0 || Math.min(previousTime, MAX_TIMESTAMP_MS) / 1000 != sec
+                || previousDigit < 0 || previousDigit > 9) {
+            putTwoDigits(buffer, 0, sec / 3600, zeroDigit);
+            buffer[2] = ':';
+            putTwoDigits(buffer, 3, (sec / 60) % 60, zeroDigit);
+            buffer[5] = ':';
+            putTwoDigits(buffer, 6, sec % 60, zeroDigit);
+            buffer[8] = '.';
+        }
+
+        buffer[9] = (char)(zeroDigit + (time % 1000) / 100);
+    }
+
+    private static void putTwoDigits(char[] buffer, int offset, long value, char zeroDigit) {
+        buffer[offset] = (char)(zeroDigit + value / 10);
+        buffer[offset + 1] = (char)(zeroDigit + value % 10);
+    }
+
+    /**
+     * @return The zero digit of the default locale. The digit is looked up
+     *      again only when the default locale changes.
+     */
+    private static synchronized char getZeroDigit() {
+        final Locale locale = Locale.getDefault();
+        if (locale != sZeroDigitLocale) {
+            sZeroDigit = new DecimalFormatSymbols(locale).getZeroDigit();
+            sZeroDigitLocale = locale;
+        }
+
+        return sZeroDigit;
+    }
+
     /**
      * Get a readable string displaying the time
      *
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.videoeditor.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+import com.android.videoeditor.R;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Bitmap.CompressFormat;
+import android.os.Process;
+import android.util.Log;
+import android.util.SparseBooleanArray;
+
+/**
+ * The theme masks and audio tracks are stored as raw resources and must be
+ * extracted to files before the video editor can use them. The files are
+ * extracted in the background after the application is installed or
+ * upgraded and validated against the checksums recorded at extraction time,
+ * so that applying a theme does not wait for the extraction.
+ */
+public class ThemeAssets {
+    // Logging
+    private static final String TAG = "ThemeAssets";
+
+    // The preferences in which the checksums are persisted
+    private static final String PREFS_NAME = "theme_assets";
+    private static final String PREF_VERSION_CODE = "version_code";
+
+    // The size of the copy buffer
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * A raw resource extracted to a file
+     */
+    private static class Asset {
+        private final int mRawResourceId;
+        private final String mFilename;
+        private final boolean mMask;
+
+        /**
+         * Constructor
+         *
+         * @param rawResourceId The raw resource id
+         * @param filename The filename
+         * @param mask true if the resource is a mask which must be encoded
+         *      as a JPEG
+         */
+        public Asset(int rawResourceId, String filename, boolean mask) {
+            mRawResourceId = rawResourceId;
+            mFilename = filename;
+            mMask = mask;
+        }
+    }
+
+    // The theme assets
+    private static final Asset[] ASSETS = {
+        new Asset(R.raw.mask_contour, "mask_countour.jpg", true),
+        new Asset(R.raw.mask_diagonal, "mask_diagonal.jpg", true),
+        new Asset(R.raw.theme_travel_audio_track, "theme_travel.m4a", false),
+        new Asset(R.raw.theme_surfing_audio_track, "theme_surfing.m4a", false),
+        new Asset(R.raw.theme_film_audio_track, "theme_film.m4a", false),
+        new Asset(R.raw.theme_rockandroll_audio_track, "theme_rockandroll.m4a", false),
+    };
+
+    // The assets which were validated in this process
+    private static final SparseBooleanArray mValidated = new SparseBooleanArray();
+
+    // true once the checksums recorded by a previous version were discarded
+    private static boolean mVersionChecked;
+
+    /**
+     * It is not possible to instantiate this class
+     */
+    private ThemeAssets() {
+    }
+
+    /**
+     * Validate and if necessary extract all the assets on a background
+     * thread
+     *
+     * @param context The context
+     */
+    public static void prepareAsync(Context context) {
+        final Context appContext = context.getApplicationContext();
+        new Thread("ThemeAssets") {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                for (Asset asset : ASSETS) {
+                    try {
+                        getFilename(appContext, asset.mRawResourceId);
+                    } catch (IOException ex) {
+                        Log.w(TAG, "Cannot extract theme asset: " + asset.mFilename, ex);
+                    }
+                }
+            }
+        }.start();
+    }
+
+    /**
+     * Get the filename of an asset. The asset is extracted if the file does
+     * not exist, does not match its checksum or was extracted by a previous
+     * version of the application.
+     *
+     * @param context The context
+     * @param rawResourceId The raw resource id
+     *
+     * @return The absolute filename
+     */
+    public static synchronized String getFilename(Context context, int rawResourceId)
+            throws FileNotFoundException, IOException {
+        final Asset asset = getAsset(rawResourceId);
+        final File file = new File(context.getFilesDir(), asset.mFilename);
+        if (mValidated.get(rawResourceId)) {
+            return file.getAbsolutePath();
+        }
+
+        final SharedPreferences prefs =
+                context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (!mVersionChecked) {
+            checkVersion(context, prefs);
+            mVersionChecked = true;
+        }
+
+        final long checksum = prefs.getLong(asset.mFilename, -1);
+        if (checksum == -1 || !file.exists() || computeChecksum(file) != checksum) {
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "Extracting: " + asset.mFilename);
+            }
+
+            extract(context, asset);
+            prefs.edit().putLong(asset.mFilename, computeChecksum(file)).apply();
+        }
+
+        mValidated.put(rawResourceId, true);
+        return file.getAbsolutePath();
+    }
+
+    /**
+     * Discard the checksums recorded by a previous version of the
+     * application so that its assets are extracted again
+     *
+     * @param context The context
+     * @param prefs The preferences
+     */
+    private static void checkVersion(Context context, SharedPreferences prefs) {
+        int versionCode;
+        try {
+            versionCode = context.getPackageManager().getPackageInfo(
+                    context.getPackageName(), 0).versionCode;
+        } catch (PackageManager.NameNotFoundException ex) {
+            versionCode = 0;
+        }
+
+        if (prefs.getInt(PREF_VERSION_CODE, -1) != versionCode) {
+            prefs.edit().clear().putInt(PREF_VERSION_CODE, versionCode).apply();
+        }
+    }
+
+    /**
+     * @param rawResourceId The raw resource id
+     *
+     * @return The asset
+     */
+    private static Asset getAsset(int rawResourceId) {
+        for (Asset asset : ASSETS) {
+            if (asset.mRawResourceId == rawResourceId) {
+                return asset;
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid theme asset raw resource id");
+    }
+
+    /**
+     * Extract an asset. The asset is written to a temporary file first so
+     * that a partially written file is never used.
+     *
+     * @param context The context
+     * @param asset The asset
+     */
+    private static void extract(Context context, Asset asset)
+            throws FileNotFoundException, IOException {
+        final String tmpFilename = asset.mFilename + ".tmp";
+        Bitmap bitmap = null;
+        FileOutputStream fos = null;
+        InputStream is = null;
+        try {
+            is = context.getResources().openRawResource(asset.mRawResourceId);
+            fos = context.openFileOutput(tmpFilename, Context.MODE_WORLD_READABLE);
+            if (asset.mMask) {
+                bitmap = BitmapFactory.decodeStream(is);
+                if (bitmap == null) {
+                    throw new IllegalStateException("Cannot decode raw resource mask");
+                }
+
+                if (!bitmap.compress(CompressFormat.JPEG, 100, fos)) {
+                    throw new IllegalStateException("Cannot compress bitmap");
+                }
+            } else {
+                final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int bytesRead;
+                while ((bytesRead = is.read(buffer)) > 0) {
+                    fos.write(buffer, 0, bytesRead);
+                }
+            }
+        } finally {
+            if (is != null) {
+                is.close();
+            }
+
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+
+            if (fos != null) {
+                fos.flush();
+                fos.close();
+            }
+        }
+
+        final File tmpFile = new File(context.getFilesDir(), tmpFilename);
+        if (!tmpFile.renameTo(new File(context.getFilesDir(), asset.mFilename))) {
+            throw new IOException("Cannot rename theme asset: " + asset.mFilename);
+        }
+    }
+
+    /**
+     * @param file The file
+     *
+     * @return The CRC32 checksum of the file
+     */
+    private static long computeChecksum(File file) throws IOException {
+        final CRC32 crc = new CRC32();
+        final FileInputStream fis = new FileInputStream(file);
+        try {
+            final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = fis.read(buffer)) > 0) {
+                crc.update(buffer, 0, bytesRead);
+            }
+        } finally {
+            fis.close();
+        }
+
+        return crc.getValue();
+    }
+}
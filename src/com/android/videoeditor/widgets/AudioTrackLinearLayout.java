@@ -22,6 +22,7 @@ import android.app.Activity;
 import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.graphics.Canvas;
 import android.os.Bundle;
 import android.util.AttributeSet;
 import android.util.Log;
@@ -58,6 +59,7 @@ public class AudioTrackLinearLayout extends LinearLayout {
     private final ItemSimpleGestureListener mAudioTrackGestureListener;
     private final int mAudioTrackHeight;
     private final int mHalfParentWidth;
+    private final TimelineViewport mViewport = new TimelineViewport(this);
     private final View mAddAudioTrackButtonView;
     private final int mAddAudioTrackButtonWidth;
     private AudioTracksLayoutListener mListener;
@@ -416,6 +418,7 @@ public class AudioTrackLinearLayout extends LinearLayout {
             return;
         }
 
+        audioTrackView.updateWaveform();
         if (mAudioTrackActionMode != null) {
             mAudioTrackActionMode.invalidate();
         }
@@ -505,6 +508,50 @@ public class AudioTrackLinearLayout extends LinearLayout {
         invalidate();
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mViewport.attach();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mViewport.detach();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // The item views are sized from the project time model in onLayout.
+        // Only the other views are measured here.
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                getDefaultSize(getSuggestedMinimumHeight(), heightMeasureSpec));
+
+        final int childrenCount = getChildCount();
+        for (int i = 0; i < childrenCount; i++) {
+            final View view = getChildAt(i);
+            if (view.getTag() == null && view.getVisibility() != View.GONE) {
+                measureChild(view, widthMeasureSpec, heightMeasureSpec);
+            }
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        mViewport.onDraw();
+        super.dispatchDraw(canvas);
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        // Do not draw the item views outside of the visible part of the timeline
+        if (child.getTag() != null && !mViewport.isVisible(child.getLeft(), child.getRight())) {
+            return false;
+        }
+
+        return super.drawChild(canvas, child, drawingTime);
+    }
+
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
         final int childrenCount = getChildCount();
@@ -551,7 +598,8 @@ public class AudioTrackLinearLayout extends LinearLayout {
                     final int trackLeft =
                         (int)((audioTrack.getAppStartTime() * viewWidth) / mTimelineDurationMs) +
                             leftViewWidth;
-                    childView.layout(trackLeft, 0, trackLeft + width, mAudioTrackHeight);
+                    mViewport.layoutItemView(childView, trackLeft, 0, trackLeft + width,
+                            mAudioTrackHeight);
                     left = trackLeft + width;
                 } else if (id == R.id.add_audio_track_button) {
                     if (childView.getVisibility() == View.VISIBLE) {
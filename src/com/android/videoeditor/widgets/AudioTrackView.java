@@ -43,6 +43,7 @@ public class AudioTrackView extends View {
     private final Paint mLoopPaint;
     private final Rect mProgressDestRect;
     private final ScrollViewListener mScrollListener;
+    private final TimelineTile mTile;
 
     private double[] mNormalizedGains;
     private long mTimelineDurationMs;
@@ -51,6 +52,8 @@ public class AudioTrackView extends View {
     private WaveformData mWaveformData;
     private int mScrollX;
     private int mScreenWidth;
+    // The end points of the waveform lines
+    private float[] mLinePoints;
 
     /*
      * {@inheritDoc}
@@ -113,6 +116,11 @@ public class AudioTrackView extends View {
 
             @Override
             public void onScrollProgress(View view, int scrollX, int scrollY, boolean appScroll) {
+                mScrollX = scrollX;
+                // The tile is composited at its position until it must be rendered again
+                if (!mTile.covers(scrollX)) {
+                    invalidate();
+                }
             }
 
             @Override
@@ -129,6 +137,14 @@ public class AudioTrackView extends View {
         display.getMetrics(metrics);
         mScreenWidth = metrics.widthPixels;
 
+        // The waveform is rendered in a tile which is composited while scrolling
+        mTile = new TimelineTile(this, new TimelineTile.Renderer() {
+            @Override
+            public void onDrawTile(Canvas canvas, int left, int right) {
+                drawWaveform(canvas, left, right);
+            }
+        }, mScreenWidth);
+
         mProgress = -1;
     }
 
@@ -153,6 +169,7 @@ public class AudioTrackView extends View {
         final TimelineHorizontalScrollView scrollView =
             (TimelineHorizontalScrollView)((View)((View)getParent()).getParent()).getParent();
         scrollView.removeScrollListener(mScrollListener);
+        mTile.release();
     }
 
     /**
@@ -256,6 +273,8 @@ public class AudioTrackView extends View {
 
             mNormalizedGains[i] = value * value * halfHeight;
         }
+
+        mTile.invalidate();
     }
 
     /**
@@ -265,6 +284,15 @@ public class AudioTrackView extends View {
      */
     public void updateTimelineDuration(long timelineDurationMs) {
         mTimelineDurationMs = timelineDurationMs;
+        mTile.invalidate();
+    }
+
+    /**
+     * The audio track was modified. The waveform is drawn again.
+     */
+    public void updateWaveform() {
+        mTile.invalidate();
+        invalidate();
     }
 
     /**
@@ -295,47 +323,89 @@ public class AudioTrackView extends View {
                         mProgressDestRect, getPaddingLeft(), getWidth() - getPaddingRight());
             }
         } else if (mTimelineDurationMs > 0) { // Draw waveform
-            // Compute the number of frames in the trimmed audio track
-            final MovieAudioTrack audioTrack = (MovieAudioTrack)getTag();
-            final int startFrame = (int)(audioTrack.getBoundaryBeginTime() /
-                    mWaveformData.getFrameDuration());
-            final int numFrames =
-                (int)(audioTrack.getTimelineDuration() / mWaveformData.getFrameDuration());
-
-            final int ctr = getHeight() / 2;
-            short value;
-            int index;
-            final int start = Math.max(mScrollX - mScreenWidth / 2, getPaddingLeft());
-            final int limit = Math.min(mScrollX + mScreenWidth, getWidth() - getPaddingRight());
-            if (audioTrack.isAppLooping()) {
-                // Compute the milliseconds / pixel at the current zoom level
-                final float framesPerPixel = mTimelineDurationMs /
-                    ((float)(mWaveformData.getFrameDuration() *
-                            (((View)getParent()).getWidth() - mScreenWidth)));
-
-                for (int i = start; i < limit; i++) {
-                    index = startFrame + (int)(framesPerPixel * i);
-                    index = index % numFrames;
-                    value = (short)mNormalizedGains[index];
-                    canvas.drawLine(i, ctr - value, i, ctr + 1 + value, mLinePaint);
-
-                    if (index == startFrame) { // Draw the loop delineation
-                        canvas.drawLine(i, getPaddingTop(), i,
-                                getHeight() - getPaddingBottom(), mLinePaint);
-                    }
-                }
-            } else {
-                // Compute the milliseconds / pixel at the current zoom level
-                final float framesPerPixel =  audioTrack.getTimelineDuration() /
-                    ((float)(mWaveformData.getFrameDuration() * getWidth()));
-
-                for (int i = start; i < limit; i++) {
-                    index = startFrame + (int)(framesPerPixel * i);
-                    value = (short)(mNormalizedGains[index]);
-                    canvas.drawLine(i, ctr - value, i, ctr + 1 + value, mLinePaint);
+            mTile.draw(canvas, mScrollX);
+        }
+    }
+
+    /**
+     * Draw the waveform between the specified positions
+     *
+     * @param canvas The canvas
+     * @param left The left position in view coordinates
+     * @param right The right position in view coordinates
+     */
+    private void drawWaveform(Canvas canvas, int left, int right) {
+        // Compute the number of frames in the trimmed audio track
+        final MovieAudioTrack audioTrack = (MovieAudioTrack)getTag();
+        final int startFrame = (int)(audioTrack.getBoundaryBeginTime() /
+                mWaveformData.getFrameDuration());
+        final int numFrames =
+            (int)(audioTrack.getTimelineDuration() / mWaveformData.getFrameDuration());
+
+        final int ctr = getHeight() / 2;
+        short value;
+        int index;
+        final int start = Math.max(left, getPaddingLeft());
+        final int limit = Math.min(right, getWidth() - getPaddingRight());
+        if (start >= limit) {
+            return;
+        }
+
+        // Draw all the lines at once
+        final int pointsCount = (limit - start) * 4;
+        if (mLinePoints == null || mLinePoints.length < pointsCount) {
+            mLinePoints = new float[pointsCount];
+        }
+
+        int p = 0;
+        if (audioTrack.isAppLooping()) {
+            // Compute the milliseconds / pixel at the current zoom level
+            final float framesPerPixel = mTimelineDurationMs /
+                ((float)(mWaveformData.getFrameDuration() *
+                        (((View)getParent()).getWidth() - mScreenWidth)));
+
+            for (int i = start; i < limit; i++) {
+                index = startFrame + (int)(framesPerPixel * i);
+                index = index % numFrames;
+                value = (short)mNormalizedGains[index];
+                p = addLine(p, i, ctr - value, ctr + 1 + value);
+
+                if (index == startFrame) { // Draw the loop delineation
+                    canvas.drawLine(i, getPaddingTop(), i,
+                            getHeight() - getPaddingBottom(), mLinePaint);
                 }
             }
+        } else {
+            // Compute the milliseconds / pixel at the current zoom level
+            final float framesPerPixel =  audioTrack.getTimelineDuration() /
+                ((float)(mWaveformData.getFrameDuration() * getWidth()));
+
+            for (int i = start; i < limit; i++) {
+                index = startFrame + (int)(framesPerPixel * i);
+                value = (short)(mNormalizedGains[index]);
+                p = addLine(p, i, ctr - value, ctr + 1 + value);
+            }
         }
+
+        canvas.drawLines(mLinePoints, 0, p, mLinePaint);
+    }
+
+    /**
+     * Add a vertical line to the waveform lines
+     *
+     * @param p The index of the first free point
+     * @param x The horizontal position
+     * @param top The top of the line
+     * @param bottom The bottom of the line
+     *
+     * @return The index of the next free point
+     */
+    private int addLine(int p, int x, int top, int bottom) {
+        mLinePoints[p++] = x;
+        mLinePoints[p++] = top;
+        mLinePoints[p++] = x;
+        mLinePoints[p++] = bottom;
+        return p;
     }
 
     @Override
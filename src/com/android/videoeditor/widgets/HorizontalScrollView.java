@@ -61,6 +61,27 @@ import java.util.List;
  * @attr ref android.R.styleable#HorizontalScrollView_fillViewport
  */
 public class HorizontalScrollView extends FrameLayout {
+    /**
+     * The view is not scrolling
+     */
+    public static final int SCROLL_STATE_IDLE = 0;
+
+    /**
+     * The user is dragging the view
+     */
+    public static final int SCROLL_STATE_DRAGGING = 1;
+
+    /**
+     * The view is flinging after the user lifted the finger
+     */
+    public static final int SCROLL_STATE_FLINGING = 2;
+
+    /**
+     * The view is scrolling to a position set by the application or is
+     * springing back into its bounds
+     */
+    public static final int SCROLL_STATE_SETTLING = 3;
+
     private static final int ANIMATED_SCROLL_GAP = 250;
 
     private static final float MAX_SCROLL_FACTOR = 0.5f;
@@ -103,6 +124,11 @@ public class HorizontalScrollView extends FrameLayout {
      */
     private boolean mIsBeingDragged = false;
 
+    /**
+     * The current scroll state
+     */
+    private int mScrollState = SCROLL_STATE_IDLE;
+
     /**
      * Determines speed during touch scrolling
      */
@@ -509,6 +535,7 @@ public class HorizontalScrollView extends FrameLayout {
                 mIsBeingDragged = false;
                 mHasLastFocusX = false;
                 if (mScroller.springBack(mScrollX, mScrollY, 0, getScrollRange(), 0, 0)) {
+                    setScrollState(SCROLL_STATE_SETTLING);
                     postInvalidateOnAnimation();
                 }
                 break;
@@ -557,6 +584,10 @@ public class HorizontalScrollView extends FrameLayout {
                     mScroller.abortAnimation();
                 }
 
+                if (mIsBeingDragged) {
+                    setScrollState(SCROLL_STATE_DRAGGING);
+                }
+
                 // Remember where the motion event started
                 mLastFocusX = getFocusX(ev);
                 mHasLastFocusX = true;
@@ -578,6 +609,8 @@ public class HorizontalScrollView extends FrameLayout {
                     }
                 }
                 if (mIsBeingDragged) {
+                    setScrollState(SCROLL_STATE_DRAGGING);
+
                     // Scroll to follow the motion event
                     mLastFocusX = x;
 
@@ -628,9 +661,14 @@ public class HorizontalScrollView extends FrameLayout {
                         } else {
                             if (mScroller.springBack(mScrollX, mScrollY, 0,
                                     getScrollRange(), 0, 0)) {
+                                setScrollState(SCROLL_STATE_SETTLING);
                                 postInvalidateOnAnimation();
+                            } else {
+                                setScrollState(SCROLL_STATE_IDLE);
                             }
                         }
+                    } else {
+                        setScrollState(SCROLL_STATE_IDLE);
                     }
 
                     mHasLastFocusX = false;
@@ -646,7 +684,10 @@ public class HorizontalScrollView extends FrameLayout {
             case MotionEvent.ACTION_CANCEL:
                 if (mIsBeingDragged && getChildCount() > 0) {
                     if (mScroller.springBack(mScrollX, mScrollY, 0, getScrollRange(), 0, 0)) {
+                        setScrollState(SCROLL_STATE_SETTLING);
                         postInvalidateOnAnimation();
+                    } else {
+                        setScrollState(SCROLL_STATE_IDLE);
                     }
                     mHasLastFocusX = false;
                     mIsBeingDragged = false;
@@ -1136,10 +1177,12 @@ public class HorizontalScrollView extends FrameLayout {
             dx = Math.max(0, Math.min(scrollX + dx, maxX)) - scrollX;
 
             mScroller.startScroll(scrollX, mScrollY, dx, 0);
+            setScrollState(SCROLL_STATE_SETTLING);
             postInvalidateOnAnimation();
         } else {
             if (!mScroller.isFinished()) {
                 mScroller.abortAnimation();
+                setScrollState(SCROLL_STATE_IDLE);
             }
             scrollBy(dx, dy);
         }
@@ -1260,9 +1303,48 @@ public class HorizontalScrollView extends FrameLayout {
             if (!awakenScrollBars()) {
                 postInvalidateOnAnimation();
             }
+
+            // The animation reached its final position
+            if (mScroller.isFinished()) {
+                setScrollState(SCROLL_STATE_IDLE);
+            }
+        } else if (mScrollState == SCROLL_STATE_FLINGING
+                || mScrollState == SCROLL_STATE_SETTLING) {
+            setScrollState(SCROLL_STATE_IDLE);
         }
     }
 
+    /**
+     * @return The current scroll state
+     */
+    public int getScrollState() {
+        return mScrollState;
+    }
+
+    /**
+     * Change the scroll state
+     *
+     * @param scrollState The new scroll state
+     */
+    private void setScrollState(int scrollState) {
+        if (mScrollState != scrollState) {
+            final int oldScrollState = mScrollState;
+            mScrollState = scrollState;
+            onScrollStateChanged(oldScrollState, scrollState);
+        }
+    }
+
+    /**
+     * The scroll state changed. The state becomes SCROLL_STATE_IDLE as soon
+     * as the user lifts the finger without flinging or the fling or settle
+     * animation reaches its final position.
+     *
+     * @param oldScrollState The previous scroll state
+     * @param newScrollState The new scroll state
+     */
+    protected void onScrollStateChanged(int oldScrollState, int newScrollState) {
+    }
+
     /**
      * Scrolls the view to the given child.
      *
@@ -1489,6 +1571,7 @@ public class HorizontalScrollView extends FrameLayout {
 
             mScroller.fling(mScrollX, mScrollY, velocityX, 0, 0,
                     Math.max(0, right - width), 0, 0, width/2, 0);
+            setScrollState(SCROLL_STATE_FLINGING);
 
             final boolean movingRight = velocityX > 0;
 
@@ -0,0 +1,385 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.videoeditor.widgets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import com.android.videoeditor.util.BitmapDecoder;
+import com.android.videoeditor.util.MemoryBudget;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.View;
+
+/**
+ * Draws the visible part of a large image from tiles decoded at the
+ * resolution of the current zoom. The image is divided in square tiles at
+ * each power of two sample size. Only the tiles which are visible at the
+ * sample size of the current zoom are decoded, in the background and most
+ * recently requested first. The tiles are drawn over the sub-sampled bitmap
+ * of the whole image, which is displayed until they are decoded.
+ */
+class ImageTileRenderer {
+    // Logging
+    private static final String TAG = "ImageTileRenderer";
+
+    // The size of the tiles in pixels
+    private static final int TILE_SIZE = 256;
+
+    // The maximum number of evicted tiles which are kept to be reused
+    private static final int MAX_REUSABLE_TILES = 4;
+
+    // The tiles are decoded one at a time
+    private static final Executor sDecoderExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * A decoded tile
+     */
+    private static class Tile {
+        private final Bitmap mBitmap;
+        // The last draw pass in which the tile was drawn
+        private volatile int mDrawPass = Integer.MIN_VALUE;
+
+        public Tile(Bitmap bitmap) {
+            mBitmap = bitmap;
+        }
+    }
+
+    /**
+     * The key of a tile in the cache. The key of the lookups is reused so
+     * that drawing the visible tiles does not box a key for each tile.
+     */
+    private static class TileKey {
+        private long mKey;
+
+        public TileKey(long key) {
+            mKey = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TileKey && ((TileKey)o).mKey == mKey;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int)(mKey ^ (mKey >>> 32));
+        }
+    }
+
+    // Instance variables
+    private final View mView;
+    private final BitmapRegionDecoder mDecoder;
+    private final int mImageWidth, mImageHeight;
+    private final LruCache<TileKey, Tile> mTiles;
+    // The key of the tiles looked up by draw
+    private final TileKey mLookupKey = new TileKey(0);
+    // The maximum number of tiles which fit in the cache
+    private final int mMaxTiles;
+    private final ArrayList<Bitmap> mReusableTiles = new ArrayList<Bitmap>();
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Matrix mInverseMatrix = new Matrix();
+    private final float[] mMatrixValues = new float[9];
+    private final RectF mVisibleRect = new RectF();
+    private final RectF mTileRect = new RectF();
+    private final Rect mRegion = new Rect();
+    // The tiles which are visible but not decoded. Guarded by this.
+    private long[] mRequested = new long[16];
+    private int mRequestedCount;
+    private boolean mDecoding;
+    private volatile boolean mReleased;
+    // The current draw pass
+    private volatile int mDrawPass;
+
+    private final Runnable mDecodeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            decodeTiles();
+        }
+    };
+
+    /**
+     * Constructor
+     *
+     * @param view The view which displays the image
+     * @param decoder The region decoder of the image. The renderer owns
+     *      the decoder.
+     */
+    public ImageTileRenderer(View view, BitmapRegionDecoder decoder) {
+        mView = view;
+        mDecoder = decoder;
+        mImageWidth = decoder.getWidth();
+        mImageHeight = decoder.getHeight();
+
+        final int cacheSize = MemoryBudget.getCacheSize(view.getContext(),
+                MemoryBudget.CACHE_IMAGE_TILES);
+        mTiles = new LruCache<TileKey, Tile>(cacheSize) {
+            @Override
+            protected int sizeOf(TileKey key, Tile value) {
+                return value.mBitmap.getByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, TileKey key, Tile oldValue,
+                    Tile newValue) {
+                // The bitmap of a tile drawn in the last draw pass may still
+                // be displayed so only the bitmaps of the tiles which were not
+                // drawn since are decoded again
+                if (evicted && !mReleased && oldValue.mDrawPass != mDrawPass) {
+                    synchronized (mReusableTiles) {
+                        if (mReusableTiles.size() < MAX_REUSABLE_TILES) {
+                            mReusableTiles.add(oldValue.mBitmap);
+                        }
+                    }
+                }
+            }
+        };
+        MemoryBudget.register(MemoryBudget.CACHE_IMAGE_TILES, mTiles);
+        // The tiles are decoded in ARGB_8888
+        mMaxTiles = cacheSize / (TILE_SIZE * TILE_SIZE * 4);
+    }
+
+    /**
+     * @return The width of the image
+     */
+    public int getImageWidth() {
+        return mImageWidth;
+    }
+
+    /**
+     * @return The height of the image
+     */
+    public int getImageHeight() {
+        return mImageHeight;
+    }
+
+    /**
+     * Release the tiles and the decoder. The bitmaps are not recycled
+     * because the last display list of the view may still reference them.
+     */
+    public void release() {
+        mReleased = true;
+        synchronized (this) {
+            mRequestedCount = 0;
+        }
+
+        mTiles.evictAll();
+        synchronized (mReusableTiles) {
+            mReusableTiles.clear();
+        }
+
+        // The decoder is recycled after the tile being decoded
+        sDecoderExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mDecoder.recycle();
+            }
+        });
+    }
+
+    /**
+     * Draw the visible tiles which are decoded and request the others
+     *
+     * @param canvas The view canvas
+     * @param matrix The matrix which maps the image to the view
+     * @param viewWidth The width of the view
+     * @param viewHeight The height of the view
+     * @param minSampleSize The tiles are drawn only if their sample size
+     *      is smaller than this sample size
+     */
+    public void draw(Canvas canvas, Matrix matrix, int viewWidth, int viewHeight,
+            float minSampleSize) {
+        if (mReleased) {
+            return;
+        }
+
+        // Decode the image so that one tile pixel is displayed on at least
+        // one view pixel
+        matrix.getValues(mMatrixValues);
+        final float scale = mMatrixValues[Matrix.MSCALE_X];
+        final int sampleSize = Integer.highestOneBit(Math.max((int)(1 / scale), 1));
+        synchronized (this) {
+            mRequestedCount = 0;
+        }
+
+        if (sampleSize >= minSampleSize || !matrix.invert(mInverseMatrix)) {
+            // The tiles would not be sharper than the displayed bitmap
+            return;
+        }
+
+        mVisibleRect.set(0, 0, viewWidth, viewHeight);
+        mInverseMatrix.mapRect(mVisibleRect);
+        if (!mVisibleRect.intersect(0, 0, mImageWidth, mImageHeight)) {
+            return;
+        }
+
+        final int tileSize = TILE_SIZE * sampleSize;
+        final int firstX = (int)mVisibleRect.left / tileSize;
+        final int lastX = (int)Math.ceil(mVisibleRect.right / tileSize);
+        final int firstY = (int)mVisibleRect.top / tileSize;
+        final int lastY = (int)Math.ceil(mVisibleRect.bottom / tileSize);
+        final int drawPass = ++mDrawPass;
+        int cachedTiles = 0;
+        for (int y = firstY; y < lastY; y++) {
+            for (int x = firstX; x < lastX; x++) {
+                final long key = getKey(sampleSize, x, y);
+                mLookupKey.mKey = key;
+                final Tile tile = mTiles.get(mLookupKey);
+                if (tile != null) {
+                    tile.mDrawPass = drawPass;
+                    cachedTiles++;
+                    getRegion(key, mRegion);
+                    mTileRect.set(mRegion);
+                    matrix.mapRect(mTileRect);
+                    canvas.drawBitmap(tile.mBitmap, null, mTileRect, mPaint);
+                } else {
+                    request(key);
+                }
+            }
+        }
+
+        // Decode only the tiles which fit in the cache with the visible tiles
+        // already decoded. Otherwise the visible tiles would evict each other
+        // and be requested again at every draw.
+        synchronized (this) {
+            mRequestedCount = Math.min(mRequestedCount, Math.max(mMaxTiles - cachedTiles, 0));
+        }
+    }
+
+    /**
+     * Request the decoding of a tile
+     *
+     * @param key The tile key
+     */
+    private synchronized void request(long key) {
+        if (mRequestedCount == mRequested.length) {
+            mRequested = Arrays.copyOf(mRequested, mRequestedCount * 2);
+        }
+
+        mRequested[mRequestedCount++] = key;
+        if (!mDecoding) {
+            mDecoding = true;
+            sDecoderExecutor.execute(mDecodeRunnable);
+        }
+    }
+
+    /**
+     * Decode the requested tiles. The tiles which are no longer visible
+     * when the decoder is ready for them are not decoded.
+     */
+    private void decodeTiles() {
+        while (true) {
+            final long key;
+            synchronized (this) {
+                if (mReleased || mRequestedCount == 0) {
+                    mDecoding = false;
+                    return;
+                }
+
+                key = mRequested[--mRequestedCount];
+            }
+
+            final Bitmap tile = decodeTile(key);
+            if (tile != null && !mReleased) {
+                mTiles.put(new TileKey(key), new Tile(tile));
+                mView.postInvalidate();
+            }
+        }
+    }
+
+    /**
+     * Decode a tile
+     *
+     * @param key The tile key
+     *
+     * @return The tile bitmap or null if the tile cannot be decoded
+     */
+    private Bitmap decodeTile(long key) {
+        final Rect region = new Rect();
+        getRegion(key, region);
+
+        final Bitmap reuse;
+        synchronized (mReusableTiles) {
+            reuse = mReusableTiles.isEmpty() ? null :
+                    mReusableTiles.remove(mReusableTiles.size() - 1);
+        }
+
+        try {
+            final Bitmap tile = BitmapDecoder.decodeRegion(mDecoder, region, getSampleSize(key),
+                    null, reuse);
+            if (reuse != null && tile != reuse) {
+                synchronized (mReusableTiles) {
+                    mReusableTiles.add(reuse);
+                }
+            }
+
+            return tile;
+        } catch (RuntimeException ex) {
+            Log.w(TAG, "Cannot decode tile: " + region, ex);
+            return null;
+        } catch (OutOfMemoryError ex) {
+            // The sub-sampled bitmap of the image remains displayed
+            Log.w(TAG, "Cannot decode tile: " + region, ex);
+            mTiles.evictAll();
+            return null;
+        }
+    }
+
+    /**
+     * Get the region of the image covered by a tile
+     *
+     * @param key The tile key
+     * @param region The region in image coordinates
+     */
+    private void getRegion(long key, Rect region) {
+        final int tileSize = TILE_SIZE * getSampleSize(key);
+        final int left = (int)(key & 0xfffff) * tileSize;
+        final int top = (int)((key >> 20) & 0xfffff) * tileSize;
+        region.set(left, top, Math.min(left + tileSize, mImageWidth),
+                Math.min(top + tileSize, mImageHeight));
+    }
+
+    /**
+     * @param sampleSize The sample size
+     * @param x The horizontal tile index
+     * @param y The vertical tile index
+     *
+     * @return The tile key
+     */
+    private static long getKey(int sampleSize, int x, int y) {
+        return ((long)sampleSize << 40) | ((long)y << 20) | x;
+    }
+
+    /**
+     * @param key The tile key
+     *
+     * @return The sample size of the tile
+     */
+    private static int getSampleSize(long key) {
+        return (int)(key >> 40);
+    }
+}
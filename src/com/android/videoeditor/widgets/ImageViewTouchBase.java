@@ -19,6 +19,8 @@ package com.android.videoeditor.widgets;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
 import android.graphics.Matrix;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
@@ -71,6 +73,12 @@ public class ImageViewTouchBase extends ImageView {
     private Runnable mOnLayoutRunnable = null;
     private ImageTouchEventListener mEventListener;
 
+    // The tiles which display the zoomed image at a higher resolution than
+    // the displayed bitmap
+    private ImageTileRenderer mTileRenderer;
+    // The matrix which maps the image to the view
+    private final Matrix mTileMatrix = new Matrix();
+
     /**
      * Touch interface
      */
@@ -158,6 +166,51 @@ public class ImageViewTouchBase extends ImageView {
         mBitmapDisplayed = bitmap;
     }
 
+    /*
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        if (mTileRenderer != null && mBitmapDisplayed != null) {
+            // The displayed bitmap is a sub-sampled version of the image
+            final float sampleSize =
+                    (float)mTileRenderer.getImageWidth() / mBitmapDisplayed.getWidth();
+            mTileMatrix.setScale(1 / sampleSize,
+                    (float)mBitmapDisplayed.getHeight() / mTileRenderer.getImageHeight());
+            mTileMatrix.postConcat(getImageViewMatrix());
+
+            canvas.save();
+            canvas.translate(getPaddingLeft(), getPaddingTop());
+            mTileRenderer.draw(canvas, mTileMatrix, getWidth() - getPaddingLeft()
+                    - getPaddingRight(), getHeight() - getPaddingTop() - getPaddingBottom(),
+                    sampleSize);
+            canvas.restore();
+        }
+    }
+
+    /**
+     * Display the zoomed image from tiles decoded at the resolution of the
+     * zoom. The displayed bitmap must be a sub-sampled version of the image.
+     *
+     * @param decoder The region decoder of the image or null to display
+     *      the bitmap only. The view owns the decoder.
+     */
+    public void setImageTiles(BitmapRegionDecoder decoder) {
+        if (mTileRenderer != null) {
+            mTileRenderer.release();
+            mTileRenderer = null;
+        }
+
+        if (decoder != null) {
+            mTileRenderer = new ImageTileRenderer(this, decoder);
+        }
+
+        mMaxZoom = maxZoom();
+        invalidate();
+    }
+
     /**
      * @param listener The listener
      */
@@ -302,9 +355,8 @@ public class ImageViewTouchBase extends ImageView {
     /**
      * Sets the maximum zoom, which is a scale relative to the base matrix. It
      * is calculated to show the image at 400% zoom regardless of screen or
-     * image orientation. If in the future we decode the full 3 megapixel
-     * image, rather than the current 1024x768, this should be changed down
-     * to 200%.
+     * image orientation. The image is shown at 200% zoom if it is displayed
+     * from tiles decoded at the full resolution.
      */
     private float maxZoom() {
         if (mBitmapDisplayed == null) {
@@ -313,8 +365,14 @@ public class ImageViewTouchBase extends ImageView {
 
         final float fw = (float)mBitmapDisplayed.getWidth() / mThisWidth;
         final float fh = (float)mBitmapDisplayed.getHeight() / mThisHeight;
+        final float maxZoom = Math.max(fw, fh) * 4;
+        if (mTileRenderer != null) {
+            return Math.max(maxZoom,
+                    Math.max((float)mTileRenderer.getImageWidth() / mThisWidth,
+                    (float)mTileRenderer.getImageHeight() / mThisHeight) * 2);
+        }
 
-        return Math.max(fw, fh) * 4;
+        return maxZoom;
     }
 
     /**
@@ -19,6 +19,8 @@ package com.android.videoeditor.widgets;
 
 import com.android.videoeditor.service.ApiService;
 import com.android.videoeditor.service.MovieMediaItem;
+import com.android.videoeditor.util.ImageUtils;
+import com.android.videoeditor.util.MemoryBudget;
 import com.android.videoeditor.R;
 
 import android.content.Context;
@@ -39,9 +41,9 @@ import android.view.MotionEvent;
 import android.view.View;
 import android.view.WindowManager;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 
 /**
  * Media item preview view on the timeline. This class assumes the media item is always put on a
@@ -65,6 +67,10 @@ public class MediaItemView extends View {
     private final GestureDetector mGestureDetector;
     private final ScrollViewListener mScrollListener;
     private final Rect mGeneratingEffectProgressDestRect;
+    private final TimelineTile mTile;
+    private final Paint mDimPaint;
+    // The key used to look up the thumbnails while drawing
+    private final ThumbnailKey mThumbnailKey;
 
     private boolean mIsScrolling;
     private boolean mIsPlaying;
@@ -93,8 +99,9 @@ public class MediaItemView extends View {
     private long mBeginTimeMs, mEndTimeMs;
 
     private int mGeneration;
-    private HashSet<Integer> mPending;
-    private ArrayList<Integer> mWantThumbnails;
+    private BitSet mPending;
+    private int[] mWantThumbnails;
+    private int mWantThumbnailsCount;
 
     public MediaItemView(Context context, AttributeSet attrs) {
         this(context, attrs, 0);
@@ -114,8 +121,9 @@ public class MediaItemView extends View {
             sEmptyFrameDrawable = getResources().getDrawable(
                     R.drawable.timeline_loading);
 
-            // Initialize the thumbnail cache, limit the memory usage to 3MB
-            sThumbnailCache = new ThumbnailCache(3*1024*1024);
+            // Initialize the thumbnail cache, the memory usage is limited by the
+            // memory budget
+            sThumbnailCache = new ThumbnailCache(context);
         }
 
         // Get the screen width
@@ -129,6 +137,14 @@ public class MediaItemView extends View {
         mGestureDetector = new GestureDetector(context, new MyGestureListener());
         mScrollListener = new MyScrollViewListener();
 
+        // The thumbnails are rendered in a tile which is composited while scrolling
+        mTile = new TimelineTile(this, new TimelineTile.Renderer() {
+            @Override
+            public void onDrawTile(Canvas canvas, int left, int right) {
+                drawThumbnails(canvas, left, right);
+            }
+        }, mScreenWidth);
+
         // Prepare the progress bar rectangles
         final ProgressBar progressBar = ProgressBar.getProgressBar(context);
         final int layoutHeight = (int)(
@@ -146,10 +162,17 @@ public class MediaItemView extends View {
         mRightState = View.EMPTY_STATE_SET;
 
         // Initialize the thumbnail indices we want to request
-        mWantThumbnails = new ArrayList<Integer>();
+        mWantThumbnails = new int[16];
 
         // Initialize the set of indices we are waiting
-        mPending = new HashSet<Integer>();
+        mPending = new BitSet();
+
+        // Prepare the paint used to dim the view
+        mDimPaint = new Paint();
+        mDimPaint.setColor(Color.BLACK);
+        mDimPaint.setAlpha(192);
+
+        mThumbnailKey = new ThumbnailKey();
 
         // Initialize the generation number
         mGeneration = sGenerationCounter++;
@@ -196,7 +219,10 @@ public class MediaItemView extends View {
         @Override
         public void onScrollProgress(View view, int scrollX, int scrollY, boolean appScroll) {
             mScrollX = scrollX;
-            invalidate();
+            // The tile is composited at its position until it must be rendered again
+            if (!mTile.covers(scrollX)) {
+                invalidate();
+            }
         }
 
         @Override
@@ -225,6 +251,7 @@ public class MediaItemView extends View {
         mScrollView.removeScrollListener(mScrollListener);
         // Release the cached bitmaps
         releaseBitmapsAndClear();
+        mTile.release();
     }
 
     /**
@@ -284,19 +311,8 @@ public class MediaItemView extends View {
     }
 
     private Bitmap getOneThumbnail() {
-        ThumbnailKey key = new ThumbnailKey();
-        key.mediaItemId = mMediaItem.getId();
-
         // Find any one cached thumbnail
-        for (int i = 0; i < mNumberOfThumbnails; i++) {
-            key.index = i;
-            Bitmap bitmap = sThumbnailCache.get(key);
-            if (bitmap != null) {
-                return bitmap;
-            }
-        }
-
-        return null;
+        return sThumbnailCache.getFirst(mMediaItem.getId());
     }
 
     /**
@@ -386,7 +402,7 @@ public class MediaItemView extends View {
         if (token != mGeneration) {
             return false;
         }
-        if (!mPending.contains(index)) {
+        if (!mPending.get(index)) {
             Log.e(TAG, "received unasked bitmap, index = " + index);
             return false;
         }
@@ -395,10 +411,11 @@ public class MediaItemView extends View {
             // We keep this request in mPending, so we won't request it again.
             return false;
         }
-        mPending.remove(index);
+        mPending.clear(index);
         ThumbnailKey key = new ThumbnailKey(mMediaItem.getId(), index);
         sThumbnailCache.put(key, bitmap);
 
+        mTile.invalidate();
         invalidate();
         return true;
     }
@@ -417,7 +434,7 @@ public class MediaItemView extends View {
                     getHeight() - getPaddingBottom());
 
             // Draw thumbnails
-            drawThumbnails(canvas);
+            mTile.draw(canvas, mScrollX);
 
             // Draw the "Add transition" indicators
             if (isSelected()) {
@@ -425,43 +442,39 @@ public class MediaItemView extends View {
             } else if (mTimeline.hasItemSelected()) {
                 // Dim myself if some view on the timeline is selected but not me
                 // by drawing a transparent black overlay.
-                final Paint paint = new Paint();
-                paint.setColor(Color.BLACK);
-                paint.setAlpha(192);
-                canvas.drawPaint(paint);
+                canvas.drawPaint(mDimPaint);
             }
 
             // Request thumbnails if things are not moving
             boolean isBusy = mIsPlaying || mTimeline.isTrimming() || mIsScrolling;
-            if (!isBusy && !mWantThumbnails.isEmpty()) {
+            if (!isBusy && mWantThumbnailsCount > 0) {
                 requestThumbnails();
             }
         }
     }
 
-    // Draws the thumbnails, also put unavailable thumbnail indices in
-    // mWantThumbnails.
-    private void drawThumbnails(Canvas canvas) {
-        mWantThumbnails.clear();
+    // Draws the thumbnails between the left and right view coordinates, also
+    // put unavailable thumbnail indices in mWantThumbnails.
+    private void drawThumbnails(Canvas canvas, int left, int right) {
+        mWantThumbnailsCount = 0;
 
-        // The screen coordinate of the left edge of the usable area.
-        int left = getLeft() + getPaddingLeft() - mScrollX;
-        // The screen coordinate of the right edge of the usable area.
-        int right = getRight() - getPaddingRight() - mScrollX;
-        // Return if the usable area is not on screen.
-        if (left >= mScreenWidth || right <= 0 || left >= right) {
+        // Clip the range to the usable area.
+        left = Math.max(left, getPaddingLeft());
+        right = Math.min(right, getWidth() - getPaddingRight());
+        // Return if the range does not intersect the usable area.
+        if (left >= right || mNumberOfThumbnails == 0) {
             return;
         }
 
-        // Map [0, mScreenWidth - 1] to the indices of the thumbnail.
-        int startIdx = (0 - left) / mThumbnailWidth;
-        int endIdx = (mScreenWidth - 1 - left) / mThumbnailWidth;
+        // Map [left, right - 1] to the indices of the thumbnail.
+        int startIdx = (left - getPaddingLeft()) / mThumbnailWidth;
+        int endIdx = (right - 1 - getPaddingLeft()) / mThumbnailWidth;
 
         startIdx = clamp(startIdx, 0, mNumberOfThumbnails - 1);
         endIdx = clamp(endIdx, 0, mNumberOfThumbnails - 1);
 
         // Prepare variables used in the loop
-        ThumbnailKey key = new ThumbnailKey();
+        final ThumbnailKey key = mThumbnailKey;
         key.mediaItemId = mMediaItem.getId();
         int x = getPaddingLeft() + startIdx * mThumbnailWidth;
         int y = getPaddingTop();
@@ -480,8 +493,8 @@ public class MediaItemView extends View {
                 sEmptyFrameDrawable.setBounds(
                         x, y, x + mThumbnailWidth, y + mThumbnailHeight);
                 sEmptyFrameDrawable.draw(canvas);
-                if (!mPending.contains(i)) {
-                    mWantThumbnails.add(Integer.valueOf(i));
+                if (!mPending.get(i)) {
+                    addWantThumbnail(i);
                 }
             } else {
                 canvas.drawBitmap(bitmap, x, y, null);
@@ -538,22 +551,36 @@ public class MediaItemView extends View {
     }
 
     /**
-     * Requests the thumbnails in mWantThumbnails (which is filled by onDraw).
+     * Adds a thumbnail index to mWantThumbnails. The array grows only when
+     * more thumbnails than ever before are visible.
+     *
+     * @param index The thumbnail index
      */
-    private void requestThumbnails() {
-        // Copy mWantThumbnails to an array
-        int indices[] = new int[mWantThumbnails.size()];
-        for (int i = 0; i < mWantThumbnails.size(); i++) {
-            indices[i] = mWantThumbnails.get(i);
+    private void addWantThumbnail(int index) {
+        if (mWantThumbnailsCount == mWantThumbnails.length) {
+            mWantThumbnails = Arrays.copyOf(mWantThumbnails, 2 * mWantThumbnailsCount);
         }
 
+        mWantThumbnails[mWantThumbnailsCount++] = index;
+    }
+
+    /**
+     * Requests the thumbnails in mWantThumbnails (which is filled by drawThumbnails).
+     */
+    private void requestThumbnails() {
+        // The request keeps its own copy of the indices
+        final int indices[] = Arrays.copyOf(mWantThumbnails, mWantThumbnailsCount);
+
         // Put them in the pending set
-        mPending.addAll(mWantThumbnails);
+        for (int i = 0; i < mWantThumbnailsCount; i++) {
+            mPending.set(mWantThumbnails[i]);
+        }
+        mWantThumbnailsCount = 0;
 
         ApiService.getMediaItemThumbnails(getContext(), mProjectPath,
                 mMediaItem.getId(), mThumbnailWidth, mThumbnailHeight,
                 mBeginTimeMs, mEndTimeMs, mNumberOfThumbnails, mGeneration,
-                indices);
+                indices, ImageUtils.getThumbnailConfig(getContext()));
     }
 
     @Override
@@ -602,6 +629,8 @@ public class MediaItemView extends View {
     private void releaseBitmapsAndClear() {
         sThumbnailCache.clearForMediaItemId(mMediaItem.getId());
         mPending.clear();
+        mWantThumbnailsCount = 0;
+        mTile.invalidate();
         mGeneration = sGenerationCounter++;
     }
 }
@@ -633,19 +662,54 @@ class ThumbnailKey {
     }
 }
 
+/**
+ * The cached thumbnails of all media items. The cache keeps an index of the
+ * cached thumbnails of each media item so that the thumbnails of one media
+ * item are found and removed without scanning the whole cache.
+ */
 class ThumbnailCache {
     private LruCache<ThumbnailKey, Bitmap> mCache;
-
-    public ThumbnailCache(int size) {
-        mCache = new LruCache<ThumbnailKey, Bitmap>(size) {
+    // The indices of the cached thumbnails of each media item
+    private final HashMap<String, BitSet> mIndices;
+    // The key used to remove the thumbnails of a media item
+    private final ThumbnailKey mKey;
+
+    public ThumbnailCache(Context context) {
+        mIndices = new HashMap<String, BitSet>();
+        mKey = new ThumbnailKey();
+        mCache = new LruCache<ThumbnailKey, Bitmap>(
+                MemoryBudget.getCacheSize(context, MemoryBudget.CACHE_THUMBNAILS)) {
             @Override
             protected int sizeOf(ThumbnailKey key, Bitmap value) {
                 return value.getByteCount();
             }
+
+            @Override
+            protected void entryRemoved(boolean evicted, ThumbnailKey key, Bitmap oldValue,
+                    Bitmap newValue) {
+                // A replaced thumbnail stays in the index
+                if (newValue == null) {
+                    final BitSet indices = mIndices.get(key.mediaItemId);
+                    if (indices != null) {
+                        indices.clear(key.index);
+                        if (indices.isEmpty()) {
+                            mIndices.remove(key.mediaItemId);
+                        }
+                    }
+                }
+            }
         };
+        MemoryBudget.register(MemoryBudget.CACHE_THUMBNAILS, mCache);
     }
 
     void put(ThumbnailKey key, Bitmap value) {
+        BitSet indices = mIndices.get(key.mediaItemId);
+        if (indices == null) {
+            indices = new BitSet();
+            mIndices.put(key.mediaItemId, indices);
+        }
+        indices.set(key.index);
+
         mCache.put(key, value);
     }
 
@@ -653,12 +717,33 @@ class ThumbnailCache {
         return mCache.get(key);
     }
 
+    /**
+     * @param id The media item id
+     *
+     * @return The cached thumbnail with the lowest index, null if no
+     *      thumbnail of the media item is cached
+     */
+    Bitmap getFirst(String id) {
+        final BitSet indices = mIndices.get(id);
+        if (indices == null || indices.isEmpty()) {
+            return null;
+        }
+
+        mKey.mediaItemId = id;
+        mKey.index = indices.nextSetBit(0);
+        return mCache.get(mKey);
+    }
+
     void clearForMediaItemId(String id) {
-        Map<ThumbnailKey, Bitmap> map = mCache.snapshot();
-        for (ThumbnailKey key : map.keySet()) {
-            if (key.mediaItemId.equals(id)) {
-                mCache.remove(key);
-            }
+        final BitSet indices = mIndices.remove(id);
+        if (indices == null) {
+            return;
+        }
+
+        mKey.mediaItemId = id;
+        for (int i = indices.nextSetBit(0); i >= 0; i = indices.nextSetBit(i + 1)) {
+            mKey.index = i;
+            mCache.remove(mKey);
         }
     }
 }
@@ -26,6 +26,7 @@ import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.Rect;
 import android.media.videoeditor.EffectColor;
 import android.media.videoeditor.MediaItem;
@@ -88,6 +89,7 @@ public class MediaLinearLayout extends LinearLayout {
     private final ItemSimpleGestureListener mTransitionGestureListener;
     private final Handler mHandler;
     private final int mHalfParentWidth;
+    private final TimelineViewport mViewport = new TimelineViewport(this);
     private final int mHandleWidth;
     private final int mTransitionVerticalInset;
     private final ImageButton mLeftAddClipButton, mRightAddClipButton;
@@ -1249,6 +1251,50 @@ public class MediaLinearLayout extends LinearLayout {
         return false;
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mViewport.attach();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mViewport.detach();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // The item views are sized from the project time model in onLayout.
+        // Only the other views are measured here.
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                getDefaultSize(getSuggestedMinimumHeight(), heightMeasureSpec));
+
+        final int childrenCount = getChildCount();
+        for (int i = 0; i < childrenCount; i++) {
+            final View view = getChildAt(i);
+            if (view.getTag() == null && view.getVisibility() != View.GONE) {
+                measureChild(view, widthMeasureSpec, heightMeasureSpec);
+            }
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        mViewport.onDraw();
+        super.dispatchDraw(canvas);
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        // Do not draw the item views outside of the visible part of the timeline
+        if (child.getTag() != null && !mViewport.isVisible(child.getLeft(), child.getRight())) {
+            return false;
+        }
+
+        return super.drawChild(canvas, child, drawingTime);
+    }
+
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
         // Compute the total duration of the project.
@@ -1288,15 +1334,15 @@ public class MediaLinearLayout extends LinearLayout {
                     if (left != view.getLeft() || right != view.getRight()) {
                         final int oldLeft = view.getLeft();
                         final int oldRight = view.getRight();
-                        view.layout(left, top, right, bottom);
+                        mViewport.layoutItemView(view, left, top, right, bottom);
                         ((MediaItemView) view).onLayoutPerformed(oldLeft, oldRight);
                     } else {
-                        view.layout(left, top, right, bottom);
+                        mViewport.layoutItemView(view, left, top, right, bottom);
                     }
                 } else {  // Transition view.
                     // Note that we set additional inset so it looks smaller
                     // than media item views on the timeline.
-                    view.layout(left,
+                    mViewport.layoutItemView(view, left,
                             top + mTransitionVerticalInset,
                             right,
                             bottom - mTransitionVerticalInset);
@@ -1608,11 +1654,9 @@ public class MediaLinearLayout extends LinearLayout {
                 }
 
                 if (!mFirstEntered && mDropIndex >= 0) {
-                    mScrollView.setTag(R.id.playhead_type,
-                            TimelineHorizontalScrollView.PLAYHEAD_MOVE_OK);
+                    mScrollView.setPlayheadType(TimelineHorizontalScrollView.PLAYHEAD_MOVE_OK);
                 } else {
-                    mScrollView.setTag(R.id.playhead_type,
-                            TimelineHorizontalScrollView.PLAYHEAD_MOVE_NOT_OK);
+                    mScrollView.setPlayheadType(TimelineHorizontalScrollView.PLAYHEAD_MOVE_NOT_OK);
                 }
                 mScrollView.invalidate();
 
@@ -1626,7 +1670,7 @@ public class MediaLinearLayout extends LinearLayout {
                 }
 
                 // Redraw the "normal playhead"
-                mScrollView.setTag(R.id.playhead_type, TimelineHorizontalScrollView.PLAYHEAD_NORMAL);
+                mScrollView.setPlayheadType(TimelineHorizontalScrollView.PLAYHEAD_NORMAL);
                 mScrollView.invalidate();
                 break;
             }
@@ -1644,7 +1688,7 @@ public class MediaLinearLayout extends LinearLayout {
                 mRightHandle.setVisibility(View.VISIBLE);
 
                 // Redraw the "normal playhead"
-                mScrollView.setTag(R.id.playhead_type, TimelineHorizontalScrollView.PLAYHEAD_NORMAL);
+                mScrollView.setPlayheadType(TimelineHorizontalScrollView.PLAYHEAD_NORMAL);
                 mScrollView.invalidate();
 
                 requestLayout();
@@ -1706,12 +1750,10 @@ public class MediaLinearLayout extends LinearLayout {
                 final long positionMs = getLeftDropPosition();
                 if (mDropIndex >= 0) {
                     // Redraw the "move ok playhead"
-                    mScrollView.setTag(R.id.playhead_type,
-                            TimelineHorizontalScrollView.PLAYHEAD_MOVE_OK);
+                    mScrollView.setPlayheadType(TimelineHorizontalScrollView.PLAYHEAD_MOVE_OK);
                 } else {
                     // Redraw the "move not ok playhead"
-                    mScrollView.setTag(R.id.playhead_type,
-                            TimelineHorizontalScrollView.PLAYHEAD_MOVE_NOT_OK);
+                    mScrollView.setPlayheadType(TimelineHorizontalScrollView.PLAYHEAD_MOVE_NOT_OK);
                 }
 
                 mListener.onRequestMovePlayhead(positionMs, true);
@@ -1723,12 +1765,10 @@ public class MediaLinearLayout extends LinearLayout {
                 final long positionMs = getRightDropPosition();
                 if (mDropIndex >= 0) {
                     // Redraw the "move ok playhead"
-                    mScrollView.setTag(R.id.playhead_type,
-                            TimelineHorizontalScrollView.PLAYHEAD_MOVE_OK);
+                    mScrollView.setPlayheadType(TimelineHorizontalScrollView.PLAYHEAD_MOVE_OK);
                 } else {
                     // Redraw the "move not ok playhead"
-                    mScrollView.setTag(R.id.playhead_type,
-                            TimelineHorizontalScrollView.PLAYHEAD_MOVE_NOT_OK);
+                    mScrollView.setPlayheadType(TimelineHorizontalScrollView.PLAYHEAD_MOVE_NOT_OK);
                 }
 
                 mListener.onRequestMovePlayhead(positionMs, true);
@@ -2292,7 +2332,7 @@ public class MediaLinearLayout extends LinearLayout {
                             mListener.onTrimMediaItem(mMediaItem, 0);
                         }
                         // Move the playhead
-                        mScrollView.setTag(R.id.playhead_offset, view.getRight());
+                        mScrollView.setPlayheadOffset(view.getRight());
                         mScrollView.invalidate();
                     }
 
@@ -2348,7 +2388,7 @@ public class MediaLinearLayout extends LinearLayout {
                         mMoveLayoutPending = true;
                         mScrollView.setTag(R.id.left_view_width,
                                 mHalfParentWidth - (newWidth - mOriginalWidth));
-                        mScrollView.setTag(R.id.playhead_offset, position);
+                        mScrollView.setPlayheadOffset(position);
                         requestLayout();
 
                         mListener.onTrimMediaItem(mMediaItem,
@@ -2386,7 +2426,7 @@ public class MediaLinearLayout extends LinearLayout {
                      */
                     private void moveDone() {
                         mScrollView.setTag(R.id.left_view_width, mHalfParentWidth);
-                        mScrollView.setTag(R.id.playhead_offset, -1);
+                        mScrollView.setPlayheadOffset(-1);
 
                         mListener.onTrimMediaItemEnd(mMediaItem,
                                 mMediaItem.getAppBoundaryBeginTime());
@@ -2460,7 +2500,7 @@ public class MediaLinearLayout extends LinearLayout {
                     }
 
                     // Move the playhead
-                    mScrollView.setTag(R.id.playhead_offset, view.getLeft());
+                    mScrollView.setPlayheadOffset(view.getLeft());
                     mScrollView.invalidate();
                 }
 
@@ -2541,7 +2581,7 @@ public class MediaLinearLayout extends LinearLayout {
                         mListener.onTrimMediaItem(mMediaItem, 0);
                     }
 
-                    mScrollView.setTag(R.id.playhead_offset, position);
+                    mScrollView.setPlayheadOffset(position);
                     mRightHandle.setLimitReached(
                             newDurationMs <= mMinimumItemDurationMs,
                             videoClip ? (mMediaItem.getAppBoundaryEndTime() >=
@@ -2583,7 +2623,7 @@ public class MediaLinearLayout extends LinearLayout {
                  * The move is complete
                  */
                 private void moveDone() {
-                    mScrollView.setTag(R.id.playhead_offset, -1);
+                    mScrollView.setPlayheadOffset(-1);
 
                     mListener.onTrimMediaItemEnd(mMediaItem,
                             mMediaItem.getAppBoundaryEndTime());
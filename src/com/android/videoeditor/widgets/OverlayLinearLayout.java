@@ -23,6 +23,7 @@ import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
+import android.graphics.Canvas;
 import android.os.Bundle;
 import android.os.Handler;
 import android.util.AttributeSet;
@@ -63,6 +64,7 @@ public class OverlayLinearLayout extends LinearLayout {
     // Instance variables
     private final ItemMoveGestureListener mOverlayGestureListener;
     private final int mHalfParentWidth;
+    private final TimelineViewport mViewport = new TimelineViewport(this);
     private final Handler mHandler;
     private final int mHandleWidth;
     private ActionMode mOverlayActionMode;
@@ -593,6 +595,50 @@ public class OverlayLinearLayout extends LinearLayout {
         }
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mViewport.attach();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mViewport.detach();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // The item views are sized from the project time model in onLayout.
+        // Only the other views are measured here.
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                getDefaultSize(getSuggestedMinimumHeight(), heightMeasureSpec));
+
+        final int childrenCount = getChildCount();
+        for (int i = 0; i < childrenCount; i++) {
+            final View view = getChildAt(i);
+            if (view.getTag() == null && view.getVisibility() != View.GONE) {
+                measureChild(view, widthMeasureSpec, heightMeasureSpec);
+            }
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        mViewport.onDraw();
+        super.dispatchDraw(canvas);
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        // Do not draw the item views outside of the visible part of the timeline
+        if (child.getTag() != null && !mViewport.isVisible(child.getLeft(), child.getRight())) {
+            return false;
+        }
+
+        return super.drawChild(canvas, child, drawingTime);
+    }
+
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
         final long totalDurationMs = mProject.computeDuration();
@@ -646,7 +692,7 @@ public class OverlayLinearLayout extends LinearLayout {
                             + mediaItem.getAppTimelineDuration()) * viewWidth) / totalDurationMs);
                 }
 
-                view.layout(left, 0, right, b - t);
+                mViewport.layoutItemView(view, left, 0, right, b - t);
 
                 mediaItemStartTimeMs += mediaItem.getAppTimelineDuration();
                 if (mediaItem.getEndTransition() != null) {
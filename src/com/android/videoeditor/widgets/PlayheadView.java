@@ -26,6 +26,7 @@ import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
+import android.util.SparseArray;
 import android.view.Display;
 import android.view.View;
 import android.view.WindowManager;
@@ -34,16 +35,42 @@ import android.view.WindowManager;
  * The view which displays the scroll position
  */
 public class PlayheadView extends View {
+    /**
+     * A tick label
+     */
+    private static class Label {
+        private final String mText;
+        private final float mHalfWidth;
+
+        /**
+         * Constructor
+         *
+         * @param text The text
+         * @param paint The paint used to draw the text
+         */
+        public Label(String text, Paint paint) {
+            mText = text;
+            mHalfWidth = paint.measureText(text) / 2;
+        }
+    }
+
     // Instance variables
     private final Paint mLinePaint;
     private final Paint mTextPaint;
     private final int mTicksHeight;
     // Timeline text size.
     private final float mTimeTextSize;
+    // The baseline of the text
+    private final int mTextBaseline;
+    // The tick labels indexed by their time in seconds
+    private final SparseArray<Label> mLabels;
     private final int mScreenWidth;
     private final ScrollViewListener mScrollListener;
+    private final TimelineTile mTile;
     private int mScrollX;
     private VideoEditorProject mProject;
+    // The project duration when the tile was invalidated
+    private long mTileDurationMs;
 
     public PlayheadView(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
@@ -62,6 +89,8 @@ public class PlayheadView extends View {
         mTextPaint.setColor(resources.getColor(R.color.playhead_tick_color));
         mTimeTextSize = resources.getDimension(R.dimen.playhead_layout_text_size);
         mTextPaint.setTextSize(mTimeTextSize);
+        mTextBaseline = (int) -mTextPaint.getFontMetrics().top;
+        mLabels = new SparseArray<Label>();
 
         // The ticks height
         mTicksHeight = (int)resources.getDimension(R.dimen.playhead_tick_height);
@@ -82,16 +111,22 @@ public class PlayheadView extends View {
 
             @Override
             public void onScrollProgress(View view, int scrollX, int scrollY, boolean appScroll) {
-                mScrollX = scrollX;
-                invalidate();
+                onScroll(scrollX);
             }
 
             @Override
             public void onScrollEnd(View view, int scrollX, int scrollY, boolean appScroll) {
-                mScrollX = scrollX;
-                invalidate();
+                onScroll(scrollX);
             }
         };
+
+        // The ticks are rendered in a tile which is composited while scrolling
+        mTile = new TimelineTile(this, new TimelineTile.Renderer() {
+            @Override
+            public void onDrawTile(Canvas canvas, int left, int right) {
+                drawTicks(canvas, left, right);
+            }
+        }, mScreenWidth);
     }
 
     public PlayheadView(Context context, AttributeSet attrs) {
@@ -115,6 +150,7 @@ public class PlayheadView extends View {
         final TimelineHorizontalScrollView scrollView =
             (TimelineHorizontalScrollView)((View)getParent()).getParent();
         scrollView.removeScrollListener(mScrollListener);
+        mTile.release();
     }
 
     /**
@@ -122,6 +158,20 @@ public class PlayheadView extends View {
      */
     public void setProject(VideoEditorProject project) {
         mProject = project;
+        mTile.invalidate();
+    }
+
+    /**
+     * The timeline scrolled. The view is drawn again only if the tile does
+     * not contain the visible part of the timeline.
+     *
+     * @param scrollX The scroll position
+     */
+    private void onScroll(int scrollX) {
+        mScrollX = scrollX;
+        if (!mTile.covers(scrollX)) {
+            invalidate();
+        }
     }
 
     @Override
@@ -134,15 +184,32 @@ public class PlayheadView extends View {
 
         final long durationMs = mProject.computeDuration();
         final long durationSec = durationMs / 1000;
-        final int y = (int) -mTextPaint.getFontMetrics().top;
         // We only draw the origin when there is nothing on the timeline.
         if (durationMs == 0 || durationSec == 0) {
-            final String timeText = StringUtils.getSimpleTimestampAsString(getContext(), 0);
-            int x = (int) ((getWidth() - mTextPaint.measureText(timeText)) / 2);
-            canvas.drawText(timeText, x, y, mTextPaint);
+            final Label label = getLabel(0);
+            int x = (int) (getWidth() / 2f - label.mHalfWidth);
+            canvas.drawText(label.mText, x, mTextBaseline, mTextPaint);
             return;
         }
 
+        if (durationMs != mTileDurationMs) {
+            mTileDurationMs = durationMs;
+            mTile.invalidate();
+        }
+
+        mTile.draw(canvas, mScrollX);
+    }
+
+    /**
+     * Draw the ticks between the specified positions
+     *
+     * @param canvas The canvas
+     * @param left The left position in view coordinates
+     * @param right The right position in view coordinates
+     */
+    private void drawTicks(Canvas canvas, int left, int right) {
+        final long durationMs = mTileDurationMs;
+        final long durationSec = durationMs / 1000;
         final int width = getWidth() - mScreenWidth;
         // Compute the number of pixels per second
         final int pixelsPerSec = (int) (width / durationSec);
@@ -164,19 +231,36 @@ public class PlayheadView extends View {
         }
 
         final float spacing = ((float) (width * tickMs) / (float) durationMs);
-        final float startX = Math.max(mScrollX - (((mScrollX - (mScreenWidth / 2)) % spacing)),
+        final float startX = Math.max(left - (((left - (mScreenWidth / 2)) % spacing)),
                 mScreenWidth / 2);
         float startMs = ((tickMs * (startX - (mScreenWidth / 2))) / spacing);
         startMs = Math.round(startMs);
         startMs -= (startMs % tickMs);
 
-        final Context context = getContext();
-        final float endX = mScrollX + mScreenWidth;
+        final float endX = right;
         for (float i = startX; i <= endX; i += spacing, startMs += tickMs) {
-            final String timeText = StringUtils.getSimpleTimestampAsString(context, (long) startMs);
-            final int x = (int) (i - mTextPaint.measureText(timeText) / 2);
-            canvas.drawText(timeText, x, y, mTextPaint);
+            final Label label = getLabel((int) (startMs / 1000));
+            final int x = (int) (i - label.mHalfWidth);
+            canvas.drawText(label.mText, x, mTextBaseline, mTextPaint);
             canvas.drawLine(i, 0, i, mTicksHeight, mLinePaint);
         }
     }
+
+    /**
+     * Get the label of a tick. The labels are formatted and measured once.
+     *
+     * @param timeSec The time of the tick in seconds
+     *
+     * @return The label
+     */
+    private Label getLabel(int timeSec) {
+        Label label = mLabels.get(timeSec);
+        if (label == null) {
+            label = new Label(StringUtils.getSimpleTimestampAsString(getContext(),
+                    timeSec * 1000L), mTextPaint);
+            mLabels.put(timeSec, label);
+        }
+
+        return label;
+    }
 }
@@ -26,7 +26,6 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.graphics.drawable.Drawable;
-import android.os.Handler;
 import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.view.Display;
@@ -43,7 +42,6 @@ public class TimelineHorizontalScrollView extends HorizontalScrollView {
 
     // Instance variables
     private final List<ScrollViewListener> mScrollListenerList;
-    private final Handler mHandler;
     private final int mPlayheadMarginTop;
     private final int mPlayheadMarginTopOk;
     private final int mPlayheadMarginTopNotOk;
@@ -56,29 +54,18 @@ public class TimelineHorizontalScrollView extends HorizontalScrollView {
     private int mLastScrollX;
     private boolean mIsScrolling;
     private boolean mAppScroll;
+    // The app scrolls continuously and ends the scroll itself
+    private boolean mAppScrollInProgress;
     private boolean mEnableUserScrolling;
-
-    // The runnable which executes when the scrolling ends
-    private Runnable mScrollEndedRunnable = new Runnable() {
-        @Override
-        public void run() {
-            mIsScrolling = false;
-
-            for (ScrollViewListener listener : mScrollListenerList) {
-                listener.onScrollEnd(TimelineHorizontalScrollView.this, getScrollX(),
-                        getScrollY(), mAppScroll);
-            }
-
-            mAppScroll = false;
-        }
-    };
+    // The playhead position, -1 to draw it in the middle of the screen
+    private int mPlayheadOffset;
+    private int mPlayheadType;
 
     public TimelineHorizontalScrollView(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
 
         mEnableUserScrolling = true;
         mScrollListenerList = new ArrayList<ScrollViewListener>();
-        mHandler = new Handler();
 
         // Compute half the width of the screen (and therefore the parent view)
         final Display display = ((Activity)context).getWindowManager().getDefaultDisplay();
@@ -87,8 +74,8 @@ public class TimelineHorizontalScrollView extends HorizontalScrollView {
         // This value is shared by all children. It represents the width of
         // the left empty view.
         setTag(R.id.left_view_width, mHalfParentWidth);
-        setTag(R.id.playhead_offset, -1);
-        setTag(R.id.playhead_type, PLAYHEAD_NORMAL);
+        mPlayheadOffset = -1;
+        mPlayheadType = PLAYHEAD_NORMAL;
 
         final Resources resources = context.getResources();
 
@@ -120,6 +107,37 @@ public class TimelineHorizontalScrollView extends HorizontalScrollView {
         mEnableUserScrolling = enable;
     }
 
+    /**
+     * Invoked when the app starts or stops scrolling continuously (e.g.
+     * while the playhead follows the playback). The scroll does not end
+     * between the successive app scrolls. It ends when the app stops
+     * scrolling and the scroll position settles.
+     *
+     * @param inProgress true if the app scrolls continuously
+     */
+    public void setAppScrollInProgress(boolean inProgress) {
+        mAppScrollInProgress = inProgress;
+        if (!inProgress && mIsScrolling && getScrollState() == SCROLL_STATE_IDLE) {
+            dispatchScrollChanged();
+            dispatchScrollEnd();
+        }
+    }
+
+    /**
+     * @param playheadOffset The playhead position or -1 to draw the playhead
+     *      in the middle of the screen
+     */
+    public void setPlayheadOffset(int playheadOffset) {
+        mPlayheadOffset = playheadOffset;
+    }
+
+    /**
+     * @param playheadType The playhead type
+     */
+    public void setPlayheadType(int playheadType) {
+        mPlayheadType = playheadType;
+    }
+
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
         mScaleDetector.onTouchEvent(ev);
@@ -210,36 +228,80 @@ public class TimelineHorizontalScrollView extends HorizontalScrollView {
     public void computeScroll() {
         super.computeScroll();
 
+        final boolean moved = dispatchScrollChanged();
+
+        // A scroll which is not animated ends at the first frame without
+        // movement unless the app is scrolling continuously
+        if (mIsScrolling && !mAppScrollInProgress && getScrollState() == SCROLL_STATE_IDLE) {
+            if (moved) {
+                postInvalidateOnAnimation();
+            } else {
+                dispatchScrollEnd();
+            }
+        }
+    }
+
+    @Override
+    protected void onScrollStateChanged(int oldScrollState, int newScrollState) {
+        if (newScrollState == SCROLL_STATE_IDLE) {
+            // Deliver the final position before the scroll end
+            dispatchScrollChanged();
+            if (mIsScrolling && !mAppScrollInProgress) {
+                dispatchScrollEnd();
+            }
+        }
+    }
+
+    /**
+     * Notify the listeners if the scroll position changed
+     *
+     * @return true if the scroll position changed
+     */
+    private boolean dispatchScrollChanged() {
         final int scrollX = getScrollX();
         if (mLastScrollX != scrollX) {
             mLastScrollX = scrollX;
 
-            // Cancel the previous event
-            mHandler.removeCallbacks(mScrollEndedRunnable);
-
-            // Post a new event
-            mHandler.postDelayed(mScrollEndedRunnable, 300);
-
             final int scrollY = getScrollY();
             if (mIsScrolling) {
-                for (ScrollViewListener listener : mScrollListenerList) {
-                    listener.onScrollProgress(this, scrollX, scrollY, mAppScroll);
+                final int listenersCount = mScrollListenerList.size();
+                for (int i = 0; i < listenersCount; i++) {
+                    mScrollListenerList.get(i).onScrollProgress(this, scrollX, scrollY, mAppScroll);
                 }
             } else {
                 mIsScrolling = true;
 
-                for (ScrollViewListener listener : mScrollListenerList) {
-                    listener.onScrollBegin(this, scrollX, scrollY, mAppScroll);
+                final int listenersCount = mScrollListenerList.size();
+                for (int i = 0; i < listenersCount; i++) {
+                    mScrollListenerList.get(i).onScrollBegin(this, scrollX, scrollY, mAppScroll);
                 }
             }
+
+            return true;
         }
+
+        return false;
+    }
+
+    /**
+     * Notify the listeners that the scroll ended
+     */
+    private void dispatchScrollEnd() {
+        mIsScrolling = false;
+
+        final int listenersCount = mScrollListenerList.size();
+        for (int i = 0; i < listenersCount; i++) {
+            mScrollListenerList.get(i).onScrollEnd(this, getScrollX(), getScrollY(), mAppScroll);
+        }
+
+        mAppScroll = false;
     }
 
     @Override
     protected void dispatchDraw(Canvas canvas) {
         super.dispatchDraw(canvas);
 
-        final int playheadOffset = (Integer)getTag(R.id.playhead_offset);
+        final int playheadOffset = mPlayheadOffset;
         final int startX;
         if (playheadOffset < 0) {
             // Draw the playhead in the middle of the screen
@@ -249,7 +311,7 @@ public class TimelineHorizontalScrollView extends HorizontalScrollView {
             startX = playheadOffset;
         }
 
-        final int playheadType = (Integer)getTag(R.id.playhead_type);
+        final int playheadType = mPlayheadType;
         final int halfPlayheadWidth = mNormalPlayheadDrawable.getIntrinsicWidth() / 2;
         switch (playheadType) {
             case PLAYHEAD_NORMAL: {
@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.videoeditor.widgets;
+
+import java.util.ArrayList;
+
+import com.android.videoeditor.util.MemoryBudget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.util.LruCache;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewParent;
+
+/**
+ * Caches the rendered content of a timeline view around the visible part of
+ * the timeline. The timeline views can be many times wider than the maximum
+ * texture size so they cannot be rendered in a hardware layer. The content
+ * is instead divided in chunks which are no wider than the screen and than
+ * the maximum texture size. The visible chunks are drawn with one chunk on
+ * each side while the visible chunks of all the views and these chunks fit
+ * in the memory budget. While the timeline scrolls the chunks are drawn at
+ * their position and the content is rendered again only when the visible
+ * part of the view leaves the drawn chunks or when the content changes.
+ */
+class TimelineTile {
+    // The maximum width of the chunks, which is the maximum texture size
+    private static final int MAX_CHUNK_WIDTH = 2048;
+
+    // The bitmaps of the chunks of all the tiles. The least recently drawn
+    // chunks release their bitmap when the chunks exceed their memory budget.
+    private static LruCache<Chunk, Bitmap> sBitmaps;
+
+    // The tiles which were drawn since they were released
+    private static final ArrayList<TimelineTile> sTiles = new ArrayList<TimelineTile>();
+
+    /**
+     * Renders the content of a view in a tile
+     */
+    public interface Renderer {
+        /**
+         * Render the content of the view between the specified horizontal
+         * positions. The canvas is translated so that the view coordinates
+         * can be used.
+         *
+         * @param canvas The tile canvas
+         * @param left The left position in view coordinates
+         * @param right The right position in view coordinates
+         */
+        public void onDrawTile(Canvas canvas, int left, int right);
+    }
+
+    /**
+     * A chunk of the content of a view
+     */
+    private static class Chunk {
+        private final int mIndex;
+        private Bitmap mBitmap;
+        // The content generation of the tile when the chunk was rendered
+        private int mGeneration;
+
+        public Chunk(int index) {
+            mIndex = index;
+        }
+    }
+
+    // Instance variables
+    private final View mView;
+    private final Renderer mRenderer;
+    private final int mScreenWidth;
+    private final int mChunkWidth;
+    private final Canvas mCanvas;
+    private final SparseArray<Chunk> mChunks = new SparseArray<Chunk>();
+    // Incremented when the content of the view changes
+    private int mGeneration;
+    // The content generation of the tile when the chunks were drawn
+    private int mDrawnGeneration = -1;
+    // The position of the drawn chunks in view coordinates
+    private int mLeft, mRight;
+    // The size of the view when the chunks were drawn
+    private int mViewWidth, mViewHeight;
+
+    /**
+     * Constructor
+     *
+     * @param view The timeline view
+     * @param renderer The renderer
+     * @param screenWidth The screen width
+     */
+    public TimelineTile(View view, Renderer renderer, int screenWidth) {
+        mView = view;
+        mRenderer = renderer;
+        mScreenWidth = screenWidth;
+        mChunkWidth = Math.max(Math.min(screenWidth, MAX_CHUNK_WIDTH), 1);
+        mCanvas = new Canvas();
+
+        if (sBitmaps == null) {
+            sBitmaps = new LruCache<Chunk, Bitmap>(MemoryBudget.getCacheSize(
+                    view.getContext(), MemoryBudget.CACHE_TIMELINE_TILES)) {
+                @Override
+                protected int sizeOf(Chunk chunk, Bitmap value) {
+                    return value.getByteCount();
+                }
+
+                @Override
+                protected void entryRemoved(boolean evicted, Chunk chunk, Bitmap oldValue,
+                        Bitmap newValue) {
+                    if (chunk.mBitmap == oldValue) {
+                        chunk.mBitmap = null;
+                    }
+                }
+            };
+            MemoryBudget.register(MemoryBudget.CACHE_TIMELINE_TILES, sBitmaps);
+        }
+    }
+
+    /**
+     * The content of the view changed. The chunks are rendered again the
+     * next time they are drawn.
+     */
+    public void invalidate() {
+        mGeneration++;
+    }
+
+    /**
+     * Release the bitmaps. The bitmaps are not recycled because the last
+     * display list of the view may still reference them.
+     */
+    public void release() {
+        final int count = mChunks.size();
+        for (int i = 0; i < count; i++) {
+            final Chunk chunk = mChunks.valueAt(i);
+            if (chunk.mBitmap != null) {
+                sBitmaps.remove(chunk);
+            }
+        }
+
+        mChunks.clear();
+        sTiles.remove(this);
+        mGeneration++;
+    }
+
+    /**
+     * @param scrollX The scroll position of the timeline
+     *
+     * @return true if the drawn chunks contain the visible part of the view
+     */
+    public boolean covers(int scrollX) {
+        if (mDrawnGeneration != mGeneration || mViewWidth != mView.getWidth()
+                || mViewHeight != mView.getHeight()) {
+            return false;
+        }
+
+        final int visibleLeft = getVisibleLeft(scrollX);
+        final int visibleRight = getVisibleRight(scrollX);
+        return visibleLeft >= visibleRight || (visibleLeft >= mLeft && visibleRight <= mRight);
+    }
+
+    /**
+     * Draw the visible chunks and the chunks around them. The chunks are
+     * rendered first if their content is not valid.
+     *
+     * @param canvas The view canvas
+     * @param scrollX The scroll position of the timeline
+     */
+    public void draw(Canvas canvas, int scrollX) {
+        final int width = mView.getWidth();
+        final int height = mView.getHeight();
+        final int visibleLeft = getVisibleLeft(scrollX);
+        final int visibleRight = getVisibleRight(scrollX);
+        if (visibleLeft >= visibleRight || height == 0) {
+            return;
+        }
+
+        if (!sTiles.contains(this)) {
+            sTiles.add(this);
+        }
+
+        if (mViewWidth != width || mViewHeight != height) {
+            // The chunks do not have the size of the view
+            release();
+            sTiles.add(this);
+        }
+
+        final int margin = getMargin(scrollX);
+        final int firstChunk = Math.max((visibleLeft / mChunkWidth) - margin, 0);
+        final int lastChunk = Math.min(((visibleRight - 1) / mChunkWidth) + margin,
+                (width - 1) / mChunkWidth);
+        for (int index = firstChunk; index <= lastChunk; index++) {
+            Chunk chunk = mChunks.get(index);
+            if (chunk == null) {
+                chunk = new Chunk(index);
+                mChunks.put(index, chunk);
+            }
+
+            // Mark the chunk as the most recently drawn
+            sBitmaps.get(chunk);
+            if (chunk.mBitmap == null || chunk.mGeneration != mGeneration) {
+                render(chunk);
+            }
+
+            if (chunk.mBitmap != null) {
+                canvas.drawBitmap(chunk.mBitmap, index * mChunkWidth, 0, null);
+            }
+        }
+
+        mLeft = firstChunk * mChunkWidth;
+        mRight = Math.min((lastChunk + 1) * mChunkWidth, width);
+        mViewWidth = width;
+        mViewHeight = height;
+        mDrawnGeneration = mGeneration;
+    }
+
+    /**
+     * Render the content of the view in a chunk
+     *
+     * @param chunk The chunk
+     */
+    private void render(Chunk chunk) {
+        final int left = chunk.mIndex * mChunkWidth;
+        final int right = Math.min(left + mChunkWidth, mView.getWidth());
+        final int width = right - left;
+        final int height = mView.getHeight();
+        if (chunk.mBitmap == null || chunk.mBitmap.getWidth() != width
+                || chunk.mBitmap.getHeight() != height) {
+            if (chunk.mBitmap != null) {
+                sBitmaps.remove(chunk);
+            }
+
+            chunk.mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            sBitmaps.put(chunk, chunk.mBitmap);
+            if (chunk.mBitmap == null) {
+                // The chunk does not fit in the memory budget
+                return;
+            }
+        } else {
+            chunk.mBitmap.eraseColor(Color.TRANSPARENT);
+        }
+
+        mCanvas.setBitmap(chunk.mBitmap);
+        mCanvas.save();
+        mCanvas.translate(-left, 0);
+        mRenderer.onDrawTile(mCanvas, left, right);
+        mCanvas.restore();
+        mCanvas.setBitmap(null);
+
+        chunk.mGeneration = mGeneration;
+    }
+
+    /**
+     * Get the number of chunks which are drawn on each side of the visible
+     * chunks. The chunks around the visible chunks are drawn only if they fit
+     * in the memory budget with the visible chunks of all the tiles.
+     *
+     * @param scrollX The scroll position of the timeline
+     *
+     * @return The number of chunks
+     */
+    private static int getMargin(int scrollX) {
+        long size = 0;
+        final int tileCount = sTiles.size();
+        for (int i = 0; i < tileCount; i++) {
+            final TimelineTile tile = sTiles.get(i);
+            final int visibleLeft = tile.getVisibleLeft(scrollX);
+            final int visibleRight = tile.getVisibleRight(scrollX);
+            if (visibleLeft >= visibleRight) {
+                continue;
+            }
+
+            final int visibleChunks = ((visibleRight - 1) / tile.mChunkWidth)
+                    - (visibleLeft / tile.mChunkWidth) + 1;
+            final long chunkSize = (long)tile.mChunkWidth * tile.mView.getHeight() * 4;
+            size += (visibleChunks + 2) * chunkSize;
+        }
+
+        return size <= sBitmaps.maxSize() ? 1 : 0;
+    }
+
+    /**
+     * @param scrollX The scroll position of the timeline
+     *
+     * @return The left position of the visible part of the view
+     */
+    private int getVisibleLeft(int scrollX) {
+        return Math.max(scrollX - getTimelineLeft(), 0);
+    }
+
+    /**
+     * @param scrollX The scroll position of the timeline
+     *
+     * @return The right position of the visible part of the view
+     */
+    private int getVisibleRight(int scrollX) {
+        return Math.min(scrollX - getTimelineLeft() + mScreenWidth, mView.getWidth());
+    }
+
+    /**
+     * @return The left position of the view in the timeline
+     */
+    private int getTimelineLeft() {
+        int left = mView.getLeft();
+        ViewParent parent = mView.getParent();
+        while (parent instanceof View && !(parent instanceof TimelineHorizontalScrollView)) {
+            left += ((View)parent).getLeft();
+            parent = parent.getParent();
+        }
+
+        return left;
+    }
+}
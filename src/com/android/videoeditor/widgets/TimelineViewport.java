@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.videoeditor.widgets;
+
+import android.view.View;
+
+/**
+ * The visible part of a timeline layout. The media item, transition,
+ * overlay and audio track views are positioned from the project time model.
+ * Only the item views which intersect the visible part of the timeline,
+ * extended by one screen width on each side, are measured and drawn. The
+ * cost of a layout pass therefore depends on the screen width rather than on
+ * the length of the project.
+ */
+class TimelineViewport implements ScrollViewListener {
+    // Instance variables
+    private final View mLayout;
+    private TimelineHorizontalScrollView mScrollView;
+    // The scroll position when the layout was last drawn
+    private int mDrawnScrollX;
+
+    /**
+     * Constructor
+     *
+     * @param layout The timeline layout
+     */
+    public TimelineViewport(View layout) {
+        mLayout = layout;
+    }
+
+    /**
+     * Start tracking the timeline scroll position. This method shall be
+     * invoked when the timeline layout is attached to the window.
+     */
+    public void attach() {
+        mScrollView = (TimelineHorizontalScrollView)((View)mLayout.getParent()).getParent();
+        mScrollView.addScrollListener(this);
+        mDrawnScrollX = mScrollView.getScrollX();
+    }
+
+    /**
+     * Stop tracking the timeline scroll position. This method shall be
+     * invoked when the timeline layout is detached from the window.
+     */
+    public void detach() {
+        if (mScrollView != null) {
+            mScrollView.removeScrollListener(this);
+            mScrollView = null;
+        }
+    }
+
+    /**
+     * @param left The left position of an item view
+     * @param right The right position of an item view
+     *
+     * @return true if the item view intersects the visible part of the
+     *      timeline or its margins
+     */
+    public boolean isVisible(int left, int right) {
+        if (mScrollView == null || mScrollView.getWidth() == 0) {
+            return true;
+        }
+
+        final int width = mScrollView.getWidth();
+        final int scrollX = mScrollView.getScrollX();
+        return right >= scrollX - width && left <= scrollX + (2 * width);
+    }
+
+    /**
+     * Position an item view. The view is measured only if it is visible.
+     *
+     * @param view The item view
+     * @param left The left position
+     * @param top The top position
+     * @param right The right position
+     * @param bottom The bottom position
+     */
+    public void layoutItemView(View view, int left, int top, int right, int bottom) {
+        if (isVisible(left, right)) {
+            view.measure(View.MeasureSpec.makeMeasureSpec(right - left, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(bottom - top, View.MeasureSpec.EXACTLY));
+        }
+
+        view.layout(left, top, right, bottom);
+    }
+
+    /**
+     * The timeline layout is being drawn
+     */
+    public void onDraw() {
+        if (mScrollView != null) {
+            mDrawnScrollX = mScrollView.getScrollX();
+        }
+    }
+
+    @Override
+    public void onScrollBegin(View view, int scrollX, int scrollY, boolean appScroll) {
+    }
+
+    @Override
+    public void onScrollProgress(View view, int scrollX, int scrollY, boolean appScroll) {
+        checkScrollPosition(scrollX);
+    }
+
+    @Override
+    public void onScrollEnd(View view, int scrollX, int scrollY, boolean appScroll) {
+        checkScrollPosition(scrollX);
+    }
+
+    /**
+     * Redraw the timeline layout before the views which were not drawn
+     * become visible
+     *
+     * @param scrollX The scroll position
+     */
+    private void checkScrollPosition(int scrollX) {
+        if (Math.abs(scrollX - mDrawnScrollX) > mScrollView.getWidth() / 2) {
+            mLayout.invalidate();
+        }
+    }
+}
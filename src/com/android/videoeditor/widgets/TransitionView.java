@@ -18,6 +18,7 @@ package com.android.videoeditor.widgets;
 
 import com.android.videoeditor.service.ApiService;
 import com.android.videoeditor.service.MovieTransition;
+import com.android.videoeditor.util.ImageUtils;
 import com.android.videoeditor.R;
 
 import android.content.Context;
@@ -50,6 +51,7 @@ public class TransitionView extends ImageView {
     private final ScrollViewListener mScrollListener;
     private final Rect mGeneratingTransitionProgressDestRect;
     private final Paint mSeparatorPaint;
+    private final Paint mDimPaint;
     private boolean mIsScrolling;
     // Convenient handle to the parent timeline scroll view.
     private TimelineHorizontalScrollView mScrollView;
@@ -133,6 +135,11 @@ public class TransitionView extends ImageView {
         mSeparatorPaint = new Paint();
         mSeparatorPaint.setColor(Color.BLACK);
         mSeparatorPaint.setStrokeWidth(2);
+
+        // Prepare the paint used to dim the view
+        mDimPaint = new Paint();
+        mDimPaint.setColor(Color.BLACK);
+        mDimPaint.setAlpha(192);
     }
 
     public TransitionView(Context context, AttributeSet attrs) {
@@ -295,10 +302,7 @@ public class TransitionView extends ImageView {
             // Dim myself if some view on the timeline is selected but not me
             // by drawing a transparent black overlay.
             if (!isSelected() && mTimeline.hasItemSelected()) {
-                final Paint paint = new Paint();
-                paint.setColor(Color.BLACK);
-                paint.setAlpha(192);
-                canvas.drawPaint(paint);
+                canvas.drawPaint(mDimPaint);
             }
         } else if (mIsPlaying) { // Playing
         } else if (mIsScrolling) { // Scrolling
@@ -363,7 +367,7 @@ public class TransitionView extends ImageView {
         final int thumbnailHeight = getHeight() - getPaddingTop() - getPaddingBottom();
         // Request the thumbnails
         ApiService.getTransitionThumbnails(getContext(), mProjectPath, transition.getId(),
-                thumbnailHeight);
+                thumbnailHeight, ImageUtils.getThumbnailConfig(getContext()));
 
         return false;
     }